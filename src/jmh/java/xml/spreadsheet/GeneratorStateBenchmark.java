@@ -0,0 +1,80 @@
+package xml.spreadsheet;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static xml.spreadsheet.GeneratorState.*;
+
+/**
+ * Cost of the state validations done for every cell written: the successor
+ * lists scanned twice per cell, as the generator used to do, against the
+ * bitmask table and the single check it does now.
+ * <br/>
+ * Run with <code>gradle jmh</code>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratorStateBenchmark {
+
+	// The state machine as it used to be: a list of successors for every state
+	private static final Map<GeneratorState, List<GeneratorState>> LEGACY = new EnumMap<>(GeneratorState.class);
+
+	static {
+		for (GeneratorState state: values()) {
+			LEGACY.put(state, new LinkedList<>());
+		}
+		LEGACY.get(INITIALIZATION).add(CLEAN_DOCUMENT);
+		LEGACY.get(CLEAN_DOCUMENT).add(WRITING_SHEET);
+		LEGACY.get(CLEAN_DOCUMENT).add(DONE);
+		LEGACY.get(WRITING_SHEET).add(WRITING_COLUMNS);
+		LEGACY.get(WRITING_SHEET).add(WRITING_ROW);
+		LEGACY.get(WRITING_SHEET).add(CLEAN_DOCUMENT);
+		LEGACY.get(WRITING_COLUMNS).add(WRITING_SHEET);
+		LEGACY.get(WRITING_ROW).add(WRITING_SHEET_ROWS);
+		LEGACY.get(WRITING_ROW).add(WRITING_CELL);
+		LEGACY.get(WRITING_SHEET_ROWS).add(WRITING_ROW);
+		LEGACY.get(WRITING_SHEET_ROWS).add(CLEAN_DOCUMENT);
+		LEGACY.get(WRITING_CELL).add(WRITING_ROW);
+	}
+
+	// Not final, so that the JIT cannot fold the checks away
+	private GeneratorState state = WRITING_ROW;
+
+	// Transition validated by scanning the list of successors
+	private static GeneratorState legacyTransition(GeneratorState previous, GeneratorState next) 
+			throws XMLSpreadsheetException {
+		if (!LEGACY.get(previous).contains(next)) {
+			throw new XMLSpreadsheetException("Invalid transition: " + previous + " -> " + next);
+		}
+		return next;
+	}
+
+	@Benchmark
+	public GeneratorState legacyCell() throws XMLSpreadsheetException {
+		state = legacyTransition(state, WRITING_CELL);
+		state = legacyTransition(state, WRITING_ROW);
+		return state;
+	}
+
+	@Benchmark
+	public GeneratorState bitmaskCell() throws XMLSpreadsheetException {
+		state = validateTransition(state, WRITING_CELL);
+		state = validateTransition(state, WRITING_ROW);
+		return state;
+	}
+
+	@Benchmark
+	public GeneratorState singleCheckCell() throws XMLSpreadsheetException {
+		validateCell(state);
+		return state;
+	}
+}
@@ -1,9 +1,16 @@
 package xml.spreadsheet;
 
+import xml.spreadsheet.utils.Markup;
+
 /**
  * Possible types for an XMLSpreadsheet cell.
  * https://learn.microsoft.com/en-us/previous-versions/office/developer/office-xp/aa140066(v=office.10)?redirectedfrom=MSDN#required-attributes-2
  */
 enum CellType {
-	Number, DateTime, Boolean, String, Error
+	Number, DateTime, Boolean, String, Error;
+
+	/** Start of a data element of this type */
+	final Markup dataStart = Markup.of("<ss:Data ss:Type=\"" + name() + "\">");
+	/** Empty data element of this type */
+	final Markup emptyData = Markup.of("<ss:Data ss:Type=\"" + name() + "\"/>");
 }
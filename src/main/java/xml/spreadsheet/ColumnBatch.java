@@ -0,0 +1,236 @@
+package xml.spreadsheet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of a sheet held as column vectors: one primitive array per column, with
+ * the same number of values each, plus the style of the column.  The generator
+ * formats every column in a loop of its own, and then interleaves the columns
+ * into rows.
+ * <br/>
+ * Missing values are marked in an optional validity bitmap, as in columnar
+ * engines: the value of row <code>i</code> is present if the bit 
+ * <code>i % 64</code> of <code>validity[i / 64]</code> is set.  A null bitmap
+ * means that every value is present.  Missing values are written as empty cells.
+ * <br/>
+ * The arrays are not copied: they must not change until the batch is written.
+ */
+public final class ColumnBatch {
+
+	/**
+	 * Kinds of column vectors
+	 */
+	enum Kind {
+		DOUBLE(CellType.Number), 
+		LONG(CellType.Number), 
+		BOOLEAN(CellType.Boolean), 
+		EPOCH_MILLIS(CellType.DateTime), 
+		STRING(CellType.String);
+
+		/** Type of the cells of the column */
+		final CellType cellType;
+
+		Kind(CellType cellType) {
+			this.cellType = cellType;
+		}
+	}
+
+	/**
+	 * Column vector.  Only the array of its kind is not null
+	 */
+	static final class Column {
+		final Kind kind;
+		final Style style;
+		final double[] doubles;
+		final long[] longs;
+		final boolean[] booleans;
+		final String[] strings;
+		final long[] validity;
+
+		private Column(Kind kind, Style style, double[] doubles, long[] longs, 
+				boolean[] booleans, String[] strings, long[] validity) {
+			this.kind = kind;
+			this.style = style;
+			this.doubles = doubles;
+			this.longs = longs;
+			this.booleans = booleans;
+			this.strings = strings;
+			this.validity = validity;
+		}
+
+		// Number of values of the column
+		private int length() {
+			return switch (kind) {
+				case DOUBLE -> doubles.length;
+				case LONG, EPOCH_MILLIS -> longs.length;
+				case BOOLEAN -> booleans.length;
+				case STRING -> strings.length;
+			};
+		}
+
+		/**
+		 * @param row Row index
+		 * @return True if the value of the row is present
+		 */
+		boolean isValid(int row) {
+			return validity == null || (validity[row >>> 6] & 1L << row) != 0;
+		}
+	}
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Number of rows */
+	final int rows;
+	/** Columns, from left to right */
+	final Column[] columns;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Use the builder
+	private ColumnBatch(int rows, Column[] columns) {
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * @return Number of rows of the batch
+	 */
+	public int rows() {
+		return rows;
+	}
+
+	/**
+	 * @return Number of columns of the batch
+	 */
+	public int size() {
+		return columns.length;
+	}
+
+	public static ColumnBatchBuilder builder() { return new ColumnBatchBuilder(); }
+
+	/**
+	 * Builds a column batch, adding the columns from left to right
+	 */
+	public static class ColumnBatchBuilder {
+
+		private final List<Column> columns = new ArrayList<>();
+
+		private ColumnBatchBuilder add(Kind kind, Style style, double[] doubles, long[] longs, 
+				boolean[] booleans, String[] strings, long[] validity) {
+			columns.add(new Column(kind, style, doubles, longs, booleans, strings, validity));
+			return this;
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values Number values.  NaN and infinite values are written as <code>#NUM!</code>
+		 */
+		public ColumnBatchBuilder withDoubles(Style style, double[] values) {
+			return withDoubles(style, values, null);
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values Number values.  NaN and infinite values are written as <code>#NUM!</code>
+		 * @param validity Bitmap of the values that are present; may be null
+		 */
+		public ColumnBatchBuilder withDoubles(Style style, double[] values, long[] validity) {
+			return add(Kind.DOUBLE, style, values, null, null, null, validity);
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values Integer number values
+		 */
+		public ColumnBatchBuilder withLongs(Style style, long[] values) {
+			return withLongs(style, values, null);
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values Integer number values
+		 * @param validity Bitmap of the values that are present; may be null
+		 */
+		public ColumnBatchBuilder withLongs(Style style, long[] values, long[] validity) {
+			return add(Kind.LONG, style, null, values, null, null, validity);
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values Boolean values
+		 */
+		public ColumnBatchBuilder withBooleans(Style style, boolean[] values) {
+			return withBooleans(style, values, null);
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values Boolean values
+		 * @param validity Bitmap of the values that are present; may be null
+		 */
+		public ColumnBatchBuilder withBooleans(Style style, boolean[] values, long[] validity) {
+			return add(Kind.BOOLEAN, style, null, null, values, null, validity);
+		}
+
+		/**
+		 * @param style Style of the cells.  If null, the default date format of the
+		 * library is applied
+		 * @param values Instants, as milliseconds since the epoch.  They are written in 
+		 * local time of the time zone of the generator
+		 */
+		public ColumnBatchBuilder withEpochMillis(Style style, long[] values) {
+			return withEpochMillis(style, values, null);
+		}
+
+		/**
+		 * @param style Style of the cells.  If null, the default date format of the
+		 * library is applied
+		 * @param values Instants, as milliseconds since the epoch.  They are written in 
+		 * local time of the time zone of the generator
+		 * @param validity Bitmap of the values that are present; may be null
+		 */
+		public ColumnBatchBuilder withEpochMillis(Style style, long[] values, long[] validity) {
+			return add(Kind.EPOCH_MILLIS, style, null, values, null, null, validity);
+		}
+
+		/**
+		 * @param style Style of the cells; may be null
+		 * @param values String values.  Null values are written as empty cells
+		 */
+		public ColumnBatchBuilder withStrings(Style style, String[] values) {
+			return add(Kind.STRING, style, null, null, null, values, null);
+		}
+
+		/**
+		 * Validates that every column has the same number of values
+		 * @return Column batch
+		 * @throws XMLSpreadsheetException If some column is missing its values, or
+		 * has not as many values or validity bits as the first one
+		 */
+		public ColumnBatch build() throws XMLSpreadsheetException {
+			int rows = 0;
+			for (int i = 0; i < columns.size(); i++) {
+				var column = columns.get(i);
+				if (column.doubles == null && column.longs == null 
+						&& column.booleans == null && column.strings == null) {
+					throw new XMLSpreadsheetException("The values of column " + i + " must be specified");
+				}
+				if (i == 0) {
+					rows = column.length();
+				}
+				else if (column.length() != rows) {
+					throw new XMLSpreadsheetException("Column " + i + " has " + column.length() 
+						+ " values instead of " + rows);
+				}
+				if (column.validity != null && column.validity.length < (rows + 63) >>> 6) {
+					throw new XMLSpreadsheetException("The validity bitmap of column " + i 
+						+ " is too short for " + rows + " values");
+				}
+			}
+			return new ColumnBatch(rows, columns.toArray(new Column[0]));
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package xml.spreadsheet;
+
+/**
+ * Writes the columns section of a sheet, before its first row.
+ */
+public final class ColumnsWriter {
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Serialization core of the document */
+	private final SpreadsheetSerializer serializer;
+	/** Document this writer belongs to */
+	private final WorkbookWriter workbook;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Built once per document by WorkbookWriter
+	ColumnsWriter(SpreadsheetSerializer serializer, WorkbookWriter workbook) {
+		this.serializer = serializer;
+		this.workbook = workbook;
+	}
+
+	/**
+	 * Defines the formatting for one or more adjacent columns.
+	 * @see XMLSpreadsheetGenerator#column(String, Boolean, Boolean, Long, Long, Style, Double)
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the column overlaps the previous ones or the output fails
+	 */
+	public ColumnsWriter column(String caption, Boolean autoFitWidth, 
+				Boolean hidden, Long index, Long span, 
+				Style style, Double width) throws XMLSpreadsheetException {
+		serializer.column(caption, autoFitWidth, hidden, index, span, style, width);
+		return this;
+	}
+
+	/**
+	 * Defines the formatting for the next column.
+	 * @see XMLSpreadsheetGenerator#column(Style, Double)
+	 * @param style (optional) Style of the column
+	 * @param width (optional) Width of the column in points
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public ColumnsWriter column(Style style, Double width) throws XMLSpreadsheetException {
+		return column(null, null, null, null, null, style, width);
+	}
+
+	/**
+	 * Closes the columns section.
+	 * @return Writer for the rows of the sheet
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public SheetWriter closeColumns() throws XMLSpreadsheetException {
+		serializer.closeColumns();
+		return workbook.sheet;
+	}
+}
@@ -0,0 +1,204 @@
+package xml.spreadsheet;
+
+import xml.spreadsheet.Style.StyleBuilder;
+import xml.spreadsheet.utils.AsyncFileOutputStream;
+import xml.spreadsheet.utils.FileChannelOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.LinkedList;
+import java.util.List;
+
+import static xml.spreadsheet.style.NumberFormat.LONG_DATE;
+
+/**
+ * Everything that is defined before a document gets started: its output, 
+ * options and styles.  Shared by <code>XMLSpreadsheetGenerator</code> and 
+ * <code>XMLSpreadsheetWriter</code>, which are in charge of validating that
+ * it is not modified once the document is started.
+ */
+final class DocumentSetup {
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Every document is tied to an OutputStream. */
+	private OutputStream output;
+	/** File the document is written to, opened once it gets started, if any */
+	private final Path file;
+	/** How the file is opened */
+	private final OpenOption[] openOptions;
+	/** Output buffer size */
+	private final int bufferSize;
+	/** Bytes of a parallel sheet kept in memory before spilling into a file */
+	private long spillThreshold = 16 * 1024 * 1024;
+	/** Is the output written from a dedicated thread? */
+	private boolean pipelined = false;
+	/** Is the output compressed into gzip format? */
+	private boolean compressed = false;
+	/** Buffers of the file written at the same time; 0 to write them one by one */
+	private int asyncWrites = 0;
+	/** Kind of emitter to build */
+	private OutputEngine outputEngine = OutputEngine.BYTES;
+	/** Encoding of the document */
+	private OutputEncoding outputEncoding = OutputEncoding.UTF_8;
+	/** Instants are written in local time of this zone */
+	private ZoneId zoneId = ZoneId.systemDefault();
+	/** Style counter. Will be used to generate the Style IDs. */
+	private int styleCounter = 1;
+	/** Styles. Every new Style will be added to this List and flushed into
+	 * the output stream as soon as the document gets started. */
+	private final List<Style> styles = new LinkedList<>();
+	/** Predefined default date format */
+	private final Style dateFormat;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds the setup of a document, with its default styles
+	 * @param output Where the document is going to be written to
+	 * @param bufferSize Output buffer size in bytes
+	 */
+	DocumentSetup(OutputStream output, int bufferSize) {
+		this(output, null, new OpenOption[0], bufferSize);
+	}
+
+	/**
+	 * Builds the setup of a document written to a file, with its default styles
+	 * @param file Where the document is going to be written to
+	 * @param openOptions How the file is opened
+	 * @param bufferSize Output buffer size in bytes
+	 */
+	DocumentSetup(Path file, OpenOption[] openOptions, int bufferSize) {
+		this(null, file, openOptions, bufferSize);
+	}
+
+	// Either the output or the file must be there
+	private DocumentSetup(OutputStream output, Path file, OpenOption[] openOptions, int bufferSize) {
+		this.output = output;
+		this.file = file;
+		this.openOptions = openOptions;
+		this.bufferSize = bufferSize;
+		// LibreOffice and OpenOffice engine expect some 'Default' empty style to
+		//	exist
+		createStyle("Default", "Default", null);
+		// Create the default date format
+		dateFormat = createStyle(null, null).withNumberFormat(LONG_DATE).build();
+	}
+
+	/**
+	 * Creates a style with a generated id
+	 * @param name Style name; may be null
+	 * @param parent Parent style; may be null
+	 * @return Builder for the style, that registers it when built
+	 */
+	StyleBuilder createStyle(String name, Style parent) {
+		return createStyle("ce" + Integer.toString(styleCounter++), name, parent);
+	}
+
+	// Creates a style with the given id
+	private StyleBuilder createStyle(String id, String name, Style parent) {
+		return Style.builder(styles).withId(id).withName(name).withParent(parent);
+	}
+
+	/**
+	 * Builds the serializer for the document, and writes its header
+	 * @return Serializer ready to write the sheets of the document
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	SpreadsheetSerializer startDocument() throws XMLSpreadsheetException {
+		var serializer = new SpreadsheetSerializer(this);
+		serializer.startDocument(styles);
+		return serializer;
+	}
+
+	/**
+	 * @return Output of the document; if it is written to a file, the file is
+	 * created (or overwritten) on the first call
+	 * @throws XMLSpreadsheetException If the file cannot be opened
+	 */
+	OutputStream getOutput() throws XMLSpreadsheetException {
+		if (output == null) {
+			try {
+				output = asyncWrites > 0 
+					? new AsyncFileOutputStream(file, asyncWrites, openOptions) 
+					: new FileChannelOutputStream(file, openOptions);
+			} catch (IOException ioe) {
+				throw new XMLSpreadsheetException(ioe);
+			}
+		}
+		return output;
+	}
+
+	int getBufferSize() {
+		return bufferSize;
+	}
+
+	long getSpillThreshold() {
+		return spillThreshold;
+	}
+
+	void setSpillThreshold(long spillThreshold) {
+		this.spillThreshold = spillThreshold;
+	}
+
+	Style getDateFormat() {
+		return dateFormat;
+	}
+
+	boolean isPipelined() {
+		return pipelined;
+	}
+
+	void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	boolean hasFile() {
+		return file != null;
+	}
+
+	int getAsyncWrites() {
+		return asyncWrites;
+	}
+
+	void setAsyncWrites(int asyncWrites) {
+		this.asyncWrites = asyncWrites;
+	}
+
+	boolean isCompressed() {
+		return compressed;
+	}
+
+	void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+
+	OutputEngine getOutputEngine() {
+		return outputEngine;
+	}
+
+	void setOutputEngine(OutputEngine outputEngine) {
+		this.outputEngine = outputEngine;
+	}
+
+	OutputEncoding getOutputEncoding() {
+		return outputEncoding;
+	}
+
+	void setOutputEncoding(OutputEncoding outputEncoding) {
+		this.outputEncoding = outputEncoding;
+	}
+
+	ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	void setZoneId(ZoneId zoneId) {
+		this.zoneId = zoneId;
+	}
+}
@@ -1,10 +1,14 @@
 package xml.spreadsheet;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * The generator works as a state machine, as documented in the diagram state_machine.jpg							
+ * <br/>
+ * The possible transitions of every state are compiled into a bitmask, indexed
+ * by the ordinal of the next state, so that validating a transition takes a 
+ * single test.  The ordered list of states is only kept for the error messages.
  */
 enum GeneratorState {
 	INITIALIZATION,
@@ -14,10 +18,13 @@ enum GeneratorState {
 	WRITING_SHEET_ROWS,
 	WRITING_ROW,
 	WRITING_CELL,
+	SINKING_ROWS,
 	DONE;
 	
-	// Possible states to go for every state
-	private final List<GeneratorState> states = new LinkedList<>();
+	// Possible states to go for every state, in the order they are reported
+	private final List<GeneratorState> states = new ArrayList<>();
+	// Same states, as a bitmask: bit n is set for the state with ordinal n
+	private int transitions = 0;
 	
 	// State machine
 	static {
@@ -38,8 +45,16 @@ enum GeneratorState {
 		WRITING_SHEET_ROWS.states.add(WRITING_ROW);
 		WRITING_SHEET_ROWS.states.add(CLEAN_DOCUMENT);
 		
-		
 		WRITING_CELL.states.add(WRITING_ROW);
+
+		// Entered as a row is, and left once the sink is closed
+		SINKING_ROWS.states.add(WRITING_SHEET_ROWS);
+
+		for (GeneratorState state: values()) {
+			for (GeneratorState next: state.states) {
+				state.transitions |= 1 << next.ordinal();
+			}
+		}
 	}
 	
 	/**
@@ -52,27 +67,42 @@ enum GeneratorState {
 	 */
 	public static GeneratorState validateTransition(GeneratorState previous, GeneratorState next) 
 			throws XMLSpreadsheetException {
-		boolean valid = previous.states.contains(next);
+		if ((previous.transitions & 1 << next.ordinal()) == 0) {
+			throw invalidTransition(previous, next);
+		}
+		return next;
+	}
+
+	/**
+	 * Validates the writing of a cell.  It is equivalent to the transitions from 
+	 * <code>current</code> to <code>WRITING_CELL</code>, and then back to 
+	 * <code>WRITING_ROW</code>, in a single test: only the first one can fail.
+	 * @param current Current state
+	 * @throws XMLSpreadsheetException If the cell cannot be written in the current state
+	 */
+	public static void validateCell(GeneratorState current) throws XMLSpreadsheetException {
+		if (current != WRITING_ROW) {
+			throw invalidTransition(current, WRITING_CELL);
+		}
+	}
+
+	// Builds the exception for an invalid transition, informing the valid
+	//	states from the current one
+	private static XMLSpreadsheetException invalidTransition(GeneratorState previous, GeneratorState next) {
 		// There is no valid transition from DONE state
-		if (!valid) {
-			// Inform valid states from the current state			
-			StringBuilder sb = new StringBuilder(200);
-			sb.append("Invalid transition: "); 
-			sb.append(previous);
-			sb.append(" -> ");
-			sb.append(next);
+		StringBuilder sb = new StringBuilder(200);
+		sb.append("Invalid transition: "); 
+		sb.append(previous);
+		sb.append(" -> ");
+		sb.append(next);
+		sb.append(System.lineSeparator());
+		sb.append("Valid transitions from ");
+		sb.append(previous);
+		sb.append(": ");
+		for (GeneratorState state: previous.states) {
 			sb.append(System.lineSeparator());
-			sb.append("Valid transitions from ");
-			sb.append(previous);
-			sb.append(": ");
-			for (GeneratorState state: previous.states) {
-				sb.append(System.lineSeparator());
-				sb.append(state);
-			}
-			throw new XMLSpreadsheetException(sb.toString());
-		}
-		else {
-			return next;
+			sb.append(state);
 		}
+		return new XMLSpreadsheetException(sb.toString());
 	}
 }
@@ -0,0 +1,37 @@
+package xml.spreadsheet;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodings the generator can write the document in.  The XML declaration of
+ * the document always matches the encoding chosen.
+ */
+public enum OutputEncoding {
+	/** Any character can be written */
+	UTF_8(StandardCharsets.UTF_8),
+	/** Legacy Windows encoding for western languages.  Characters out of it
+	 * are written as <code>?</code> */
+	CP1252(Charset.forName("windows-1252"));
+
+	/** Java charset */
+	private final Charset charset;
+
+	OutputEncoding(Charset charset) {
+		this.charset = charset;
+	}
+
+	/**
+	 * @return Java charset of the encoding
+	 */
+	public Charset charset() {
+		return charset;
+	}
+
+	/**
+	 * @return Name of the encoding, as declared in the document
+	 */
+	public String declaration() {
+		return charset.name();
+	}
+}
@@ -0,0 +1,15 @@
+package xml.spreadsheet;
+
+/**
+ * Ways the generator can write the document into its output stream
+ */
+public enum OutputEngine {
+	/** Characters are buffered and encoded by an <code>OutputStreamWriter</code> */
+	WRITER,
+	/** Characters are buffered and encoded by an <code>EncodingWriter</code>, that
+	 * takes no locks and is owned by the generator */
+	ENCODER,
+	/** The generator owns a byte buffer: constant markup is copied as precomputed
+	 * bytes, and only text goes through the encoder */
+	BYTES
+}
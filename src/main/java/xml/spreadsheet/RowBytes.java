@@ -0,0 +1,17 @@
+package xml.spreadsheet;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Buffer for rows formatted apart from the document, that gives access to
+ * its bytes without copying them
+ */
+final class RowBytes extends ByteArrayOutputStream {
+
+	/**
+	 * @return Internal buffer; only the first <code>size()</code> bytes are valid
+	 */
+	byte[] bytes() {
+		return buf;
+	}
+}
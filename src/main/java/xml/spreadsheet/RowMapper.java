@@ -0,0 +1,21 @@
+package xml.spreadsheet;
+
+/**
+ * Writes an element of a stream as one or more rows of a sheet
+ * @param <T> Type of the elements
+ * @see XMLSpreadsheetGenerator#exportSheet(String, java.util.stream.Stream, RowMapper)
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+	/**
+	 * Writes the rows of an element.  For instance:<br/><br/>
+	 * <code>
+	 * (order, rows) -&gt; rows.writeRow(order.customer(), order.amount())
+	 * </code>
+	 * @param element Element to write
+	 * @param rows Writer for the rows of the sheet; it must only be used to write rows
+	 * @throws XMLSpreadsheetException If a value has an unsupported type or the output fails
+	 */
+	void writeRows(T element, RowsWriter rows) throws XMLSpreadsheetException;
+}
@@ -0,0 +1,299 @@
+package xml.spreadsheet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Takes the rows of a sheet from several threads at once, and writes them in
+ * order.  Every row comes with its sequence number, starting at 0 with no 
+ * gaps; it is formatted on the thread that submits it, and written into the
+ * document as soon as every row before it has been written.
+ * <br/>
+ * Formatted rows wait in a ring buffer with a slot for each of the next
+ * <code>capacity</code> rows, so memory is bounded: a thread that submits a row
+ * too far ahead waits until the rows before are written.  No locks are taken;
+ * the thread that completes the sequence writes every row that is ready, and
+ * waiting threads are reported to the <code>ForkJoinPool</code> they belong
+ * to, if any, so that it can compensate for them.
+ * <br/>
+ * The sink must be closed once every row is submitted, and before the
+ * document goes on.
+ */
+public final class RowSink implements AutoCloseable {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Slot with no row */
+	private static final long FREE = -1;
+	/** Slot taken by a thread that is copying its row into it */
+	private static final long CLAIMED = -2;
+	/** Time a thread waits before checking again for a free slot */
+	private static final long PARK_NANOS = 20_000;
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Serialization core of the document */
+	private final SpreadsheetSerializer serializer;
+	/** Formatted rows, by slot */
+	private final byte[][] rows;
+	/** Length of the formatted rows, by slot */
+	private final int[] lengths;
+	/** Sequence number of the row in every slot, or FREE or CLAIMED */
+	private final AtomicLongArray sequences;
+	/** Is any thread writing rows into the document? */
+	private final AtomicBoolean writing = new AtomicBoolean(false);
+	/** Row formatter of every thread */
+	private final ThreadLocal<Formatter> formatters;
+	/** Called once the sink is closed */
+	private final Runnable onClose;
+
+	/** Sequence number of the next row to write into the document */
+	private volatile long next = 0;
+	/** Failure of the document output */
+	private volatile XMLSpreadsheetException failure;
+	/** Has the sink been closed? */
+	private volatile boolean closed = false;
+
+	/**
+	 * Serializer of a thread, over a reusable buffer
+	 */
+	private record Formatter(SpreadsheetSerializer serializer, RowBytes bytes) {}
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Built by the generator and the typed writers
+	RowSink(DocumentSetup setup, SpreadsheetSerializer serializer, int capacity, Runnable onClose) 
+			throws XMLSpreadsheetException {
+		assertion(capacity > 0, "The capacity of a row sink must be positive");
+		this.serializer = serializer;
+		this.rows = new byte[capacity][];
+		this.lengths = new int[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, FREE);
+		}
+		this.onClose = onClose;
+		// Rows are always formatted into bytes, in the encoding of the document
+		this.formatters = ThreadLocal.withInitial(() -> {
+			var bytes = new RowBytes();
+			return new Formatter(new SpreadsheetSerializer(setup, bytes, OutputEngine.BYTES), bytes);
+		});
+	}
+
+	/**
+	 * Submits a row with default attributes, with a cell for every value.
+	 * @see XMLSpreadsheetGenerator#writeRow(Object...)
+	 * @param sequence Position of the row among the rows of the sink, from 0 on
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If the sink is closed, if the row has already
+	 * been submitted, if a value has an unsupported type or the output fails
+	 */
+	public void submit(long sequence, Object... values) throws XMLSpreadsheetException {
+		submit(sequence, (Style[]) null, values);
+	}
+
+	/**
+	 * Submits a row with default attributes, with a cell for every value.
+	 * @see XMLSpreadsheetGenerator#writeRow(Style[], Object[])
+	 * @param sequence Position of the row among the rows of the sink, from 0 on
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If the sink is closed, if the row has already
+	 * been submitted, if the styles do not match the values, if a value has an 
+	 * unsupported type or the output fails
+	 */
+	public void submit(long sequence, Style[] styles, Object[] values) throws XMLSpreadsheetException {
+		var formatter = start(sequence);
+		formatter.serializer().row(styles, values);
+		enqueue(sequence, formatter);
+	}
+
+	/**
+	 * Submits a row out of a template.
+	 * @see XMLSpreadsheetGenerator#writeRow(RowTemplate, Object...)
+	 * @param sequence Position of the row among the rows of the sink, from 0 on
+	 * @param template Template of the row
+	 * @param values Value of every column
+	 * @throws XMLSpreadsheetException If the sink is closed, if the row has already
+	 * been submitted, if the values do not match the columns of the template or 
+	 * the output fails
+	 */
+	public void submit(long sequence, RowTemplate template, Object... values) throws XMLSpreadsheetException {
+		var formatter = start(sequence);
+		formatter.serializer().row(template, values);
+		enqueue(sequence, formatter);
+	}
+
+	/**
+	 * @return Sequence number of the next row to be written into the document
+	 */
+	public long next() {
+		return next;
+	}
+
+	// Validates a row before formatting it, and returns the formatter of the thread
+	private Formatter start(long sequence) throws XMLSpreadsheetException {
+		assertion(!closed, "The row sink is closed");
+		checkFailure();
+		assertion(sequence >= next, "The row " + sequence + " has already been written");
+		var formatter = formatters.get();
+		formatter.bytes().reset();
+		return formatter;
+	}
+
+	// Raises the failure of the document output, if any
+	private void checkFailure() throws XMLSpreadsheetException {
+		var e = failure;
+		if (e != null) {
+			throw new XMLSpreadsheetException(e);
+		}
+	}
+
+	// Slot of a row
+	private int slot(long sequence) {
+		return (int) (sequence % rows.length);
+	}
+
+	// Copies a formatted row into its slot, as soon as it is free, and writes 
+	//	every row that is ready
+	private void enqueue(long sequence, Formatter formatter) throws XMLSpreadsheetException {
+		formatter.serializer().flush();
+		awaitSlot(sequence);
+		int slot = slot(sequence);
+		// Once the row before in the slot is written, only this same sequence can take it
+		assertion(sequences.compareAndSet(slot, FREE, CLAIMED), "The row " + sequence + " has already been submitted");
+		// Either the sink sees the claim when closed and waits for the row, or the
+		//	row sees the sink closed and gives the slot back
+		if (closed) {
+			sequences.set(slot, FREE);
+			throw new XMLSpreadsheetException("The row sink is closed");
+		}
+		var bytes = formatter.bytes();
+		int length = bytes.size();
+		if (rows[slot] == null || rows[slot].length < length) {
+			rows[slot] = Arrays.copyOf(bytes.bytes(), Math.max(length, 2 * (rows[slot] == null ? 0 : rows[slot].length)));
+		}
+		else {
+			System.arraycopy(bytes.bytes(), 0, rows[slot], 0, length);
+		}
+		lengths[slot] = length;
+		sequences.set(slot, sequence);
+		drain();
+	}
+
+	// Waits until the slot of a row is free
+	private void awaitSlot(long sequence) throws XMLSpreadsheetException {
+		if (sequence < next + rows.length) {
+			return;
+		}
+		try {
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				@Override
+				public boolean block() {
+					LockSupport.parkNanos(PARK_NANOS);
+					return isReleasable();
+				}
+
+				@Override
+				public boolean isReleasable() {
+					return sequence < next + rows.length || failure != null || closed;
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XMLSpreadsheetException(e);
+		}
+		checkFailure();
+		assertion(!closed, "The row sink is closed");
+	}
+
+	// Writes every row that is ready, unless another thread is already doing it
+	private void drain() throws XMLSpreadsheetException {
+		while (writing.compareAndSet(false, true)) {
+			try {
+				writeReady();
+			} finally {
+				writing.set(false);
+			}
+			// The next row may have come while the rows were being written
+			if (sequences.get(slot(next)) != next) {
+				return;
+			}
+		}
+	}
+
+	// Writes every row that is ready, in order.  Only called by the thread
+	//	that holds the writing flag
+	private void writeReady() throws XMLSpreadsheetException {
+		try {
+			long sequence = next;
+			int slot;
+			while (sequences.get(slot = slot(sequence)) == sequence) {
+				serializer.encoded(rows[slot], lengths[slot]);
+				sequences.set(slot, FREE);
+				next = ++sequence;
+			}
+		} catch (XMLSpreadsheetException e) {
+			failure = e;
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the rows that are ready, and closes the sink.  Every row must have been
+	 * submitted by then, with no gaps.  Further attempts to close it are ignored.
+	 * <br/>
+	 * The document goes on even if the sink fails: every row written by then is
+	 * complete, and the rows that could not be written are left out.
+	 * @throws XMLSpreadsheetException If some row is missing or the output fails
+	 */
+	@Override
+	public void close() throws XMLSpreadsheetException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			// Wait for the rows that are still being copied into their slots
+			for (int i = 0; i < rows.length; i++) {
+				while (sequences.get(i) == CLAIMED) {
+					Thread.onSpinWait();
+				}
+			}
+			// Wait for any thread that is still writing rows, so that the document
+			//	sees everything they wrote
+			while (!writing.compareAndSet(false, true)) {
+				Thread.onSpinWait();
+			}
+			try {
+				checkFailure();
+				writeReady();
+			} finally {
+				writing.set(false);
+			}
+			var pending = new ArrayList<Long>();
+			for (int i = 0; i < rows.length; i++) {
+				if (sequences.get(i) != FREE) {
+					pending.add(sequences.get(i));
+				}
+			}
+			Collections.sort(pending);
+			// Rows are written as soon as every row before them is, so the one
+			//	that holds them back is the next one
+			assertion(pending.isEmpty(), 
+				"The row " + next + " was never submitted, so the rows " + pending + " were not written");
+		} finally {
+			onClose.run();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package xml.spreadsheet;
+
+import xml.spreadsheet.utils.Markup;
+import xml.spreadsheet.utils.XmlEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static xml.spreadsheet.SpreadsheetSerializer.DATA_CELL_END;
+import static xml.spreadsheet.SpreadsheetSerializer.NUMBER_ERROR;
+
+/**
+ * Precompiled markup for rows with a fixed schema, where every column always
+ * has the same type and style.  The start tag of the row, and the markup around
+ * the value of every cell, are rendered once when the template is built; 
+ * writing a row is then a matter of copying those fragments and filling in the
+ * values.
+ * <br/>
+ * Templates are created by <code>XMLSpreadsheetGenerator.createRowTemplate()</code>
+ * and are tied to the styles of that document.
+ */
+public final class RowTemplate {
+
+	/**
+	 * Type of the values of a column
+	 */
+	public enum ColumnType {
+		/** <code>String</code> values */
+		STRING(CellType.String),
+		/** <code>Number</code> values; NaN and infinite values are written as <code>#NUM!</code> */
+		NUMBER(CellType.Number),
+		/** <code>Boolean</code> values */
+		BOOLEAN(CellType.Boolean),
+		/** <code>Date</code>, <code>LocalDate</code>, <code>LocalDateTime</code>, 
+		 * <code>Instant</code> or <code>OffsetDateTime</code> values */
+		DATE_TIME(CellType.DateTime);
+
+		/** Type of the cells of the column */
+		private final CellType cellType;
+
+		ColumnType(CellType cellType) {
+			this.cellType = cellType;
+		}
+	}
+
+	/**
+	 * Precompiled markup of a column
+	 * @param type Type of the cells
+	 * @param cellStart Start of the cell, up to its value
+	 * @param emptyCell Whole cell, for null values
+	 * @param numberError Whole cell, for numbers that cannot be represented; only
+	 * for number columns
+	 */
+	record Column(CellType type, Markup cellStart, Markup emptyCell, Markup numberError) {
+
+		/**
+		 * Renders the markup of a column
+		 * @param type Type of the cells
+		 * @param style Style of the cells; may be null
+		 * @return Precompiled markup of the column
+		 */
+		static Column of(CellType type, Style style) {
+			return new Column(
+				type,
+				Markup.ofXml(XmlEmitter.render(emitter -> 
+					SpreadsheetSerializer.startCell(emitter, style, type))),
+				Markup.ofXml(XmlEmitter.render(emitter -> 
+					SpreadsheetSerializer.emptyCell(emitter, style, type))),
+				type != CellType.Number ? null : Markup.ofXml(XmlEmitter.render(emitter -> {
+					SpreadsheetSerializer.startCell(emitter, style, CellType.Error);
+					emitter.cdata(NUMBER_ERROR).markup(DATA_CELL_END);
+				})));
+		}
+	}
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Start tag of the row */
+	final Markup rowStart;
+	/** Columns of the row */
+	final Column[] columns;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Use the builder
+	private RowTemplate(Markup rowStart, Column[] columns) {
+		this.rowStart = rowStart;
+		this.columns = columns;
+	}
+
+	/**
+	 * @return Number of columns of the template
+	 */
+	public int size() {
+		return columns.length;
+	}
+
+	/**
+	 * Builds a row template.  Every attribute of the row is optional, as in
+	 * <code>XMLSpreadsheetGenerator.startRow</code>.
+	 */
+	public static class RowTemplateBuilder {
+
+		/** Default style for dates */
+		private final Style dateFormat;
+		private String caption;
+		private Boolean autoFitHeight;
+		private Double height;
+		private Boolean hidden;
+		private Style style;
+		private final List<ColumnType> types = new ArrayList<>();
+		private final List<Style> styles = new ArrayList<>();
+
+		// Built by the generator
+		RowTemplateBuilder(Style dateFormat) {
+			this.dateFormat = dateFormat;
+		}
+
+		/**
+		 * @param caption Specifies the caption that should appear when the component's custom row and column headers are showing
+		 */
+		public RowTemplateBuilder withCaption(String caption) {
+			this.caption = caption;
+			return this;
+		}
+
+		/**
+		 * @param autoFitHeight If this attribute is True, it means that the row should be autosized
+		 */
+		public RowTemplateBuilder withAutoFitHeight(Boolean autoFitHeight) {
+			this.autoFitHeight = autoFitHeight;
+			return this;
+		}
+
+		/**
+		 * @param height Specifies the height of the row in points. This value must be greater than or equal to 0
+		 */
+		public RowTemplateBuilder withHeight(Double height) {
+			this.height = height;
+			return this;
+		}
+
+		/**
+		 * @param hidden True specifies that the row is hidden
+		 */
+		public RowTemplateBuilder withHidden(Boolean hidden) {
+			this.hidden = hidden;
+			return this;
+		}
+
+		/**
+		 * @param style Style object to be applied to the row
+		 */
+		public RowTemplateBuilder withStyle(Style style) {
+			this.style = style;
+			return this;
+		}
+
+		/**
+		 * Adds a column after the previous ones
+		 * @param type Type of the values of the column
+		 * @param style Style of the cells.  If null, dates take the default date
+		 * format of the library, and the rest of cells take no style
+		 */
+		public RowTemplateBuilder withColumn(ColumnType type, Style style) {
+			types.add(type);
+			styles.add(style);
+			return this;
+		}
+
+		/**
+		 * Renders the markup of the template
+		 * @return Row template
+		 * @throws XMLSpreadsheetException If a column has no type
+		 */
+		public RowTemplate build() throws XMLSpreadsheetException {
+			var rowStart = Markup.ofXml(XmlEmitter.render(emitter -> 
+				SpreadsheetSerializer.rowStart(emitter, caption, autoFitHeight, height, hidden, style)));
+			var columns = new Column[types.size()];
+			for (int i = 0; i < columns.length; i++) {
+				if (types.get(i) == null) {
+					throw new XMLSpreadsheetException("The type of column " + i + " must be specified");
+				}
+				var type = types.get(i).cellType;
+				var cellStyle = styles.get(i) == null && type == CellType.DateTime ? dateFormat : styles.get(i);
+				columns[i] = Column.of(type, cellStyle);
+			}
+			return new RowTemplate(rowStart, columns);
+		}
+	}
+}
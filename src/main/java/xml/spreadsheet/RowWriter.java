@@ -0,0 +1,331 @@
+package xml.spreadsheet;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+
+/**
+ * Writes the cells of a row.  Cells are written straight into the output, with
+ * no state validation at all.
+ */
+public final class RowWriter {
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Serialization core of the document */
+	private final SpreadsheetSerializer serializer;
+	/** Document this writer belongs to */
+	private final WorkbookWriter workbook;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Built once per document by WorkbookWriter
+	RowWriter(SpreadsheetSerializer serializer, WorkbookWriter workbook) {
+		this.serializer = serializer;
+		this.workbook = workbook;
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, String)
+	 * @param style Style object to apply to the cell
+	 * @param value String value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, String value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value String value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(String value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, Double)
+	 * @param style Style object to apply to the cell
+	 * @param value Double value to write; null values are written as empty cells
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, Double value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Double value to write; null values are written as empty cells
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Double value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, double)
+	 * @param style Style object to apply to the cell
+	 * @param value Double value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, double value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Double value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(double value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, long)
+	 * @param style Style object to apply to the cell
+	 * @param value Long value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, long value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Long value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(long value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, int)
+	 * @param style Style object to apply to the cell
+	 * @param value Integer value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, int value) throws XMLSpreadsheetException {
+		serializer.cell(style, (long) value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Integer value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(int value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, boolean)
+	 * @param style Style object to apply to the cell
+	 * @param value Boolean value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, boolean value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Boolean value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(boolean value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, Date)
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, Date value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Date value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Date value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, LocalDate)
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, LocalDate value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Date value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(LocalDate value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, LocalDateTime)
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date and time value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, LocalDateTime value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Date and time value to write
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(LocalDateTime value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, Instant)
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Instant to write, in local time of the zone of the document
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, Instant value) throws XMLSpreadsheetException {
+		serializer.cell(style, value);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Instant to write, in local time of the zone of the document
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Instant value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes a cell.
+	 * @see XMLSpreadsheetGenerator#writeCell(Style, OffsetDateTime)
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date and time value to write, in its own local time
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(Style style, OffsetDateTime value) throws XMLSpreadsheetException {
+		serializer.cell(style, value != null ? value.toLocalDateTime() : null);
+		return this;
+	}
+
+	/**
+	 * Writes a cell with no style.
+	 * @param value Date and time value to write, in its own local time
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeCell(OffsetDateTime value) throws XMLSpreadsheetException {
+		return writeCell(null, value);
+	}
+
+	/**
+	 * Writes an error cell.
+	 * @param style Style object to apply to the cell
+	 * @param error Error value, such as <code>#N/A</code>
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeErrorCell(Style style, String error) throws XMLSpreadsheetException {
+		serializer.errorCell(style, error);
+		return this;
+	}
+
+	/**
+	 * Writes an empty cell.
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeEmptyCell() throws XMLSpreadsheetException {
+		return writeEmptyCell(null);
+	}
+
+	/**
+	 * Writes an empty cell.
+	 * @param style Style object to apply to the cell
+	 * @return This writer
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter writeEmptyCell(Style style) throws XMLSpreadsheetException {
+		serializer.emptyCell(style, CellType.String);
+		return this;
+	}
+
+	/**
+	 * Streams the ending of the row.
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter closeRow() throws XMLSpreadsheetException {
+		serializer.closeRow();
+		return workbook.rows;
+	}
+}
@@ -0,0 +1,208 @@
+package xml.spreadsheet;
+
+/**
+ * Writes the rows of a sheet.  Returned once a row is closed, when no further
+ * columns can be defined.
+ */
+public class RowsWriter {
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Serialization core of the document */
+	final SpreadsheetSerializer serializer;
+	/** Document this writer belongs to */
+	final WorkbookWriter workbook;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Built once per document by WorkbookWriter
+	RowsWriter(SpreadsheetSerializer serializer, WorkbookWriter workbook) {
+		this.serializer = serializer;
+		this.workbook = workbook;
+	}
+
+	/**
+	 * Begins a row.
+	 * @return Writer for the cells of the row
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter startRow() throws XMLSpreadsheetException {
+		return startRow(null, null, null, null, null);
+	}
+
+	/**
+	 * Begins a row.
+	 * @see XMLSpreadsheetGenerator#startRow(String, Boolean, Double, Boolean, Style)
+	 * @return Writer for the cells of the row
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowWriter startRow(
+			String caption, 
+			Boolean autoFitHeight, 
+			Double height, 
+			Boolean hidden, 
+			Style style) throws XMLSpreadsheetException {
+		serializer.startRow(caption, autoFitHeight, height, hidden, style);
+		return workbook.row;
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a cell for every value.
+	 * @see XMLSpreadsheetGenerator#writeRow(Object...)
+	 * @param values Value of every cell
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If a value has an unsupported type or the output fails
+	 */
+	public RowsWriter writeRow(Object... values) throws XMLSpreadsheetException {
+		return writeRow((Style[]) null, values);
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a cell for every value.
+	 * @see XMLSpreadsheetGenerator#writeRow(Style[], Object[])
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the styles do not match the values, if a value
+	 * has an unsupported type or the output fails
+	 */
+	public RowsWriter writeRow(Style[] styles, Object[] values) throws XMLSpreadsheetException {
+		serializer.row(styles, values);
+		return workbook.rows;
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * @param values Value of every cell
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter writeRow(double[] values) throws XMLSpreadsheetException {
+		return writeRow(null, values);
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the styles do not match the values or the output fails
+	 */
+	public RowsWriter writeRow(Style[] styles, double[] values) throws XMLSpreadsheetException {
+		serializer.row(styles, values);
+		return workbook.rows;
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * @param values Value of every cell
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter writeRow(long[] values) throws XMLSpreadsheetException {
+		return writeRow(null, values);
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the styles do not match the values or the output fails
+	 */
+	public RowsWriter writeRow(Style[] styles, long[] values) throws XMLSpreadsheetException {
+		serializer.row(styles, values);
+		return workbook.rows;
+	}
+
+	/**
+	 * Writes a whole row out of a template, with a cell for every column.
+	 * @see XMLSpreadsheetGenerator#writeRow(RowTemplate, Object...)
+	 * @param template Template of the row
+	 * @param values Value of every column
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the values do not match the columns of the
+	 * template or the output fails
+	 */
+	public RowsWriter writeRow(RowTemplate template, Object... values) throws XMLSpreadsheetException {
+		serializer.row(template, values);
+		return workbook.rows;
+	}
+
+	/**
+	 * Writes a row with default attributes for every row of a column batch.
+	 * @see XMLSpreadsheetGenerator#writeColumns(ColumnBatch)
+	 * @param batch Column vectors
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter writeColumns(ColumnBatch batch) throws XMLSpreadsheetException {
+		serializer.columns(batch);
+		return workbook.rows;
+	}
+
+	/**
+	 * Opens a sink that takes the rows of the sheet from several threads at once,
+	 * and writes them in the order of their sequence numbers.  This writer must
+	 * not be used until the sink is closed.
+	 * @see XMLSpreadsheetGenerator#openRowSink(int)
+	 * @param capacity Number of formatted rows that can wait to be written
+	 * @return Sink for the rows of the sheet
+	 * @throws XMLSpreadsheetException If the capacity is not positive
+	 */
+	public RowSink openRowSink(int capacity) throws XMLSpreadsheetException {
+		return new RowSink(workbook.setup, serializer, capacity, () -> {});
+	}
+
+	/**
+	 * Hands the part of the document held by the writer down to the output, and
+	 * flushes it.
+	 * @see XMLSpreadsheetGenerator#flush()
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter flush() throws XMLSpreadsheetException {
+		serializer.flush();
+		return workbook.rows;
+	}
+
+	/**
+	 * Writes an empty row.
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter emptyRow() throws XMLSpreadsheetException {
+		serializer.startRow(null, null, null, null, null);
+		serializer.closeRow();
+		return workbook.rows;
+	}
+
+	/**
+	 * Writes rows with a single empty cell and the desired formatting.
+	 * @see XMLSpreadsheetGenerator#writeEmptyRows(Long, Boolean, Double, Style)
+	 * @return Writer for the following rows
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public RowsWriter writeEmptyRows(
+			long emptyRows, 
+			Boolean autoFitHeight, 
+			Double height, 
+			Style style) throws XMLSpreadsheetException {
+		serializer.emptyRows(emptyRows, autoFitHeight, height, style);
+		return workbook.rows;
+	}
+
+	/**
+	 * Streams the ending of the sheet.  Parallel sheets are completed by this,
+	 * and ready to be spliced into the document.
+	 * @return Writer for the following sheets.  It is not thread safe: the threads
+	 * that write parallel sheets must not use it
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	public WorkbookWriter closeSheet() throws XMLSpreadsheetException {
+		serializer.closeSheet();
+		return workbook.sheetClosed();
+	}
+}
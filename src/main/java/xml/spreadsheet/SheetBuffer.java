@@ -0,0 +1,175 @@
+package xml.spreadsheet;
+
+import xml.spreadsheet.utils.FileChannelOutputStream;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Output of a sheet that is written apart from the document, to be spliced
+ * into it later.  Bytes are kept in memory up to a threshold, and spilled
+ * into a temporary file from then on; the file is deleted once the buffer is
+ * spliced or discarded.
+ * <br/>
+ * A buffer is filled by a single thread, and completed when closed.  Its 
+ * completion is published, so that the thread that splices it sees every byte
+ * written before.  The document may discard a buffer that is still being 
+ * filled, from its own thread: writes and discards take a lock, so that a 
+ * write either completes before the discard or fails after it.
+ */
+final class SheetBuffer extends OutputStream {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Initial size of the memory buffer */
+	private static final int INITIAL_SIZE = 8 * 1024;
+	/** Largest memory buffer an array can hold */
+	private static final int MAX_MEMORY = Integer.MAX_VALUE - 8;
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Bytes kept in memory before spilling into a file */
+	private final long threshold;
+	/** Memory buffer, until it is spilled */
+	private byte[] memory;
+	/** Bytes written into the memory buffer */
+	private int count = 0;
+	/** Spill file, if any */
+	private FileChannel file;
+	/** Has the buffer been completed? */
+	private volatile boolean complete = false;
+	/** Has the buffer been discarded? */
+	private boolean discarded = false;
+	/** Taken by writes and discards */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds an empty buffer
+	 * @param threshold Bytes kept in memory before spilling into a file
+	 */
+	SheetBuffer(long threshold) {
+		this.threshold = Math.min(threshold, MAX_MEMORY);
+		this.memory = new byte[(int) Math.min(INITIAL_SIZE, this.threshold)];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		lock.lock();
+		try {
+			writeLocked(b, off, len);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Writes into the memory buffer or the spill file, while holding the lock
+	private void writeLocked(byte[] b, int off, int len) throws IOException {
+		if (discarded) {
+			throw new IOException("The sheet has been discarded, since its document was closed before it");
+		}
+		if (file == null && count + (long) len > threshold) {
+			spill();
+		}
+		if (file != null) {
+			var buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining()) {
+				file.write(buffer);
+			}
+		}
+		else {
+			if (count + len > memory.length) {
+				memory = Arrays.copyOf(memory, (int) Math.min(Math.max(2L * memory.length, count + len), threshold));
+			}
+			System.arraycopy(b, off, memory, count, len);
+			count += len;
+		}
+	}
+
+	// Moves the memory buffer into a temporary file
+	private void spill() throws IOException {
+		var path = Files.createTempFile("xmlspreadsheet-", ".sheet");
+		file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, 
+			StandardOpenOption.DELETE_ON_CLOSE);
+		var buffer = ByteBuffer.wrap(memory, 0, count);
+		while (buffer.hasRemaining()) {
+			file.write(buffer);
+		}
+		memory = null;
+	}
+
+	/**
+	 * Completes the buffer.  Nothing else can be written into it afterwards
+	 */
+	@Override
+	public void close() {
+		complete = true;
+	}
+
+	/**
+	 * @return Has the buffer been completed?
+	 */
+	boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Copies the whole buffer into an output, and discards it.  Spill files are
+	 * transferred by the file system when the output is a file itself.
+	 * @param output Where to copy the buffer
+	 * @throws IOException If the output or the spill file fail
+	 */
+	void writeTo(OutputStream output) throws IOException {
+		try {
+			if (file == null) {
+				output.write(memory, 0, count);
+			}
+			else {
+				var target = output instanceof FileOutputStream stream ? stream.getChannel() 
+					: output instanceof FileChannelOutputStream stream ? stream.getChannel() 
+					: Channels.newChannel(output);
+				long size = file.size();
+				for (long position = 0; position < size; ) {
+					position += file.transferTo(position, size - position, target);
+				}
+			}
+		} finally {
+			discard();
+		}
+	}
+
+	/**
+	 * Releases the memory buffer and deletes the spill file, if any.  Any later
+	 * write fails
+	 * @throws IOException If the spill file cannot be closed
+	 */
+	void discard() throws IOException {
+		lock.lock();
+		try {
+			discarded = true;
+			memory = null;
+			if (file != null) {
+				file.close();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package xml.spreadsheet;
+
+/**
+ * Writes a sheet that has just been started: its columns section, if any, 
+ * must come before its first row.
+ */
+public final class SheetWriter extends RowsWriter {
+
+	// Built once per document by WorkbookWriter
+	SheetWriter(SpreadsheetSerializer serializer, WorkbookWriter workbook) {
+		super(serializer, workbook);
+	}
+
+	/**
+	 * Starts the columns section of the sheet.
+	 * @return Writer for the columns
+	 */
+	public ColumnsWriter startColumns() {
+		return workbook.columns;
+	}
+}
@@ -0,0 +1,830 @@
+package xml.spreadsheet;
+
+import xml.spreadsheet.utils.ByteXmlEmitter;
+import xml.spreadsheet.utils.DateFormatHelper;
+import xml.spreadsheet.utils.EncodingWriter;
+import xml.spreadsheet.utils.Markup;
+import xml.spreadsheet.utils.NumberFormatHelper;
+import xml.spreadsheet.utils.ParallelGzipOutputStream;
+import xml.spreadsheet.utils.PipelinedOutputStream;
+import xml.spreadsheet.utils.WriterXmlEmitter;
+import xml.spreadsheet.utils.XmlEmitter;
+import xml.spreadsheet.utils.ZoneOffsetCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Serialization core shared by <code>XMLSpreadsheetGenerator</code> and the
+ * typed writers returned by <code>XMLSpreadsheetWriter</code>.  It knows how to
+ * write every part of the document, but it does not validate the order in which
+ * they are written: that is up to the caller.
+ */
+final class SpreadsheetSerializer {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Error value written into cells for numbers that cannot be represented */
+	static final String NUMBER_ERROR = "#NUM!";
+
+	// Markup written for every row and cell
+	private static final Markup ROW_START = Markup.of("<ss:Row");
+	private static final Markup PLAIN_ROW_START = Markup.of("<ss:Row>");
+	private static final Markup ROW_END = Markup.of("</ss:Row>");
+	private static final Markup CELL_START = Markup.of("<ss:Cell");
+	private static final Markup CELL_END = Markup.of("</ss:Cell>");
+	static final Markup DATA_CELL_END = Markup.of("</ss:Data></ss:Cell>");
+	private static final Markup EMPTY_ROW_CELL = Markup.of("<ss:Cell ss:Index=\"1\"/>");
+
+	/** Column batches are formatted by chunks of this many rows */
+	private static final int CHUNK_ROWS = 256;
+	/** Room for a formatted value of a column batch */
+	private static final int SLOT = Math.max(NumberFormatHelper.MAX_DOUBLE_LENGTH, DateFormatHelper.MAX_DATE_TIME_LENGTH);
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Output of the document, or of a sheet written apart from it */
+	private final OutputStream output;
+	/** The markup is written straight into the buffer of this emitter */
+	private final XmlEmitter emitter;
+	/** Encoding of the document */
+	private final OutputEncoding outputEncoding;
+	/** Style applied to dates with no explicit style */
+	private final Style dateFormat;
+	/** Instants are written in local time of this zone */
+	private final ZoneOffsetCache zoneOffsets;
+	/** Dates are formatted here before being written */
+	private final byte[] dateBuffer = new byte[DateFormatHelper.MAX_DATE_TIME_LENGTH];
+
+	/** Is empty the current row?  This will be set to true every time
+	 * a new row is started, and false if a cell is written into it. */
+	private boolean emptyCurrentRow = true;
+	/** Column count for the current sheet */
+	private long columnCount = 0;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a serializer over the output of a document setup
+	 * @param setup Output, options and default styles of the document
+	 * @throws XMLSpreadsheetException If the output cannot be opened
+	 */
+	SpreadsheetSerializer(DocumentSetup setup) throws XMLSpreadsheetException {
+		this(setup, output(setup));
+	}
+
+	// Output of a document: compressed and pipelined, if the setup says so
+	private static OutputStream output(DocumentSetup setup) throws XMLSpreadsheetException {
+		var output = setup.getOutput();
+		if (setup.isCompressed()) {
+			output = new ParallelGzipOutputStream(output);
+		}
+		if (setup.isPipelined()) {
+			// Blocks are compressed and written from the writer thread
+			output = new PipelinedOutputStream(output, setup.getBufferSize());
+		}
+		return output;
+	}
+
+	/**
+	 * Builds a serializer with the options of a document setup, over another output
+	 * @param setup Options and default styles of the document
+	 * @param output Where the serializer is going to write its output to
+	 */
+	SpreadsheetSerializer(DocumentSetup setup, OutputStream output) {
+		this(setup, output, setup.getOutputEngine());
+	}
+
+	/**
+	 * Builds a serializer with the options of a document setup, over another output
+	 * and with another engine
+	 * @param setup Options and default styles of the document
+	 * @param output Where the serializer is going to write its output to
+	 * @param outputEngine Kind of emitter to build
+	 */
+	SpreadsheetSerializer(DocumentSetup setup, OutputStream output, OutputEngine outputEngine) {
+		this.output = output;
+		this.outputEncoding = setup.getOutputEncoding();
+		this.dateFormat = setup.getDateFormat();
+		this.zoneOffsets = new ZoneOffsetCache(setup.getZoneId());
+		this.emitter = switch (outputEngine) {
+			case WRITER -> new WriterXmlEmitter(
+				new OutputStreamWriter(output, outputEncoding.charset()), setup.getBufferSize());
+			case ENCODER -> new WriterXmlEmitter(
+				new EncodingWriter(output, outputEncoding.charset()), setup.getBufferSize());
+			case BYTES -> new ByteXmlEmitter(output, setup.getBufferSize(), outputEncoding.charset());
+		};
+	}
+
+	// Fixed header for every workbook
+	private void workbookHeader() throws XMLSpreadsheetException {
+		emitter.raw("<?xml version=\"1.0\" encoding=\"").raw(outputEncoding.declaration()).raw("\"?>");
+		emitter.raw("<?mso-application progid=\"Excel.Sheet\"?>");
+		emitter.startElement("Workbook")
+			.attribute("xmlns", "urn:schemas-microsoft-com:office:spreadsheet")
+			.attribute("xmlns:c", "urn:schemas-microsoft-com:office:component:spreadsheet")
+			.attribute("xmlns:html", "http://www.w3.org/TR/REC-html40")
+			.attribute("xmlns:o", "urn:schemas-microsoft-com:office:office")
+			.attribute("xmlns:ss", "urn:schemas-microsoft-com:office:spreadsheet")
+			.attribute("xmlns:x2", "http://schemas.microsoft.com/office/excel/2003/xml")
+			.attribute("xmlns:x", "urn:schemas-microsoft-com:office:excel")
+			.attribute("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance")
+			.closeStartTag();
+		emitter.startElement("OfficeDocumentSettings")
+			.attribute("xmlns", "urn:schemas-microsoft-com:office:office")
+			.closeStartTag();
+		emitter.raw("<Colors>");
+		emitter.raw("<Color>").textElement("Index", "3").textElement("RGB", "#c0c0c0").raw("</Color>");
+		emitter.raw("<Color>").textElement("Index", "4").textElement("RGB", "#ff0000").raw("</Color>");
+		emitter.raw("</Colors>");
+		emitter.raw("</OfficeDocumentSettings>");
+	}
+
+	/**
+	 * Writes the header of the document and its styles
+	 * @param styles Every style of the document
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void startDocument(List<Style> styles) throws XMLSpreadsheetException {
+		workbookHeader();
+		if (styles != null) {
+			emitter.raw("<ss:Styles>");
+			for (Style style: styles) {
+				style.writeTo(emitter);
+			}
+			emitter.raw("</ss:Styles>");
+		}
+	}
+
+	/**
+	 * Writes the end of the document, flushes it and closes the output
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void closeDocument() throws XMLSpreadsheetException {
+		emitter.raw("</Workbook>");
+		emitter.close();
+	}
+
+	/**
+	 * Closes the output of a document that cannot be completed, with no end of
+	 * document.  Whatever is still buffered by the emitter is lost
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void abort() throws XMLSpreadsheetException {
+		try {
+			output.close();
+		} catch (IOException ioe) {
+			throw new XMLSpreadsheetException(ioe);
+		}
+	}
+
+	/**
+	 * Flushes and closes the output of a serializer that writes sheets apart from
+	 * the document, with no end of document
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void closePart() throws XMLSpreadsheetException {
+		emitter.close();
+	}
+
+	/**
+	 * Copies the sheets written apart into a buffer at the current position of
+	 * the document, and discards the buffer
+	 * @param part Completed buffer, written with the same options as the document
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void splice(SheetBuffer part) throws XMLSpreadsheetException {
+		emitter.flush();
+		try {
+			part.writeTo(output);
+		} catch (IOException ioe) {
+			throw new XMLSpreadsheetException(ioe);
+		}
+	}
+
+	/**
+	 * Hands every pending byte down to the output, and flushes it
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void flush() throws XMLSpreadsheetException {
+		emitter.flush();
+	}
+
+	/**
+	 * Writes markup formatted by another serializer with the same options
+	 * @param bytes Buffer holding the markup, in the encoding of the document
+	 * @param length Number of bytes to write
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void encoded(byte[] bytes, int length) throws XMLSpreadsheetException {
+		emitter.encoded(bytes, 0, length, outputEncoding.charset());
+	}
+
+	/**
+	 * Writes the beginning of a sheet
+	 * @param sheetName Sheet tab caption
+	 * @param protectedSheet If true, the sheet is protected
+	 * @throws XMLSpreadsheetException If the name is missing or the output fails
+	 */
+	void startSheet(String sheetName, boolean protectedSheet) throws XMLSpreadsheetException {
+		// Validate that the sheet name is not null
+		assertion(sheetName != null, "The sheet name must be specified");
+		emitter.startElement("ss:Worksheet")
+			.attribute("ss:Name", sheetName)
+			.attribute("ss:Protected", protectedSheet)
+			.closeStartTag();
+		emitter.raw("<Table>");
+		columnCount = 0;
+	}
+
+	/**
+	 * Writes the end of a sheet
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void closeSheet() throws XMLSpreadsheetException {
+		emitter.raw("</Table>");
+		emitter.raw("<x:WorksheetOptions/>");
+		emitter.raw("</ss:Worksheet>");
+	}
+
+	/**
+	 * Writes the end of a columns section
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void closeColumns() throws XMLSpreadsheetException {
+		// Empty column
+		emitter.raw("<ss:Column/>");
+	}
+
+	/**
+	 * Writes a column definition
+	 * @see XMLSpreadsheetGenerator#column(String, Boolean, Boolean, Long, Long, Style, Double)
+	 * @throws XMLSpreadsheetException If the column overlaps the previous ones or the output fails
+	 */
+	void column(String caption, Boolean autoFitWidth, 
+				Boolean hidden, Long index, Long span, 
+				Style style, Double width) throws XMLSpreadsheetException {
+		// Do some validations on indexes
+		if (index != null) {
+			assertion(index > columnCount, "Column overlap!");
+			// Should we cover a gap?
+			if ((index - columnCount) > 1) {
+				long gap = (index - columnCount) - 1;
+				emitter.startElement("ss:Column")
+					.attribute("ss:Span", gap > 1 ? gap - 1 : null)
+					.closeEmptyElement();
+			}
+			// Jump to the index
+			columnCount = index;
+		}
+		else {
+			columnCount++;
+		}
+		// add the span to the column count
+		if (span != null) {
+			columnCount += (span - 1);
+		}
+		emitter.startElement("ss:Column")
+			.attribute("c:Caption", caption)
+			.attribute("ss:AutoFitWidth", autoFitWidth)
+			.attribute("ss:Hidden", hidden)
+			.attribute("ss:Index", index)
+			.attribute("ss:Span", span != null && span > 1 ? span-1 : null)
+			.attribute("ss:StyleID", style == null ? null : style.id())
+			.attribute("ss:Width", width)
+			.closeEmptyElement();
+	}
+
+	/**
+	 * Writes the beginning of a row
+	 * @see XMLSpreadsheetGenerator#startRow(String, Boolean, Double, Boolean, Style)
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void startRow(String caption, Boolean autoFitHeight, Double height, Boolean hidden, Style style) 
+			throws XMLSpreadsheetException {
+		emptyCurrentRow = true;
+		// Create current row (don't close!)
+		rowStart(emitter, caption, autoFitHeight, height, hidden, style);
+	}
+
+	/**
+	 * Writes the start tag of a row
+	 * @see XMLSpreadsheetGenerator#startRow(String, Boolean, Double, Boolean, Style)
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	static void rowStart(XmlEmitter emitter, String caption, Boolean autoFitHeight, 
+			Double height, Boolean hidden, Style style) throws XMLSpreadsheetException {
+		emitter.markup(ROW_START)
+			.attribute("ss:Caption", caption)
+			.attribute("ss:Height", height)
+			.attribute("ss:AutoFitHeight", autoFitHeight)
+			.attribute("ss:Hidden", hidden)
+			.attribute("ss:StyleID", style != null ? style.id() : null)
+			.closeStartTag();
+	}
+
+	/**
+	 * Writes the end of a row.  Rows with no cells get an empty one, since
+	 * some spreadsheet products do not render them otherwise
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void closeRow() throws XMLSpreadsheetException {
+		if (emptyCurrentRow) {
+			emitter.markup(EMPTY_ROW_CELL);
+		}
+		emitter.markup(ROW_END);
+	}
+
+	/**
+	 * Writes rows with a single empty cell
+	 * @see XMLSpreadsheetGenerator#writeEmptyRows(Long, Boolean, Double, Style)
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void emptyRows(long emptyRows, Boolean autoFitHeight, Double height, Style style) 
+			throws XMLSpreadsheetException {
+		for (int i = 0; i < emptyRows; i++) {
+			startRow(null, autoFitHeight, height, false, style);
+			emptyCell(null, CellType.String);
+			closeRow();
+		}
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a cell for every value.
+	 * Every cell gets the type of its value.
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell.  Null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the styles do not match the values, if a value
+	 * has an unsupported type or the output fails
+	 */
+	void row(Style[] styles, Object[] values) throws XMLSpreadsheetException {
+		assertion(values != null, "The row values must be specified");
+		validateRow(styles, values.length);
+		// Nothing is written unless every value can be, so that the row is never left open
+		for (var value: values) {
+			assertion(isSupported(value), 
+				"Unsupported cell value type: " + (value != null ? value.getClass().getName() : null));
+		}
+		startRow(null, null, null, null, null);
+		for (int i = 0; i < values.length; i++) {
+			anyCell(styles != null ? styles[i] : null, values[i]);
+		}
+		closeRow();
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If the styles do not match the values or the output fails
+	 */
+	void row(Style[] styles, double[] values) throws XMLSpreadsheetException {
+		assertion(values != null, "The row values must be specified");
+		validateRow(styles, values.length);
+		startRow(null, null, null, null, null);
+		for (int i = 0; i < values.length; i++) {
+			cell(styles != null ? styles[i] : null, values[i]);
+		}
+		closeRow();
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value
+	 * @param styles Style of every cell, in the same order as the values; may be null
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If the styles do not match the values or the output fails
+	 */
+	void row(Style[] styles, long[] values) throws XMLSpreadsheetException {
+		assertion(values != null, "The row values must be specified");
+		validateRow(styles, values.length);
+		startRow(null, null, null, null, null);
+		for (int i = 0; i < values.length; i++) {
+			cell(styles != null ? styles[i] : null, values[i]);
+		}
+		closeRow();
+	}
+
+	/**
+	 * Writes a whole row out of a template, with a cell for every column.
+	 * Null values are written as empty cells
+	 * @param template Precompiled markup of the row
+	 * @param values Value of every column, of the type of the column
+	 * @throws XMLSpreadsheetException If the values do not match the columns of the
+	 * template or the output fails
+	 */
+	void row(RowTemplate template, Object[] values) throws XMLSpreadsheetException {
+		var columns = template.columns;
+		assertion(values != null && values.length == columns.length, 
+			"There must be as many values as columns in the template");
+		// Nothing is written unless every value can be, so that the row is never left open
+		for (int i = 0; i < columns.length; i++) {
+			if (values[i] != null && !matches(columns[i].type(), values[i])) {
+				throw columnMismatch(i, columns[i], values[i]);
+			}
+		}
+		emitter.markup(template.rowStart);
+		for (int i = 0; i < columns.length; i++) {
+			var column = columns[i];
+			switch (values[i]) {
+				case null -> emitter.markup(column.emptyCell());
+				case String s -> emitter.markup(column.cellStart()).cdata(s).markup(DATA_CELL_END);
+				case Long l -> emitter.markup(column.cellStart()).number(l.longValue()).markup(DATA_CELL_END);
+				case Integer n -> emitter.markup(column.cellStart()).number(n.longValue()).markup(DATA_CELL_END);
+				case Short n -> emitter.markup(column.cellStart()).number(n.longValue()).markup(DATA_CELL_END);
+				case Byte n -> emitter.markup(column.cellStart()).number(n.longValue()).markup(DATA_CELL_END);
+				case Number n when Double.isFinite(n.doubleValue()) -> 
+					emitter.markup(column.cellStart()).number(n.doubleValue()).markup(DATA_CELL_END);
+				case Number n -> emitter.markup(column.numberError());
+				case Boolean b -> emitter.markup(column.cellStart()).number(b ? 1 : 0).markup(DATA_CELL_END);
+				default -> emitter.markup(column.cellStart())
+					.ascii(dateBuffer, 0, formatDateTime(values[i])).markup(DATA_CELL_END);
+			}
+		}
+		if (columns.length == 0) {
+			emitter.markup(EMPTY_ROW_CELL);
+		}
+		emitter.markup(ROW_END);
+	}
+
+	/**
+	 * Writes a row with default attributes for every row of a column batch.
+	 * The batch is written by chunks of rows: the values of every column in
+	 * the chunk are formatted first, each column in a loop specialized for
+	 * its kind, and then copied into the rows along with the precompiled
+	 * markup of their cells
+	 * @param batch Column vectors
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void columns(ColumnBatch batch) throws XMLSpreadsheetException {
+		var columns = batch.columns;
+		var cells = new RowTemplate.Column[columns.length];
+		var formatted = new byte[columns.length][];
+		var lengths = new int[columns.length][];
+		for (int c = 0; c < columns.length; c++) {
+			var cellType = columns[c].kind.cellType;
+			var style = columns[c].style == null && cellType == CellType.DateTime ? dateFormat : columns[c].style;
+			cells[c] = RowTemplate.Column.of(cellType, style);
+			if (columns[c].kind != ColumnBatch.Kind.STRING) {
+				formatted[c] = new byte[CHUNK_ROWS * SLOT];
+				lengths[c] = new int[CHUNK_ROWS];
+			}
+		}
+		for (int from = 0; from < batch.rows; from += CHUNK_ROWS) {
+			int to = Math.min(batch.rows, from + CHUNK_ROWS);
+			for (int c = 0; c < columns.length; c++) {
+				var column = columns[c];
+				switch (column.kind) {
+					case DOUBLE -> formatDoubles(column.doubles, from, to, formatted[c], lengths[c]);
+					case LONG -> formatLongs(column.longs, from, to, formatted[c], lengths[c]);
+					case BOOLEAN -> formatBooleans(column.booleans, from, to, formatted[c], lengths[c]);
+					case EPOCH_MILLIS -> formatEpochMillis(column, from, to, formatted[c], lengths[c]);
+					case STRING -> {}
+				}
+			}
+			for (int row = from; row < to; row++) {
+				int slot = row - from;
+				emitter.markup(PLAIN_ROW_START);
+				for (int c = 0; c < columns.length; c++) {
+					var column = columns[c];
+					if (!column.isValid(row)) {
+						emitter.markup(cells[c].emptyCell());
+					}
+					else if (column.kind == ColumnBatch.Kind.STRING) {
+						var value = column.strings[row];
+						if (value != null) {
+							emitter.markup(cells[c].cellStart()).cdata(value).markup(DATA_CELL_END);
+						}
+						else {
+							emitter.markup(cells[c].emptyCell());
+						}
+					}
+					else if (lengths[c][slot] >= 0) {
+						emitter.markup(cells[c].cellStart())
+							.ascii(formatted[c], slot * SLOT, slot * SLOT + lengths[c][slot])
+							.markup(DATA_CELL_END);
+					}
+					else {
+						emitter.markup(cells[c].numberError());
+					}
+				}
+				if (columns.length == 0) {
+					emitter.markup(EMPTY_ROW_CELL);
+				}
+				emitter.markup(ROW_END);
+			}
+		}
+	}
+
+	// Formats doubles into slots; -1 marks the values that cannot be represented
+	private static void formatDoubles(double[] values, int from, int to, byte[] formatted, int[] lengths) {
+		for (int row = from, slot = 0; row < to; row++, slot++) {
+			double value = values[row];
+			lengths[slot] = Double.isFinite(value) 
+				? NumberFormatHelper.writeDouble(value, formatted, slot * SLOT) - slot * SLOT 
+				: -1;
+		}
+	}
+
+	// Formats longs into slots
+	private static void formatLongs(long[] values, int from, int to, byte[] formatted, int[] lengths) {
+		for (int row = from, slot = 0; row < to; row++, slot++) {
+			lengths[slot] = NumberFormatHelper.writeLong(values[row], formatted, slot * SLOT) - slot * SLOT;
+		}
+	}
+
+	// Formats booleans into slots
+	private static void formatBooleans(boolean[] values, int from, int to, byte[] formatted, int[] lengths) {
+		for (int row = from, slot = 0; row < to; row++, slot++) {
+			formatted[slot * SLOT] = (byte) (values[row] ? '1' : '0');
+			lengths[slot] = 1;
+		}
+	}
+
+	// Formats instants into slots, in local time.  Unlike numbers, missing values are
+	//	skipped, since they could be anything and take the time zone out of its range
+	private void formatEpochMillis(ColumnBatch.Column column, int from, int to, byte[] formatted, int[] lengths) {
+		var values = column.longs;
+		for (int row = from, slot = 0; row < to; row++, slot++) {
+			if (column.isValid(row)) {
+				lengths[slot] = DateFormatHelper.writeEpochMillis(
+					zoneOffsets.toLocalMillis(values[row]), formatted, slot * SLOT) - slot * SLOT;
+			}
+		}
+	}
+
+	// Formats any supported date value into the date buffer, returning its length,
+	//	or -1 if the value is not a date
+	private int formatDateTime(Object value) {
+		return switch (value) {
+			case Date d -> DateFormatHelper.writeEpochMillis(zoneOffsets.toLocalMillis(d.getTime()), dateBuffer, 0);
+			case LocalDate d -> DateFormatHelper.writeDate(d, dateBuffer, 0);
+			case LocalDateTime d -> DateFormatHelper.writeDateTime(d, dateBuffer, 0);
+			case Instant d -> DateFormatHelper.writeEpochMillis(zoneOffsets.toLocalMillis(d.toEpochMilli()), dateBuffer, 0);
+			case OffsetDateTime d -> DateFormatHelper.writeDateTime(d.toLocalDateTime(), dateBuffer, 0);
+			default -> -1;
+		};
+	}
+
+	// Tells if a value can be written into a column of a template of some type
+	private static boolean matches(CellType type, Object value) {
+		return switch (type) {
+			case String -> value instanceof String;
+			case Number -> value instanceof Number;
+			case Boolean -> value instanceof Boolean;
+			case DateTime -> isDate(value);
+			default -> false;
+		};
+	}
+
+	// Error for a value that does not match the type of its column
+	private static XMLSpreadsheetException columnMismatch(int index, RowTemplate.Column column, Object value) {
+		return new XMLSpreadsheetException("Column " + index + " expects " + column.type() 
+			+ " values, not " + value.getClass().getName());
+	}
+
+	// Validates that there is a style for every value of a row, if there are styles
+	private static void validateRow(Style[] styles, int length) throws XMLSpreadsheetException {
+		assertion(styles == null || styles.length == length, 
+			"There must be as many styles as values in a row");
+	}
+
+	// Tells if a value can be written as a cell by anyCell
+	private static boolean isSupported(Object value) {
+		return value == null || value instanceof String || value instanceof Number 
+			|| value instanceof Boolean || isDate(value);
+	}
+
+	// Tells if a value is of any supported date type
+	private static boolean isDate(Object value) {
+		return value instanceof Date || value instanceof LocalDate || value instanceof LocalDateTime 
+			|| value instanceof Instant || value instanceof OffsetDateTime;
+	}
+
+	/**
+	 * Writes a cell of the type of its value: strings, numbers, booleans and
+	 * every date type supported by the <code>cell</code> methods.
+	 * Null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the value has an unsupported type or the output fails
+	 */
+	void anyCell(Style style, Object value) throws XMLSpreadsheetException {
+		switch (value) {
+			case null -> emptyCell(style, CellType.String);
+			case String s -> cell(style, s);
+			case Double d -> cell(style, d.doubleValue());
+			case Long l -> cell(style, l.longValue());
+			case Integer i -> cell(style, i.longValue());
+			case Short s -> cell(style, s.longValue());
+			case Byte b -> cell(style, b.longValue());
+			case Number n -> cell(style, n.doubleValue());
+			case Boolean b -> cell(style, b.booleanValue());
+			case Date d -> cell(style, d);
+			case LocalDate d -> cell(style, d);
+			case LocalDateTime d -> cell(style, d);
+			case Instant d -> cell(style, d);
+			case OffsetDateTime d -> cell(style, d.toLocalDateTime());
+			default -> throw new XMLSpreadsheetException(
+				"Unsupported cell value type: " + value.getClass().getName());
+		}
+	}
+
+	/**
+	 * Writes a String cell; null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, String value) throws XMLSpreadsheetException {
+		textCell(style, value, CellType.String);
+	}
+
+	/**
+	 * Writes a number cell.  NaN and infinite values are written as a <code>#NUM!</code> error
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, double value) throws XMLSpreadsheetException {
+		if (Double.isFinite(value)) {
+			startCell(style, CellType.Number);
+			emitter.number(value);
+			endCell();
+		}
+		else {
+			textCell(style, NUMBER_ERROR, CellType.Error);
+		}
+	}
+
+	/**
+	 * Writes a number cell; null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, Double value) throws XMLSpreadsheetException {
+		if (value != null) {
+			cell(style, value.doubleValue());
+		}
+		else {
+			emptyCell(style, CellType.Number);
+		}
+	}
+
+	/**
+	 * Writes an integer number cell
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, long value) throws XMLSpreadsheetException {
+		startCell(style, CellType.Number);
+		emitter.number(value);
+		endCell();
+	}
+
+	/**
+	 * Writes a boolean cell
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, boolean value) throws XMLSpreadsheetException {
+		startCell(style, CellType.Boolean);
+		emitter.number(value ? 1 : 0);
+		endCell();
+	}
+
+	/**
+	 * Writes an error cell
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void errorCell(Style style, String error) throws XMLSpreadsheetException {
+		textCell(style, error, CellType.Error);
+	}
+
+	/**
+	 * Writes a date cell, with the default date format if no style is given.
+	 * Null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, Date value) throws XMLSpreadsheetException {
+		if (value != null) {
+			// Desired format: 1987-10-30T00:00:00.000
+			dateTimeCell(style, 
+				DateFormatHelper.writeEpochMillis(zoneOffsets.toLocalMillis(value.getTime()), dateBuffer, 0));
+		}
+		else {
+			emptyCell(style == null ? dateFormat : style, CellType.DateTime);
+		}
+	}
+
+	/**
+	 * Writes a date cell, at midnight, with the default date format if no style
+	 * is given.  Null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, LocalDate value) throws XMLSpreadsheetException {
+		if (value != null) {
+			dateTimeCell(style, DateFormatHelper.writeDate(value, dateBuffer, 0));
+		}
+		else {
+			emptyCell(style == null ? dateFormat : style, CellType.DateTime);
+		}
+	}
+
+	/**
+	 * Writes a date and time cell, with the default date format if no style
+	 * is given.  Null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, LocalDateTime value) throws XMLSpreadsheetException {
+		if (value != null) {
+			dateTimeCell(style, DateFormatHelper.writeDateTime(value, dateBuffer, 0));
+		}
+		else {
+			emptyCell(style == null ? dateFormat : style, CellType.DateTime);
+		}
+	}
+
+	/**
+	 * Writes an instant cell, in local time of the zone of the document, with the
+	 * default date format if no style is given.  Null values are written as empty cells
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void cell(Style style, Instant value) throws XMLSpreadsheetException {
+		if (value != null) {
+			dateTimeCell(style, 
+				DateFormatHelper.writeEpochMillis(zoneOffsets.toLocalMillis(value.toEpochMilli()), dateBuffer, 0));
+		}
+		else {
+			emptyCell(style == null ? dateFormat : style, CellType.DateTime);
+		}
+	}
+
+	// Writes a date cell with the first length characters of the date buffer
+	private void dateTimeCell(Style style, int length) throws XMLSpreadsheetException {
+		startCell(style == null ? dateFormat : style, CellType.DateTime);
+		emitter.ascii(dateBuffer, 0, length);
+		endCell();
+	}
+
+	/**
+	 * Writes a cell with a text value, or an empty one if the value is null
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	private void textCell(Style style, String value, CellType type) throws XMLSpreadsheetException {
+		if (value != null) {
+			startCell(style, type);
+			emitter.cdata(value);
+			endCell();
+		}
+		else {
+			emptyCell(style, type);
+		}
+	}
+
+	/**
+	 * Writes a cell with no value
+	 * @param style Cell style
+	 * @param type Type of the cell
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	void emptyCell(Style style, CellType type) throws XMLSpreadsheetException {
+		emptyCurrentRow = false;
+		emptyCell(emitter, style, type);
+	}
+
+	/**
+	 * Writes a cell with no value
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	static void emptyCell(XmlEmitter emitter, Style style, CellType type) throws XMLSpreadsheetException {
+		emitter.markup(CELL_START)
+			.attribute("ss:StyleID", style != null ? style.id() : null)
+			.closeStartTag();
+		emitter.markup(type.emptyData).markup(CELL_END);
+	}
+
+	// Opens a cell and its data element, leaving the emitter ready to write the value
+	private void startCell(Style style, CellType type) throws XMLSpreadsheetException {
+		emptyCurrentRow = false;
+		startCell(emitter, style, type);
+	}
+
+	/**
+	 * Opens a cell and its data element
+	 * @throws XMLSpreadsheetException If the output fails
+	 */
+	static void startCell(XmlEmitter emitter, Style style, CellType type) throws XMLSpreadsheetException {
+		emitter.markup(CELL_START)
+			.attribute("ss:StyleID", style != null ? style.id() : null)
+			.closeStartTag();
+		emitter.markup(type.dataStart);
+	}
+
+	// Closes the data element and the cell opened by startCell
+	private void endCell() throws XMLSpreadsheetException {
+		emitter.markup(DATA_CELL_END);
+	}
+}
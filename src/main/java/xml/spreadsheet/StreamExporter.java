@@ -0,0 +1,161 @@
+package xml.spreadsheet;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes the elements of a stream as rows, in encounter order.  Sequential
+ * streams are written straight into the document.  Parallel ones are split 
+ * into chunks of consecutive elements, and every chunk is formatted into a 
+ * segment of bytes by a task of the pool that runs the caller, or of the 
+ * common pool; the caller writes the segments into the document in order, 
+ * so that the output is the same in both cases.
+ * <br/>
+ * Only a few segments per thread of the pool can be pending at once, so memory
+ * is bounded by the size of the chunks and not by the size of the stream.
+ */
+final class StreamExporter {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Chunks are split until they have at most this many elements, if possible */
+	private static final int CHUNK_SIZE = 1024;
+	/** Segments pending to be written, per thread of the pool */
+	private static final int SEGMENTS_PER_THREAD = 4;
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Options and styles of the document */
+	private final DocumentSetup setup;
+	/** Serialization core of the document */
+	private final SpreadsheetSerializer serializer;
+
+	/**
+	 * Formatted chunk
+	 * @param bytes Rows of the chunk, in the encoding of the document
+	 * @param elements Number of elements of the chunk
+	 */
+	private record Segment(RowBytes bytes, long elements) {}
+
+	/**
+	 * Takes the elements of a spliterator one by one
+	 */
+	private static final class Holder<T> implements Consumer<T> {
+		private T element;
+
+		@Override
+		public void accept(T element) {
+			this.element = element;
+		}
+	}
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds an exporter
+	 * @param setup Options and styles of the document
+	 * @param serializer Serialization core of the document, in the middle of a sheet
+	 */
+	StreamExporter(DocumentSetup setup, SpreadsheetSerializer serializer) {
+		this.setup = setup;
+		this.serializer = serializer;
+	}
+
+	/**
+	 * Writes every element of a stream, in encounter order
+	 * @param stream Elements to write
+	 * @param mapper Writes the rows of every element
+	 * @return Number of elements written
+	 * @throws XMLSpreadsheetException If the mapper fails or the output fails
+	 */
+	<T> long export(Stream<? extends T> stream, RowMapper<? super T> mapper) throws XMLSpreadsheetException {
+		var spliterator = stream.spliterator();
+		if (!stream.isParallel()) {
+			return write(spliterator, new WorkbookWriter(setup, serializer).rows, mapper);
+		}
+		var pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+		int maxSegments = SEGMENTS_PER_THREAD * pool.getParallelism();
+		var segments = new ArrayDeque<ForkJoinTask<Segment>>(maxSegments);
+		// Spliterators not split yet, leftmost first
+		var pending = new ArrayDeque<Spliterator<? extends T>>();
+		pending.push(spliterator);
+		long count = 0;
+		try {
+			while (!pending.isEmpty()) {
+				Spliterator<? extends T> chunk = pending.pop();
+				Spliterator<? extends T> prefix;
+				while (chunk.estimateSize() > CHUNK_SIZE && (prefix = chunk.trySplit()) != null) {
+					pending.push(chunk);
+					chunk = prefix;
+				}
+				if (segments.size() == maxSegments) {
+					count += write(segments.remove());
+				}
+				var elements = chunk;
+				segments.add(pool.submit(() -> format(elements, mapper)));
+			}
+			while (!segments.isEmpty()) {
+				count += write(segments.remove());
+			}
+		} finally {
+			// Nothing else will be written after a failure
+			for (var segment: segments) {
+				segment.cancel(false);
+			}
+		}
+		return count;
+	}
+
+	// Writes the rows of every element of a spliterator
+	private static <T> long write(Spliterator<? extends T> elements, RowsWriter rows, 
+			RowMapper<? super T> mapper) throws XMLSpreadsheetException {
+		var holder = new Holder<T>();
+		long count = 0;
+		while (elements.tryAdvance(holder)) {
+			mapper.writeRows(holder.element, rows);
+			count++;
+		}
+		return count;
+	}
+
+	// Formats a chunk into a segment, apart from the document
+	private <T> Segment format(Spliterator<? extends T> elements, RowMapper<? super T> mapper) 
+			throws XMLSpreadsheetException {
+		var bytes = new RowBytes();
+		var segmentSerializer = new SpreadsheetSerializer(setup, bytes, OutputEngine.BYTES);
+		long count = write(elements, new WorkbookWriter(setup, segmentSerializer).rows, mapper);
+		segmentSerializer.flush();
+		return new Segment(bytes, count);
+	}
+
+	// Waits for a segment, and writes it into the document
+	private long write(ForkJoinTask<Segment> task) throws XMLSpreadsheetException {
+		try {
+			var segment = task.get();
+			serializer.encoded(segment.bytes().bytes(), segment.bytes().size());
+			return segment.elements();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XMLSpreadsheetException(e);
+		} catch (ExecutionException e) {
+			// The pool wraps checked exceptions into runtime ones
+			for (var cause = e.getCause(); cause != null; cause = cause.getCause()) {
+				if (cause instanceof XMLSpreadsheetException xse) {
+					throw xse;
+				}
+			}
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new XMLSpreadsheetException(e.getCause());
+		}
+	}
+}
@@ -1,12 +1,10 @@
 package xml.spreadsheet;
 
 import xml.spreadsheet.style.*;
+import xml.spreadsheet.utils.XmlEmitter;
 
 import java.util.List;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
-
 /**
  * This class contains the information for a style definition in an XML
  * spreadsheet.  It can only be built attached to a certain <code>XMLSpreadsheetGenerator</code> by calling <code>createStyle</code> 
@@ -141,23 +139,28 @@ public record Style(
 
 	@Override
 	public String toString() {
-		
-		return element("ss:Style",
-			mapOf(
-				"ss:ID", id,
-				"ss:Name", name,
-				"ss:Parent", parent
-			),
-			// Compose every inner style element XML representation inside 
-			//	the Style element
-			new StringBuilder()
-				.append(alignment != null ? alignment.toString():"")
-				.append(borders != null ? borders.toString():"")
-				.append(font != null ? font.toString():"")
-				.append(interior != null ? interior.toString():"")
-				.append(numberFormat != null ? numberFormat.toString():"")
-				.append(protection != null ? protection.toString():"").toString()
-			);
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the style element into an emitter, composing every inner style
+	 * element XML representation inside it
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:Style")
+			.attribute("ss:ID", id)
+			.attribute("ss:Name", name)
+			.attribute("ss:Parent", parent)
+			.closeStartTag();
+		if (alignment != null) alignment.writeTo(emitter);
+		if (borders != null) borders.writeTo(emitter);
+		if (font != null) font.writeTo(emitter);
+		if (interior != null) interior.writeTo(emitter);
+		if (numberFormat != null) numberFormat.writeTo(emitter);
+		if (protection != null) protection.writeTo(emitter);
+		emitter.endElement("ss:Style");
 	}
 	
 }
@@ -0,0 +1,225 @@
+package xml.spreadsheet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Writes the sheets of a document started by <code>XMLSpreadsheetWriter</code>.
+ * It also holds the rest of the writers of the document, which are reused for
+ * every sheet and row.
+ * <br/>
+ * Sheets are usually written one after another, but they can also be written at
+ * the same time from different threads: every parallel sheet gets its own
+ * serializer and buffer, and they are all spliced into the document in the 
+ * order they were started, as soon as the next sheet is started or the document
+ * is closed.  For instance:<br/><br/>
+ * <code>
+ * for (var month: months) {<br/>
+ * &nbsp;&nbsp;var sheet = workbook.startParallelSheet(month.name());<br/>
+ * &nbsp;&nbsp;futures.add(executor.submit(() -&gt; fillAndClose(sheet, month)));<br/>
+ * }<br/>
+ * // Wait for every future, then<br/>
+ * workbook.close();
+ * </code>
+ */
+public final class WorkbookWriter implements AutoCloseable {
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Options and styles of the document */
+	final DocumentSetup setup;
+	/** Serialization core of the document, or of a parallel sheet */
+	private final SpreadsheetSerializer serializer;
+	/** Default style for dates */
+	private final Style dateFormat;
+	/** Has the document been closed? */
+	private boolean closed = false;
+
+	/** Parallel sheets waiting to be spliced, in the order they were started */
+	private final Deque<WorkbookWriter> parts = new ArrayDeque<>();
+	/** Document a parallel sheet belongs to; null for the document itself */
+	private final WorkbookWriter document;
+	/** Output of a parallel sheet */
+	private final SheetBuffer buffer;
+	/** Tab caption of a parallel sheet */
+	private final String sheetName;
+
+	// Writers for every step of the document
+	final SheetWriter sheet;
+	final ColumnsWriter columns;
+	final RowWriter row;
+	final RowsWriter rows;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Built by XMLSpreadsheetWriter once the header is written
+	WorkbookWriter(DocumentSetup setup, SpreadsheetSerializer serializer) {
+		this(setup, serializer, null, null, null);
+	}
+
+	// Parallel sheet of a document
+	private WorkbookWriter(WorkbookWriter document, SheetBuffer buffer, String sheetName) {
+		this(document.setup, new SpreadsheetSerializer(document.setup, buffer), document, buffer, sheetName);
+	}
+
+	private WorkbookWriter(DocumentSetup setup, SpreadsheetSerializer serializer, 
+			WorkbookWriter document, SheetBuffer buffer, String sheetName) {
+		this.setup = setup;
+		this.serializer = serializer;
+		this.dateFormat = setup.getDateFormat();
+		this.document = document;
+		this.buffer = buffer;
+		this.sheetName = sheetName;
+		this.sheet = new SheetWriter(serializer, this);
+		this.columns = new ColumnsWriter(serializer, this);
+		this.row = new RowWriter(serializer, this);
+		this.rows = new RowsWriter(serializer, this);
+	}
+
+	/**
+	 * Streams the begin of a sheet.
+	 * @param sheetName Sheet tab caption
+	 * @return Writer for the columns and rows of the sheet
+	 * @throws XMLSpreadsheetException If the name is missing or the output fails
+	 */
+	public SheetWriter startSheet(String sheetName) throws XMLSpreadsheetException {
+		return startSheet(sheetName, false);
+	}
+
+	/**
+	 * Streams the begin of a sheet.  Parallel sheets started before are spliced
+	 * into the document first.
+	 * @param sheetName Sheet tab caption
+	 * @param protectedSheet If true, the sheet is protected
+	 * @return Writer for the columns and rows of the sheet
+	 * @throws XMLSpreadsheetException If the name is missing, if a parallel sheet
+	 * started before has not been closed or the output fails
+	 */
+	public SheetWriter startSheet(String sheetName, boolean protectedSheet) throws XMLSpreadsheetException {
+		splice();
+		serializer.startSheet(sheetName, protectedSheet);
+		return sheet;
+	}
+
+	/**
+	 * Starts a sheet that can be written from another thread, at the same time
+	 * as other parallel sheets.
+	 * @see #startParallelSheet(String, boolean)
+	 * @param sheetName Sheet tab caption
+	 * @return Writer for the columns and rows of the sheet
+	 * @throws XMLSpreadsheetException If the name is missing
+	 */
+	public SheetWriter startParallelSheet(String sheetName) throws XMLSpreadsheetException {
+		return startParallelSheet(sheetName, false);
+	}
+
+	/**
+	 * Starts a sheet that can be written from another thread, at the same time
+	 * as other parallel sheets.  The sheet is written into its own buffer, which
+	 * is spilled into a temporary file beyond the spill threshold of the writer,
+	 * and it is completed once closed.  Completed sheets are spliced into the 
+	 * document in the order they were started, when the next sequential sheet
+	 * is started or when the document is closed.
+	 * <br/>
+	 * Every parallel sheet must be written from a single thread at a time, and
+	 * closed before the document moves on; the writer returned when closing it
+	 * must not be used from that thread.
+	 * @see XMLSpreadsheetWriter#setSpillThreshold(long)
+	 * @param sheetName Sheet tab caption
+	 * @param protectedSheet If true, the sheet is protected
+	 * @return Writer for the columns and rows of the sheet
+	 * @throws XMLSpreadsheetException If the name is missing, or if called from a
+	 * parallel sheet
+	 */
+	public SheetWriter startParallelSheet(String sheetName, boolean protectedSheet) throws XMLSpreadsheetException {
+		assertion(document == null, "Parallel sheets must be started from the document");
+		var part = new WorkbookWriter(this, new SheetBuffer(setup.getSpillThreshold()), sheetName);
+		part.serializer.startSheet(sheetName, protectedSheet);
+		parts.add(part);
+		return part.sheet;
+	}
+
+	// Called once a sheet is closed.  Parallel sheets are completed, and give 
+	//	way to their document
+	WorkbookWriter sheetClosed() throws XMLSpreadsheetException {
+		if (document == null) {
+			return this;
+		}
+		serializer.closePart();
+		return document;
+	}
+
+	// Splices every parallel sheet started so far into the document
+	private void splice() throws XMLSpreadsheetException {
+		while (!parts.isEmpty()) {
+			var part = parts.peek();
+			assertion(part.buffer.isComplete(), "The parallel sheet " + part.sheetName + " has not been closed");
+			parts.remove();
+			serializer.splice(part.buffer);
+		}
+	}
+
+	// Fails if any parallel sheet is still being written, naming all of them
+	private void validatePartsClosed() throws XMLSpreadsheetException {
+		var open = parts.stream().filter(part -> !part.buffer.isComplete()).map(part -> part.sheetName).toList();
+		assertion(open.isEmpty(), "The document cannot be closed while parallel sheets are still open: " + open);
+	}
+
+	// Releases the parallel sheets that could not be spliced.  Sheets that are
+	//	still open fail on their next write
+	private void discardParts() {
+		for (var part: parts) {
+			try {
+				part.buffer.discard();
+			} catch (IOException ioe) {
+				// Nothing else to do with a temporary file
+			}
+		}
+		parts.clear();
+	}
+
+	/**
+	 * Creates a template for rows with a fixed schema.
+	 * @see XMLSpreadsheetGenerator#createRowTemplate()
+	 * @return Builder for the template
+	 */
+	public RowTemplate.RowTemplateBuilder createRowTemplate() {
+		return new RowTemplate.RowTemplateBuilder(dateFormat);
+	}
+
+	/**
+	 * Splices the pending parallel sheets, streams the end of the document,
+	 * flushes it and closes the output.  Further attempts to close it are ignored.
+	 * <br/>
+	 * The output is closed even if the document cannot be completed, with no end
+	 * of document then.  Parallel sheets that are still open are discarded and
+	 * fail on their next write.
+	 * @throws XMLSpreadsheetException If a parallel sheet has not been closed or 
+	 * the output fails
+	 */
+	@Override
+	public void close() throws XMLSpreadsheetException {
+		if (!closed) {
+			closed = true;
+			try {
+				validatePartsClosed();
+				splice();
+				serializer.closeDocument();
+			} catch (Exception e) {
+				try {
+					serializer.abort();
+				} catch (XMLSpreadsheetException abortException) {
+					e.addSuppressed(abortException);
+				}
+				throw e;
+			} finally {
+				discardParts();
+			}
+		}
+	}
+}
@@ -1,22 +1,18 @@
 package xml.spreadsheet;
 
+import xml.spreadsheet.RowTemplate.RowTemplateBuilder;
 import xml.spreadsheet.Style.StyleBuilder;
-import xml.spreadsheet.utils.BooleanFormatHelper;
-import xml.spreadsheet.utils.DateFormatHelper;
-import xml.spreadsheet.utils.NumberFormatHelper;
-import xml.spreadsheet.utils.XmlHelper;
 
-import java.io.*;
+import java.io.OutputStream;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.time.*;
 import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.stream.Stream;
 
-import static java.lang.Boolean.FALSE;
+import static xml.spreadsheet.GeneratorState.validateCell;
 import static xml.spreadsheet.GeneratorState.validateTransition;
-import static xml.spreadsheet.style.NumberFormat.LONG_DATE;
 import static xml.spreadsheet.utils.AssertionHelper.assertion;
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
 
 /**
  * Partial implementation of the spreadsheet format described in the article<br/>
@@ -32,6 +28,9 @@ import static xml.spreadsheet.utils.XmlHelper.element;
  * The Generator will throw a <code>XMLSpreadsheetException</code> if 
  * the API user tries to break the state machine (say for example, try to write a cell
  * after closing the document, or writing a row before opening a sheet)
+ * <br/>
+ * <code>XMLSpreadsheetWriter</code> offers the same functionality with typed 
+ * writers, that enforce this state machine at compile time instead.
  */
 public class XMLSpreadsheetGenerator implements AutoCloseable {
 
@@ -42,38 +41,23 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 * environment AFAIK
 	 */
 	private static final int BUFFER_SIZE = 10 * 1024;
-	/** Spreadsheets are defined in cp1252 */
-	private static final java.nio.charset.Charset CHARSET = 
-		java.nio.charset.Charset.forName("cp1252");
 	
 	//---------------------------------------------------------------
 	// Class members
 	
-	/** Every instance of the generator is tied to an OutputStream. */
-	final private Writer writer;
+	/** Output, options and styles of the document, until it gets started */
+	final private DocumentSetup setup;
+	/** The document is written by this serializer, that is built over the 
+	 * output stream as soon as the document gets started. */
+	private SpreadsheetSerializer serializer;
 	/** Generator state.  The machine state validations are implemented on this
 	 * variable. */
 	private GeneratorState state = GeneratorState.INITIALIZATION;
-	/** Style counter. Will be used to generate the Style IDs. */
-	private int styleCounter = 1;
-	/** Styles. Every new Style will be added to this List and flushed into
-	 * the output stream as soon as the document gets started. */
-	final private List<Style> styles;
-
-	/** Is empty the current row?  This will be set to true every time
-	 * a new row is started, and false if a cell is written into it. */
-	private boolean emptyCurrentRow = true;
 	
 	/* This class used to have a row counter in order to display the
 	 *	ss:Index attribute, which was needed by Libre Office.  Since the rest
 	 *	of spreadsheet products do not need it, or even fail to render the 
 	 *	spreadsheet if it is included, I have dropped it. */
-
-	/** The generator stores a predefined default date format */
-	private Style dateFormat = null;
-	
-	/** The generator keeps a column count for the current sheet */
-	private long columnCount = 0;
 	
 	//---------------------------------------------------------------
 	// Class methods
@@ -100,32 +84,26 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 */
 	public XMLSpreadsheetGenerator(OutputStream output, int bufferSize) 
 				throws XMLSpreadsheetException {
-		writer = new OutputStreamWriter(
-			new BufferedOutputStream(output, bufferSize), CHARSET);
-		// Initialization state: we can define styles
-		styles = new LinkedList<>();
-		
-		// Default styles
-		
-		// LibreOffice and OpenOffice engine expect some 'Default' empty style to
-		//	exist
-		createStyle("Default", "Default", null);
-		// Create the default date format
-		dateFormat = createStyle().withNumberFormat(LONG_DATE).build();
+		// Initialization state: we can define styles, along with the default ones
+		setup = new DocumentSetup(output, bufferSize);
 	}
-	
+
 	/**
-	 * This method creates a named style attached to this spreadsheet generator object,
-	 * extending the specified parent style.
-	 * It is only able to do that if the generator is in INITIALIZATION state
-	 * @param name Style name
-	 * @param parent Parent style 
-	 * @return Empty style object, inheriting parent's attributes
+	 * Builds a generator that writes a local file through a <code>FileChannel</code>,
+	 * staging the output in a large direct buffer.  The file is opened once the
+	 * document is started, and closed along with the generator.  
+	 * Sets the <code>INITIALIZATION</code> state.  Takes the default BUFFER_SIZE.
+	 * @see xml.spreadsheet.utils.FileChannelOutputStream
+	 * @param file Where the generator is going to write its output to.
+	 * @param options How the file is opened, as in <code>Files.newOutputStream</code>:
+	 * if there are none, it is created, or overwritten if it exists
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
 	 * any other library-related exception arises
 	 */
-	public StyleBuilder createStyle(String name, Style parent) throws XMLSpreadsheetException {
-		return createStyle("ce" + Integer.toString(styleCounter++), name, parent);
+	public XMLSpreadsheetGenerator(Path file, OpenOption... options) 
+				throws XMLSpreadsheetException {
+		assertion(file != null, "The file must be specified");
+		setup = new DocumentSetup(file, options, BUFFER_SIZE);
 	}
 	
 	/**
@@ -138,12 +116,12 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
 	 * any other library-related exception arises
 	 */
-	private StyleBuilder createStyle(String id, String name, Style parent) throws XMLSpreadsheetException {
+	public StyleBuilder createStyle(String name, Style parent) throws XMLSpreadsheetException {
 		assertion(state == GeneratorState.INITIALIZATION, 
 				"It is not possible to add styles to a generator in state: " + state);
-		return Style.builder(styles).withId(id).withName(name).withParent(parent);
+		return setup.createStyle(name, parent);
 	}
-	
+
 	/**
 	 * This method creates an anonymous style attached to this spreadsheet generator object,
 	 * extending the specified parent style.
@@ -180,27 +158,155 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 		return createStyle(name, null);
 	}
 	
-	// Flushes a string down the output stream
-	private void flush(String s) throws XMLSpreadsheetException {
-		try {
-			writer.write(s);
-		}
-		catch(IOException ioe) {
-			throw new XMLSpreadsheetException(ioe);
-		}
+	/**
+	 * Sets the time zone used to write instants (<code>Date</code> and 
+	 * <code>Instant</code> values) as local date and time.  By default, the
+	 * generator takes the time zone of the system.
+	 * It is only able to do that if the generator is in INITIALIZATION state
+	 * @param zone Time zone
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void setZoneId(ZoneId zone) throws XMLSpreadsheetException {
+		assertion(state == GeneratorState.INITIALIZATION, 
+				"It is not possible to change the time zone of a generator in state: " + state);
+		assertion(zone != null, "The time zone must be specified");
+		setup.setZoneId(zone);
+	}
+
+	/**
+	 * @return Time zone used to write instants as local date and time
+	 */
+	public ZoneId getZoneId() {
+		return setup.getZoneId();
 	}
 	
-	// Flush and close the output stream
-	private void endStreaming() throws XMLSpreadsheetException {
-		try {
-			writer.flush();
-			writer.close();
-		}
-		catch(IOException ioe) {
-			throw new XMLSpreadsheetException(ioe);
-		}
+	/**
+	 * Sets the engine that writes the document into the output stream.  By default,
+	 * the generator takes <code>OutputEngine.BYTES</code>.
+	 * It is only able to do that if the generator is in INITIALIZATION state
+	 * @param outputEngine Output engine
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void setOutputEngine(OutputEngine outputEngine) throws XMLSpreadsheetException {
+		assertion(state == GeneratorState.INITIALIZATION, 
+				"It is not possible to change the output engine of a generator in state: " + state);
+		assertion(outputEngine != null, "The output engine must be specified");
+		setup.setOutputEngine(outputEngine);
+	}
+
+	/**
+	 * @return Engine that writes the document into the output stream
+	 */
+	public OutputEngine getOutputEngine() {
+		return setup.getOutputEngine();
 	}
 	
+	/**
+	 * Sets the encoding of the document.  By default, the generator takes
+	 * <code>OutputEncoding.UTF_8</code>.
+	 * It is only able to do that if the generator is in INITIALIZATION state
+	 * @param outputEncoding Output encoding
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void setOutputEncoding(OutputEncoding outputEncoding) throws XMLSpreadsheetException {
+		assertion(state == GeneratorState.INITIALIZATION, 
+				"It is not possible to change the encoding of a generator in state: " + state);
+		assertion(outputEncoding != null, "The output encoding must be specified");
+		setup.setOutputEncoding(outputEncoding);
+	}
+
+	/**
+	 * @return Encoding of the document
+	 */
+	public OutputEncoding getOutputEncoding() {
+		return setup.getOutputEncoding();
+	}
+
+	/**
+	 * Sets whether the document is handed down to the output stream from a 
+	 * dedicated thread.  If so, the document is formatted into chunks of the 
+	 * buffer size, and the generator only waits for the output when every chunk
+	 * is pending to be written.  Output failures are raised on the following 
+	 * writes, and on <code>close</code> at the latest.  By default, the generator
+	 * writes into the output stream from the calling thread.
+	 * It is only able to do that if the generator is in INITIALIZATION state
+	 * @see xml.spreadsheet.utils.PipelinedOutputStream
+	 * @param pipelined If true, the output is written from a dedicated thread
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void setPipelined(boolean pipelined) throws XMLSpreadsheetException {
+		assertion(state == GeneratorState.INITIALIZATION, 
+				"It is not possible to change the pipelined mode of a generator in state: " + state);
+		setup.setPipelined(pipelined);
+	}
+
+	/**
+	 * @return Is the output written from a dedicated thread?
+	 */
+	public boolean isPipelined() {
+		return setup.isPipelined();
+	}
+
+	/**
+	 * Sets whether the document is compressed into gzip format (a single member,
+	 * readable by any gzip tool) before it reaches the output stream.  If so, 
+	 * the document is cut into blocks that are compressed at the same time in the
+	 * common pool, and written in order; the output does not depend on the number
+	 * of threads.  It can be combined with the pipelined mode, so that waiting
+	 * for the compressed blocks does not stall the generator either.  By default,
+	 * the document is not compressed.
+	 * It is only able to do that if the generator is in INITIALIZATION state
+	 * @see xml.spreadsheet.utils.ParallelGzipOutputStream
+	 * @param compressed If true, the output is compressed into gzip format
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void setCompressed(boolean compressed) throws XMLSpreadsheetException {
+		assertion(state == GeneratorState.INITIALIZATION, 
+				"It is not possible to change the compression of a generator in state: " + state);
+		setup.setCompressed(compressed);
+	}
+
+	/**
+	 * @return Is the output compressed into gzip format?
+	 */
+	public boolean isCompressed() {
+		return setup.isCompressed();
+	}
+
+	/**
+	 * Sets how many buffers of the file are written at the same time, through an
+	 * <code>AsynchronousFileChannel</code>.  The generator goes on formatting the
+	 * document while the buffers are written, and only waits when every one of 
+	 * them is in flight; write failures are raised on the following writes, and 
+	 * on <code>close</code> at the latest.  By default (0), every buffer is 
+	 * written before going on.  Only available for generators built over a file.
+	 * It is only able to do that if the generator is in INITIALIZATION state
+	 * @see xml.spreadsheet.utils.AsyncFileOutputStream
+	 * @param buffers Number of buffers written at the same time: 0, or at least 2
+	 * @throws XMLSpreadsheetException If called in an inappropiate state, the
+	 * generator is not built over a file, or any other library-related exception arises
+	 */
+	public void setAsyncWrites(int buffers) throws XMLSpreadsheetException {
+		assertion(state == GeneratorState.INITIALIZATION, 
+				"It is not possible to change the asynchronous writes of a generator in state: " + state);
+		assertion(setup.hasFile(), "Asynchronous writes are only available for files");
+		assertion(buffers == 0 || buffers >= 2, "There must be either no asynchronous buffers, or at least 2");
+		setup.setAsyncWrites(buffers);
+	}
+
+	/**
+	 * @return Number of buffers of the file written at the same time; 0 if they 
+	 * are written one by one
+	 */
+	public int getAsyncWrites() {
+		return setup.getAsyncWrites();
+	}
+
 	/**
 	 * Writes an empty row into the document.
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
@@ -211,40 +317,6 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 		closeRow();
 	}
 
-	// Fixed header for every workbook
-	private void workbookHeader() throws XMLSpreadsheetException {
-		flush("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-		flush("<?mso-application progid=\"Excel.Sheet\"?>");
-		flush(
-			element(
-				"Workbook",
-				mapOf(
-					"xmlns", "urn:schemas-microsoft-com:office:spreadsheet",
-					"xmlns:c", "urn:schemas-microsoft-com:office:component:spreadsheet",
-					"xmlns:html", "http://www.w3.org/TR/REC-html40",
-					"xmlns:o", "urn:schemas-microsoft-com:office:office",
-					"xmlns:ss", "urn:schemas-microsoft-com:office:spreadsheet",
-					"xmlns:x2", "http://schemas.microsoft.com/office/excel/2003/xml",
-					"xmlns:x", "urn:schemas-microsoft-com:office:excel",
-					"xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance"
-				),
-				FALSE
-			)
-		);
-		flush(element("OfficeDocumentSettings", mapOf("xmlns", "urn:schemas-microsoft-com:office:office"), FALSE));
-		flush(element("Colors", FALSE));
-		flush(element("Color", FALSE));
-		flush(element("Index", "3"));
-		flush(element("RGB", "#c0c0c0"));
-		flush("</Color>");
-		flush(element("Color", FALSE));
-		flush(element("Index", "4"));
-		flush(element("RGB", "#ff0000"));
-		flush("</Color>");
-		flush("</Colors>");
-		flush("</OfficeDocumentSettings>");
-	}
-	
 	/**
 	 * Use when all the styles are defined (no further definition of styles after this).
 	 * Streams the header of the document.  Sets the 
@@ -256,19 +328,8 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 				throws XMLSpreadsheetException {
 		state = validateTransition(state,
 				GeneratorState.CLEAN_DOCUMENT);
-
-		// Header of the document		
-		workbookHeader();
-		
-		// Flush all the styles on the document
-		if (styles != null) {
-			flush("<ss:Styles>");
-			for (Style style: styles) {
-				flush(style.toString());
-			}
-			flush("</ss:Styles>");
-		}
-		
+		// Header of the document and styles
+		serializer = setup.startDocument();
 	}
 	
 	/**
@@ -282,11 +343,25 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 		// It will ignore further attempts to close it once it is done
 		if (state != GeneratorState.DONE) {
 			state = validateTransition(state, GeneratorState.DONE);
-			flush("</Workbook>");
-			endStreaming();
+			serializer.closeDocument();
 		}
 	}
 	
+	/**
+	 * Hands the part of the document held in the buffer of the generator down to
+	 * the output, and flushes it.  It does not change the state, and may be called
+	 * anywhere between the start and the end of the document: for instance, when
+	 * the rows of a sheet stop coming for a while and the output must not wait for them.
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void flush() throws XMLSpreadsheetException {
+		assertion(state != GeneratorState.INITIALIZATION && state != GeneratorState.DONE 
+				&& state != GeneratorState.SINKING_ROWS, 
+				"It is not possible to flush a generator in state: " + state);
+		serializer.flush();
+	}
+
 	/**
 	 * Begins a row.  Sets the <code>WRITING_ROW</code> state.
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
@@ -313,21 +388,7 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 			Boolean hidden, 
 			Style style) throws XMLSpreadsheetException {
 		state = validateTransition(state, GeneratorState.WRITING_ROW);
-		emptyCurrentRow = true;
-		// Create current row
-		flush(
-			element(
-				"ss:Row",
-				mapOf(
-					"ss:Caption", caption,
-					"ss:Height", height,
-					"ss:AutoFitHeight", autoFitHeight,
-					"ss:Hidden", hidden,
-					"ss:StyleID", style != null ? style.id() : null
-				),
-				FALSE // Don't close!
-			)
-		);
+		serializer.startRow(caption, autoFitHeight, height, hidden, style);
 	}
 	
 	/**
@@ -366,6 +427,187 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 		}
 	}
 	
+	/**
+	 * Writes a whole row with default attributes, with a cell for every value.
+	 * The state is validated once for the whole row, and the type of every cell
+	 * is the one of its value: <code>String</code>, <code>Number</code>, 
+	 * <code>Boolean</code>, <code>Date</code>, <code>LocalDate</code>, 
+	 * <code>LocalDateTime</code>, <code>Instant</code> or <code>OffsetDateTime</code>.
+	 * Null values are written as empty cells.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If called in an inappropiate state, if a value
+	 * has an unsupported type or any other library-related exception arises
+	 */
+	public void writeRow(Object... values) throws XMLSpreadsheetException {
+		writeRow((Style[]) null, values);
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a cell for every value.
+	 * @see #writeRow(Object...)
+	 * @param styles Style of every cell, in the same order as the values.  Both
+	 * the array and its elements may be null
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If called in an inappropiate state, if a value
+	 * has an unsupported type or any other library-related exception arises
+	 */
+	public void writeRow(Style[] styles, Object[] values) throws XMLSpreadsheetException {
+		validateRow();
+		serializer.row(styles, values);
+		state = GeneratorState.WRITING_SHEET_ROWS;
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeRow(double[] values) throws XMLSpreadsheetException {
+		writeRow(null, values);
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param styles Style of every cell, in the same order as the values.  Both
+	 * the array and its elements may be null
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeRow(Style[] styles, double[] values) throws XMLSpreadsheetException {
+		validateRow();
+		serializer.row(styles, values);
+		state = GeneratorState.WRITING_SHEET_ROWS;
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeRow(long[] values) throws XMLSpreadsheetException {
+		writeRow(null, values);
+	}
+
+	/**
+	 * Writes a whole row with default attributes, with a number cell for every value.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param styles Style of every cell, in the same order as the values.  Both
+	 * the array and its elements may be null
+	 * @param values Value of every cell
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeRow(Style[] styles, long[] values) throws XMLSpreadsheetException {
+		validateRow();
+		serializer.row(styles, values);
+		state = GeneratorState.WRITING_SHEET_ROWS;
+	}
+
+	/**
+	 * Creates a template for rows with a fixed schema, where every column always
+	 * has the same type and style.  Its markup is rendered once, so that writing 
+	 * rows out of it is cheaper than writing them cell by cell.
+	 * It is only able to do that once the document is started, since it is tied to its styles
+	 * @return Builder for the template
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public RowTemplateBuilder createRowTemplate() throws XMLSpreadsheetException {
+		assertion(state != GeneratorState.INITIALIZATION && state != GeneratorState.DONE, 
+				"It is not possible to create row templates for a generator in state: " + state);
+		return new RowTemplateBuilder(setup.getDateFormat());
+	}
+
+	/**
+	 * Writes a whole row out of a template, with a cell for every column.
+	 * The state is validated once for the whole row.  Every value must be of the
+	 * type of its column, or null for an empty cell.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param template Template of the row
+	 * @param values Value of every column
+	 * @throws XMLSpreadsheetException If called in an inappropiate state, if the values
+	 * do not match the columns of the template or any other library-related exception arises
+	 */
+	public void writeRow(RowTemplate template, Object... values) throws XMLSpreadsheetException {
+		assertion(template != null, "The row template must be specified");
+		validateRow();
+		serializer.row(template, values);
+		state = GeneratorState.WRITING_SHEET_ROWS;
+	}
+
+	/**
+	 * Writes a whole sheet with the rows of every element of a stream, in 
+	 * encounter order.  Parallel streams are split into chunks that are 
+	 * formatted at the same time, in the pool that runs the caller or in the
+	 * common pool, and written in order: the output is the very same as with a
+	 * sequential stream.  Only a few chunks per thread of the pool are pending 
+	 * at once.  Leaves the <code>CLEAN_DOCUMENT</code> state.
+	 * @param sheetName Sheet tab caption
+	 * @param rows Elements to write
+	 * @param mapper Writes the rows of every element; it may be called from 
+	 * several threads at once for parallel streams
+	 * @return Number of elements written
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public <T> long exportSheet(String sheetName, Stream<? extends T> rows, RowMapper<? super T> mapper) 
+			throws XMLSpreadsheetException {
+		assertion(rows != null && mapper != null, "The rows and their mapper must be specified");
+		startSheet(sheetName);
+		validateRow();
+		long count = new StreamExporter(setup, serializer).export(rows, mapper);
+		state = GeneratorState.WRITING_SHEET_ROWS;
+		closeSheet();
+		return count;
+	}
+
+	/**
+	 * Opens a sink that takes the rows of the current sheet from several threads
+	 * at once, and writes them in the order of their sequence numbers.  It can be
+	 * opened wherever a row can be started.  Sets the <code>SINKING_ROWS</code> 
+	 * state, until the sink is closed and sets the <code>WRITING_SHEET_ROWS</code>
+	 * state back.  The generator must not be used while the sink is open.
+	 * @see RowSink
+	 * @param capacity Number of formatted rows that can wait to be written
+	 * @return Sink for the rows of the sheet
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public RowSink openRowSink(int capacity) throws XMLSpreadsheetException {
+		validateTransition(state, GeneratorState.WRITING_ROW);
+		var sink = new RowSink(setup, serializer, capacity, () -> state = GeneratorState.WRITING_SHEET_ROWS);
+		state = GeneratorState.SINKING_ROWS;
+		return sink;
+	}
+
+	/**
+	 * Writes a row with default attributes for every row of a column batch,
+	 * with a cell for every column.  The state is validated once for the whole batch.
+	 * Sets the <code>WRITING_SHEET_ROWS</code> state.
+	 * @param batch Column vectors
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeColumns(ColumnBatch batch) throws XMLSpreadsheetException {
+		assertion(batch != null, "The column batch must be specified");
+		validateRow();
+		serializer.columns(batch);
+		state = GeneratorState.WRITING_SHEET_ROWS;
+	}
+
+	// Validates that a whole row can be written.  The state is only moved on once
+	//	the row is, so that a row rejected for its values leaves it as it was
+	private void validateRow() throws XMLSpreadsheetException {
+		validateTransition(state, GeneratorState.WRITING_ROW);
+	}
+	
 	/**
 	 * Streams the ending of a row.  Sets the <code>WRITING_SHEET</code> state.
 	 * If we have created no cells in the row, it will flush nothing to the output,
@@ -375,10 +617,7 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 */
 	public void closeRow() throws XMLSpreadsheetException {
 		state = validateTransition(state, GeneratorState.WRITING_SHEET_ROWS);
-		if (emptyCurrentRow) {
-			flush(element("ss:Cell", mapOf("ss:Index", "1")));
-		}
-		flush("</ss:Row>");
+		serializer.closeRow();
 	}
 	
 	/**
@@ -391,21 +630,6 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 		startSheet(sheetName, false);
 	}
 
-	// Creates a common header for every sheet
-	private void sheetHeader(String name, boolean isProtected) throws XMLSpreadsheetException {
-		flush(
-			element(
-				"ss:Worksheet",
-				mapOf(
-					"ss:Name", name,
-					"ss:Protected", BooleanFormatHelper.format(isProtected)
-				),
-				FALSE
-			)
-		);
-		flush(element("Table", FALSE));
-	}
-
 	/**
 	 * Streams the begin of a sheet.  Sets the <code>WRITING_SHEET</code> state.
 	 * @param sheetName Sheet tab caption
@@ -415,18 +639,7 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 */
 	public void startSheet(String sheetName, boolean protectedSheet) throws XMLSpreadsheetException {
 		state = validateTransition(state, GeneratorState.WRITING_SHEET);
-		// Validate that the sheet name is not null
-		assertion(sheetName != null, "The sheet name must be specified");
-		// Flush the start of the sheet template
-		sheetHeader(sheetName, protectedSheet);
-		columnCount = 0;
-	}
-
-	// Common foot for every sheet
-	private void sheetFoot() throws XMLSpreadsheetException {
-		flush("</Table>");
-		flush("<x:WorksheetOptions/>");
-		flush("</ss:Worksheet>");
+		serializer.startSheet(sheetName, protectedSheet);
 	}
 
 	/**
@@ -436,7 +649,7 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 */
 	public void closeSheet() throws XMLSpreadsheetException {
 		state = validateTransition(state, GeneratorState.CLEAN_DOCUMENT);
-		sheetFoot();
+		serializer.closeSheet();
 	}
 	
 	/**
@@ -459,8 +672,7 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	public void closeColumns() throws XMLSpreadsheetException {
 		state = validateTransition(state,
 				GeneratorState.WRITING_SHEET);
-		// Empty column
-		flush(element("ss:Column"));
+		serializer.closeColumns();
 	}
 	
 	/**
@@ -516,43 +728,7 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 					   Style style, Double width) throws XMLSpreadsheetException {
 		assertion(state == GeneratorState.WRITING_COLUMNS, 
 			"Cannot write a column if not inside the columns section");
-		// Do some validations on indexes
-		if (index != null) {
-			assertion(index > columnCount, "Column overlap!");
-			// Should we cover a gap?
-			if ((index - columnCount) > 1) {
-				long gap = (index - columnCount) - 1;
-				flush(
-					element(
-						"ss:Column",
-						mapOf("ss:Span", gap > 1 ? gap - 1 : null)
-					)
-				);
-			}
-			// Jump to the index
-			columnCount = index;
-		}
-		else {
-			columnCount++;
-		}
-		// add the span to the column count
-		if (span != null) {
-			columnCount += (span - 1);
-		}
-		flush(
-			element(
-				"ss:Column",
-				mapOf(
-					"c:Caption", caption,
-					"ss:AutoFitWidth", autoFitWidth,
-					"ss:Hidden", hidden,
-					"ss:Index", index,
-					"ss:Span", span != null && span > 1 ? span-1 : null,
-					"ss:StyleID", style == null ? null : style.id(),
-					"ss:Width", width
-				)
-			)
-		);
+		serializer.column(caption, autoFitWidth, hidden, index, span, style, width);
 	}
 	
 	/**
@@ -578,10 +754,9 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
 	 * any other library-related exception arises
 	 */
-	public void writeCell(Style style, String value) throws XMLSpreadsheetException {		
-		state = validateTransition(state, GeneratorState.WRITING_CELL);
-		writeCellImpl(style, value, CellType.String);		
-		state = validateTransition(state, GeneratorState.WRITING_ROW);
+	public void writeCell(Style style, String value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
 	}
 	
 	/**
@@ -601,10 +776,109 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
 	 * any other library-related exception arises
 	 */
-	public void writeCell(Style style, Double value) throws XMLSpreadsheetException {		
-		state = validateTransition(state, GeneratorState.WRITING_CELL);
-		writeCellImpl(style, NumberFormatHelper.format(value), CellType.Number);		
-		state = validateTransition(state, GeneratorState.WRITING_ROW);
+	public void writeCell(Style style, Double value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes a number to a cell.  NaN and infinite values, that cannot be represented
+	 * in a spreadsheet, are written as a <code>#NUM!</code> error cell
+	 * @param style Style object to apply to the cell
+	 * @param value Number value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, double value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes a number to a cell
+	 * @param value Number value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(double value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
+	/**
+	 * Writes an integer number to a cell
+	 * @param style Style object to apply to the cell
+	 * @param value Number value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, long value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes an integer number to a cell
+	 * @param value Number value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(long value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
+	/**
+	 * Writes an integer number to a cell
+	 * @param style Style object to apply to the cell
+	 * @param value Number value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, int value) throws XMLSpreadsheetException {
+		writeCell(style, (long) value);
+	}
+
+	/**
+	 * Writes an integer number to a cell
+	 * @param value Number value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(int value) throws XMLSpreadsheetException {
+		writeCell(null, (long) value);
+	}
+
+	/**
+	 * Writes a boolean value to a cell
+	 * @param style Style object to apply to the cell
+	 * @param value Boolean value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, boolean value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes a boolean value to a cell
+	 * @param value Boolean value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(boolean value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
+	/**
+	 * Writes an error value to a cell
+	 * @param style Style object to apply to the cell
+	 * @param error Error value to write, such as <code>#N/A</code> or <code>#DIV/0!</code>
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeErrorCell(Style style, String error) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.errorCell(style, error);
 	}
 	
 	/**
@@ -627,11 +901,9 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
 	 * any other library-related exception arises
 	 */
-	public void writeCell(Style style, Date value) throws XMLSpreadsheetException {		
-		state = validateTransition(state, GeneratorState.WRITING_CELL);
-		// Desired format: 1987-10-30T00:00:00.000
-		writeCellImpl(style == null?dateFormat:style, DateFormatHelper.format(value), CellType.DateTime);		
-		state = validateTransition(state, GeneratorState.WRITING_ROW);
+	public void writeCell(Style style, Date value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
 	}
 	
 	/**
@@ -645,6 +917,107 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 		writeCell(null, value);
 	}
 	
+	/**
+	 * Writes a date to a cell, at midnight
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, LocalDate value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes a date to a cell, at midnight, with the default date format of the library
+	 * @param value Date value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(LocalDate value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
+	/**
+	 * Writes a date and time to a cell, truncated to milliseconds
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date and time value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, LocalDateTime value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes a date and time to a cell, truncated to milliseconds, with the default
+	 * date format of the library
+	 * @param value Date and time value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(LocalDateTime value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
+	/**
+	 * Writes an instant to a cell, as local date and time in the time zone of the
+	 * generator, truncated to milliseconds
+	 * @see #setZoneId(ZoneId)
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Instant value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, Instant value) throws XMLSpreadsheetException {
+		validateCell(state);
+		serializer.cell(style, value);
+	}
+
+	/**
+	 * Writes an instant to a cell, as local date and time in the time zone of the
+	 * generator, truncated to milliseconds, with the default date format of the library
+	 * @see #setZoneId(ZoneId)
+	 * @param value Instant value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Instant value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
+	/**
+	 * Writes a date and time to a cell, truncated to milliseconds.  Spreadsheets 
+	 * do not keep offsets: the local date and time of the value is written as is.
+	 * Convert it to an <code>Instant</code> in order to write it in the time zone
+	 * of the generator instead
+	 * @param style Style object to apply to the cell.  If null, the default date
+	 * format of the library is applied
+	 * @param value Date and time value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(Style style, OffsetDateTime value) throws XMLSpreadsheetException {
+		writeCell(style, value != null ? value.toLocalDateTime() : null);
+	}
+
+	/**
+	 * Writes a date and time to a cell, truncated to milliseconds, with the default
+	 * date format of the library.  Spreadsheets do not keep offsets: the local date
+	 * and time of the value is written as is
+	 * @param value Date and time value to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
+	 * any other library-related exception arises
+	 */
+	public void writeCell(OffsetDateTime value) throws XMLSpreadsheetException {
+		writeCell(null, value);
+	}
+
 	/**
 	 * Writes an empty cell to the document.
 	 * @throws XMLSpreadsheetException If called in an inappropiate state or 
@@ -661,27 +1034,6 @@ public class XMLSpreadsheetGenerator implements AutoCloseable {
 	 * any other library-related exception arises
 	 */
 	public void writeEmptyCell(Style style) throws XMLSpreadsheetException {
-		writeCellImpl(style, null, CellType.String);
+		serializer.emptyCell(style, CellType.String);
 	}
-	
-	/**
-	 * Writes a cell value into the stream
-	 */
-	private void writeCellImpl(Style style, String value, CellType type) throws XMLSpreadsheetException {
-		if (emptyCurrentRow) {
-			emptyCurrentRow = false;
-		}
-		// write the contents of the cell
-		flush(
-			element("ss:Cell",
-				mapOf("ss:StyleID", style != null ? style.id() : null),
-				element("ss:Data",
-					mapOf("ss:Type", type.toString()),
-					XmlHelper.cdata(value)
-				)
-			)
-		);
-	}
-	
-	
 }
@@ -0,0 +1,278 @@
+package xml.spreadsheet;
+
+import xml.spreadsheet.Style.StyleBuilder;
+
+import java.io.OutputStream;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.time.ZoneId;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Typed alternative to <code>XMLSpreadsheetGenerator</code>.  Instead of checking
+ * its state on every call, every step of the document returns a writer that only
+ * offers the methods that are legal at that point:
+ * <br/>
+ * <code>
+ * XMLSpreadsheetWriter -&gt; [createStyle]* -&gt; startDocument: WorkbookWriter -&gt;
+ * [startSheet: SheetWriter -&gt; [startColumns: ColumnsWriter -&gt; [column]* -&gt; closeColumns]? -&gt;
+ * [startRow: RowWriter -&gt; [writeCell]* -&gt; closeRow: RowsWriter]* -&gt; closeSheet]* -&gt;
+ * close
+ * </code><br/>
+ * so that writing a cell outside a row, or a column after the first row, does not
+ * compile.  No state is validated while the document is being written; both
+ * classes share the same serialization core and produce the very same output.
+ * <br/>
+ * Writers are reused along the whole document: keeping a reference to a writer
+ * once its step is over, and using it afterwards, will produce an invalid document.
+ * <br/>
+ * Sheets can also be written at the same time from several threads, with 
+ * <code>WorkbookWriter.startParallelSheet</code>.
+ */
+public class XMLSpreadsheetWriter {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Buffer size, the same one the generator takes */
+	private static final int BUFFER_SIZE = 10 * 1024;
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Output, options and styles of the document, until it gets started */
+	private final DocumentSetup setup;
+	/** Has the document been started? */
+	private boolean started = false;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a writer tied to the OutputStream passed as a parameter.
+	 * Takes the default buffer size.
+	 * @param output Where the writer is going to write its output to.
+	 */
+	public XMLSpreadsheetWriter(OutputStream output) {
+		this(output, BUFFER_SIZE);
+	}
+
+	/**
+	 * Builds a writer tied to the OutputStream passed as a parameter.
+	 * @param output Where the writer is going to write its output to.
+	 * @param bufferSize Output buffer size in bytes
+	 */
+	public XMLSpreadsheetWriter(OutputStream output, int bufferSize) {
+		setup = new DocumentSetup(output, bufferSize);
+	}
+
+	/**
+	 * Builds a writer that writes a local file through a <code>FileChannel</code>.
+	 * The file is opened once the document is started.
+	 * @see XMLSpreadsheetGenerator#XMLSpreadsheetGenerator(Path, OpenOption...)
+	 * @param file Where the writer is going to write its output to.
+	 * @param options How the file is opened, as in <code>Files.newOutputStream</code>:
+	 * if there are none, it is created, or overwritten if it exists
+	 */
+	public XMLSpreadsheetWriter(Path file, OpenOption... options) {
+		setup = new DocumentSetup(file, options, BUFFER_SIZE);
+	}
+
+	// Validates that the document has not been started yet
+	private void assertNotStarted(String what) throws XMLSpreadsheetException {
+		assertion(!started, "It is not possible to " + what + " once the document is started");
+	}
+
+	/**
+	 * Creates a named style extending the specified parent style.
+	 * Styles must be created before the document is started
+	 * @param name Style name
+	 * @param parent Parent style
+	 * @return Empty style object, inheriting parent's attributes
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public StyleBuilder createStyle(String name, Style parent) throws XMLSpreadsheetException {
+		assertNotStarted("add styles");
+		return setup.createStyle(name, parent);
+	}
+
+	/**
+	 * Creates an anonymous style extending the specified parent style.
+	 * @param parent Parent style
+	 * @return Empty style object, inheriting parent's attributes
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public StyleBuilder createStyle(Style parent) throws XMLSpreadsheetException {
+		return createStyle(null, parent);
+	}
+
+	/**
+	 * Creates an anonymous style.
+	 * @return Empty style object
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public StyleBuilder createStyle() throws XMLSpreadsheetException {
+		return createStyle(null, null);
+	}
+
+	/**
+	 * Creates a named style.
+	 * @param name Name that will be shown for the style
+	 * @return Empty style object
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public StyleBuilder createStyle(String name) throws XMLSpreadsheetException {
+		return createStyle(name, null);
+	}
+
+	/**
+	 * Sets the time zone used to write instants as local date and time.
+	 * @see XMLSpreadsheetGenerator#setZoneId(ZoneId)
+	 * @param zone Time zone
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public void setZoneId(ZoneId zone) throws XMLSpreadsheetException {
+		assertNotStarted("change the time zone");
+		assertion(zone != null, "The time zone must be specified");
+		setup.setZoneId(zone);
+	}
+
+	/**
+	 * @return Time zone used to write instants as local date and time
+	 */
+	public ZoneId getZoneId() {
+		return setup.getZoneId();
+	}
+
+	/**
+	 * Sets the engine that writes the document into the output stream.
+	 * @see XMLSpreadsheetGenerator#setOutputEngine(OutputEngine)
+	 * @param outputEngine Output engine
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public void setOutputEngine(OutputEngine outputEngine) throws XMLSpreadsheetException {
+		assertNotStarted("change the output engine");
+		assertion(outputEngine != null, "The output engine must be specified");
+		setup.setOutputEngine(outputEngine);
+	}
+
+	/**
+	 * @return Engine that writes the document into the output stream
+	 */
+	public OutputEngine getOutputEngine() {
+		return setup.getOutputEngine();
+	}
+
+	/**
+	 * Sets the encoding of the document.
+	 * @see XMLSpreadsheetGenerator#setOutputEncoding(OutputEncoding)
+	 * @param outputEncoding Output encoding
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public void setOutputEncoding(OutputEncoding outputEncoding) throws XMLSpreadsheetException {
+		assertNotStarted("change the encoding");
+		assertion(outputEncoding != null, "The output encoding must be specified");
+		setup.setOutputEncoding(outputEncoding);
+	}
+
+	/**
+	 * @return Encoding of the document
+	 */
+	public OutputEncoding getOutputEncoding() {
+		return setup.getOutputEncoding();
+	}
+
+	/**
+	 * Sets whether the document is handed down to the output stream from a 
+	 * dedicated thread.
+	 * @see XMLSpreadsheetGenerator#setPipelined(boolean)
+	 * @param pipelined If true, the output is written from a dedicated thread
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public void setPipelined(boolean pipelined) throws XMLSpreadsheetException {
+		assertNotStarted("change the pipelined mode");
+		setup.setPipelined(pipelined);
+	}
+
+	/**
+	 * @return Is the output written from a dedicated thread?
+	 */
+	public boolean isPipelined() {
+		return setup.isPipelined();
+	}
+
+	/**
+	 * Sets whether the document is compressed into gzip format before it reaches
+	 * the output stream.
+	 * @see XMLSpreadsheetGenerator#setCompressed(boolean)
+	 * @param compressed If true, the output is compressed into gzip format
+	 * @throws XMLSpreadsheetException If the document is already started
+	 */
+	public void setCompressed(boolean compressed) throws XMLSpreadsheetException {
+		assertNotStarted("change the compression");
+		setup.setCompressed(compressed);
+	}
+
+	/**
+	 * @return Is the output compressed into gzip format?
+	 */
+	public boolean isCompressed() {
+		return setup.isCompressed();
+	}
+
+	/**
+	 * Sets how many buffers of the file are written at the same time.
+	 * @see XMLSpreadsheetGenerator#setAsyncWrites(int)
+	 * @param buffers Number of buffers written at the same time: 0, or at least 2
+	 * @throws XMLSpreadsheetException If the document is already started, the
+	 * writer is not built over a file or the number of buffers is wrong
+	 */
+	public void setAsyncWrites(int buffers) throws XMLSpreadsheetException {
+		assertNotStarted("change the asynchronous writes");
+		assertion(setup.hasFile(), "Asynchronous writes are only available for files");
+		assertion(buffers == 0 || buffers >= 2, "There must be either no asynchronous buffers, or at least 2");
+		setup.setAsyncWrites(buffers);
+	}
+
+	/**
+	 * @return Number of buffers of the file written at the same time; 0 if they 
+	 * are written one by one
+	 */
+	public int getAsyncWrites() {
+		return setup.getAsyncWrites();
+	}
+
+	/**
+	 * Sets how many bytes of every parallel sheet are kept in memory.  Beyond
+	 * that, the sheet is spilled into a temporary file until it is spliced into
+	 * the document.
+	 * @see WorkbookWriter#startParallelSheet(String, boolean)
+	 * @param spillThreshold Bytes kept in memory; 0 to always spill
+	 * @throws XMLSpreadsheetException If the document is already started or the threshold is negative
+	 */
+	public void setSpillThreshold(long spillThreshold) throws XMLSpreadsheetException {
+		assertNotStarted("change the spill threshold");
+		assertion(spillThreshold >= 0, "The spill threshold cannot be negative");
+		setup.setSpillThreshold(spillThreshold);
+	}
+
+	/**
+	 * @return Bytes of every parallel sheet kept in memory
+	 */
+	public long getSpillThreshold() {
+		return setup.getSpillThreshold();
+	}
+
+	/**
+	 * Streams the header of the document and its styles.  No further styles
+	 * or options can be defined after this.
+	 * @return Writer for the sheets of the document
+	 * @throws XMLSpreadsheetException If the document is already started or the output fails
+	 */
+	public WorkbookWriter startDocument() throws XMLSpreadsheetException {
+		assertNotStarted("start again");
+		started = true;
+		return new WorkbookWriter(setup, setup.startDocument());
+	}
+}
@@ -0,0 +1,72 @@
+package xml.spreadsheet.annotation;
+
+import xml.spreadsheet.Style;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+
+/**
+ * Writes records as rows of a sheet.  Implementations are generated at compile
+ * time for records with <code>SpreadsheetColumn</code> components: they call the
+ * typed cell methods of the generator with the record accessors, with no 
+ * reflection and no boxing of primitive components.
+ * @param <T> Type of the records
+ * @see SpreadsheetColumn
+ */
+public interface RecordWriter<T> {
+
+	/**
+	 * Writes the columns section of a sheet, with the style and width of every column
+	 * @param generator Generator to write into, right after starting a sheet
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	void writeColumns(XMLSpreadsheetGenerator generator) throws XMLSpreadsheetException;
+
+	/**
+	 * Writes a row with the names of the columns
+	 * @param generator Generator to write into
+	 * @param style Style of the header cells; may be null
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	void writeHeader(XMLSpreadsheetGenerator generator, Style style) throws XMLSpreadsheetException;
+
+	/**
+	 * Writes a record as a row
+	 * @param generator Generator to write into
+	 * @param row Record to write
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	void writeRow(XMLSpreadsheetGenerator generator, T row) throws XMLSpreadsheetException;
+
+	/**
+	 * Writes a row for every record
+	 * @param generator Generator to write into
+	 * @param rows Records to write
+	 * @return Number of rows written
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	long writeRows(XMLSpreadsheetGenerator generator, Iterable<? extends T> rows) throws XMLSpreadsheetException;
+
+	/**
+	 * Writes a whole sheet: its columns section, a header row and a row for every record
+	 * @param generator Generator to write into; its document must be started
+	 * @param sheetName Sheet tab caption
+	 * @param headerStyle Style of the header cells; may be null
+	 * @param rows Records to write
+	 * @return Number of rows written, not counting the header
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	default long export(XMLSpreadsheetGenerator generator, String sheetName, Style headerStyle, 
+			Iterable<? extends T> rows) throws XMLSpreadsheetException {
+		generator.startSheet(sheetName);
+		writeColumns(generator);
+		writeHeader(generator, headerStyle);
+		long count = writeRows(generator, rows);
+		generator.closeSheet();
+		return count;
+	}
+}
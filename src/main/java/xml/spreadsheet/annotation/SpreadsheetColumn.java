@@ -0,0 +1,59 @@
+package xml.spreadsheet.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a record component as a column of a sheet.  For every record with
+ * annotated components, the annotation processor of the library generates a
+ * <code>RecordWriter</code> named after the record (<code>OrderRowWriter</code>
+ * for <code>Order</code>), with a column for every annotated component, in 
+ * declaration order.
+ * @see RecordWriter
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface SpreadsheetColumn {
+
+	/**
+	 * Types of column
+	 */
+	enum Type {
+		/** Taken from the type of the component */
+		AUTO,
+		/** Any component, written as its <code>toString()</code> */
+		STRING,
+		/** Primitive numbers, their wrappers, <code>BigDecimal</code> and <code>BigInteger</code> */
+		NUMBER,
+		/** <code>boolean</code> and <code>Boolean</code> */
+		BOOLEAN,
+		/** <code>LocalDate</code>, <code>LocalDateTime</code>, <code>Instant</code>, 
+		 * <code>OffsetDateTime</code> and <code>Date</code> */
+		DATE_TIME
+	}
+
+	/**
+	 * @return Name of the column, written in the header.  The name of the component by default
+	 */
+	String name() default "";
+
+	/**
+	 * @return Width of the column in points.  Negative values leave the default width
+	 */
+	double width() default -1;
+
+	/**
+	 * @return Key of the style of the column and its cells, in the map of styles
+	 * given to the generated writer.  No style by default
+	 */
+	String style() default "";
+
+	/**
+	 * @return Type of the cells of the column
+	 */
+	Type type() default Type.AUTO;
+}
@@ -0,0 +1,306 @@
+package xml.spreadsheet.annotation.processing;
+
+import xml.spreadsheet.annotation.SpreadsheetColumn;
+import xml.spreadsheet.annotation.SpreadsheetColumn.Type;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a <code>RecordWriter</code> for every record with 
+ * <code>SpreadsheetColumn</code> components.  The generated class is placed in
+ * the package of the record, and named after it: <code>OrderRowWriter</code> for
+ * <code>Order</code>, or <code>Outer_OrderRowWriter</code> for a record nested
+ * in <code>Outer</code>.
+ * <br/>
+ * Every cell is written with a direct call to the accessor of its component and
+ * to the typed cell method of the generator that matches it, chosen here at 
+ * compile time.  Names, widths and style keys of the columns are written into the
+ * generated code as constants.
+ */
+@SupportedAnnotationTypes("xml.spreadsheet.annotation.SpreadsheetColumn")
+public class SpreadsheetColumnProcessor extends AbstractProcessor {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Suffix of the generated classes */
+	private static final String SUFFIX = "RowWriter";
+
+	/**
+	 * How a component is read and written
+	 */
+	private enum Family {
+		PRIMITIVE_NUMBER(Type.NUMBER),
+		PRIMITIVE_BOOLEAN(Type.BOOLEAN),
+		PRIMITIVE_CHAR(Type.STRING),
+		STRING(Type.STRING),
+		DOUBLE(Type.NUMBER),
+		INTEGRAL_WRAPPER(Type.NUMBER),
+		DECIMAL_WRAPPER(Type.NUMBER),
+		BOOLEAN_WRAPPER(Type.BOOLEAN),
+		DATE(Type.DATE_TIME),
+		ENUM(Type.STRING),
+		OTHER(null);
+
+		/** Type of column the family is written as by default */
+		private final Type natural;
+
+		Family(Type natural) {
+			this.natural = natural;
+		}
+	}
+
+	/**
+	 * Column of a generated writer
+	 * @param component Record component
+	 * @param name Name of the column
+	 * @param width Width of the column, or a negative value
+	 * @param style Key of the style of the column, or an empty string
+	 * @param code Statement that writes the cell
+	 */
+	private record Column(RecordComponentElement component, String name, double width, String style, String code) {}
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		var records = new LinkedHashSet<TypeElement>();
+		for (Element element: round.getElementsAnnotatedWith(SpreadsheetColumn.class)) {
+			records.add((TypeElement) element.getEnclosingElement());
+		}
+		for (var record: records) {
+			try {
+				generate(record);
+			} catch (IOException e) {
+				error(record, "Cannot write the row writer of " + record.getQualifiedName() + ": " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	// Reports an error on an element
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	// Generates the writer of a record, if it has no errors
+	private void generate(TypeElement record) throws IOException {
+		if (record.getModifiers().contains(Modifier.PRIVATE) || !record.getTypeParameters().isEmpty()) {
+			error(record, "Row writers can only be generated for non private, non generic records");
+			return;
+		}
+		var columns = new ArrayList<Column>();
+		boolean valid = true;
+		for (var component: record.getRecordComponents()) {
+			var annotation = component.getAnnotation(SpreadsheetColumn.class);
+			if (annotation != null) {
+				var name = annotation.name().isEmpty() ? component.getSimpleName().toString() : annotation.name();
+				var style = annotation.style().isEmpty() ? "null" : "style" + columns.size();
+				var code = cellCode(component, annotation.type(), style);
+				valid &= code != null;
+				columns.add(new Column(component, name, annotation.width(), annotation.style(), code));
+			}
+		}
+		if (valid) {
+			write(record, columns);
+		}
+	}
+
+	// Family of the type of a component
+	private Family family(TypeMirror type) {
+		var types = processingEnv.getTypeUtils();
+		var elements = processingEnv.getElementUtils();
+		switch (type.getKind()) {
+			case DOUBLE, FLOAT, LONG, INT, SHORT, BYTE: 
+				return Family.PRIMITIVE_NUMBER;
+			case BOOLEAN: 
+				return Family.PRIMITIVE_BOOLEAN;
+			case CHAR: 
+				return Family.PRIMITIVE_CHAR;
+			case DECLARED: 
+				break;
+			default: 
+				return Family.OTHER;
+		}
+		if (types.asElement(type).getKind() == ElementKind.ENUM) {
+			return Family.ENUM;
+		}
+		var date = elements.getTypeElement("java.util.Date").asType();
+		if (types.isAssignable(type, date)) {
+			return Family.DATE;
+		}
+		return switch (types.erasure(type).toString()) {
+			case "java.lang.String" -> Family.STRING;
+			case "java.lang.Double" -> Family.DOUBLE;
+			case "java.lang.Long", "java.lang.Integer", "java.lang.Short", "java.lang.Byte" -> Family.INTEGRAL_WRAPPER;
+			case "java.lang.Float", "java.math.BigDecimal", "java.math.BigInteger" -> Family.DECIMAL_WRAPPER;
+			case "java.lang.Boolean" -> Family.BOOLEAN_WRAPPER;
+			case "java.time.LocalDate", "java.time.LocalDateTime", "java.time.Instant", 
+				"java.time.OffsetDateTime" -> Family.DATE;
+			default -> Family.OTHER;
+		};
+	}
+
+	// Statement that writes the cell of a component, or null if it cannot be written
+	private String cellCode(RecordComponentElement component, Type type, String style) {
+		var family = family(component.asType());
+		var value = "row." + component.getAccessor().getSimpleName() + "()";
+		if (type == Type.STRING && family.natural != Type.STRING) {
+			// Written as text, whatever it is
+			if (component.asType().getKind().isPrimitive()) {
+				return "generator.writeCell(" + style + ", String.valueOf(" + value + "));";
+			}
+			return nullable(value, style, "v.toString()", "(String) null");
+		}
+		if (type != Type.AUTO && type != family.natural || family.natural == null) {
+			error(component, "Component " + component.getSimpleName() + " of type " + component.asType() 
+				+ " cannot be written as " + (type == Type.AUTO ? "a cell; set its type to STRING" : type));
+			return null;
+		}
+		return switch (family) {
+			case PRIMITIVE_NUMBER, PRIMITIVE_BOOLEAN, STRING, DOUBLE, DATE -> 
+				"generator.writeCell(" + style + ", " + value + ");";
+			case PRIMITIVE_CHAR -> "generator.writeCell(" + style + ", String.valueOf(" + value + "));";
+			case INTEGRAL_WRAPPER -> nullable(value, style, "v.longValue()", "(Double) null");
+			case DECIMAL_WRAPPER -> nullable(value, style, "v.doubleValue()", "(Double) null");
+			case BOOLEAN_WRAPPER -> nullable(value, style, "v.booleanValue()", "(String) null");
+			case ENUM -> nullable(value, style, "v.name()", "(String) null");
+			case OTHER -> null;
+		};
+	}
+
+	// Statement that writes a cell out of a value that may be null
+	private static String nullable(String value, String style, String present, String missing) {
+		return "{ var v = " + value + "; if (v != null) { generator.writeCell(" + style + ", " + present 
+			+ "); } else { generator.writeCell(" + style + ", " + missing + "); } }";
+	}
+
+	// Java literal of a String
+	private static String literal(String s) {
+		var ret = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"' -> ret.append("\\\"");
+				case '\\' -> ret.append("\\\\");
+				default -> {
+					if (c < 0x20 || c >= 0x7F) {
+						ret.append(String.format("\\u%04x", (int) c));
+					}
+					else {
+						ret.append(c);
+					}
+				}
+			}
+		}
+		return ret.append('"').toString();
+	}
+
+	// Writes the source of the writer of a record
+	private void write(TypeElement record, List<Column> columns) throws IOException {
+		var elements = processingEnv.getElementUtils();
+		var packageName = elements.getPackageOf(record).getQualifiedName().toString();
+		// Outer_Inner for nested records
+		var simpleName = new StringBuilder(record.getSimpleName());
+		for (var outer = record.getEnclosingElement(); outer instanceof TypeElement type; outer = type.getEnclosingElement()) {
+			simpleName.insert(0, type.getSimpleName() + "_");
+		}
+		var className = simpleName + SUFFIX;
+		var recordName = record.getQualifiedName().toString();
+		var visibility = record.getModifiers().contains(Modifier.PUBLIC) ? "public " : "";
+
+		var source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("import xml.spreadsheet.Style;\n");
+		source.append("import xml.spreadsheet.XMLSpreadsheetException;\n");
+		source.append("import xml.spreadsheet.XMLSpreadsheetGenerator;\n");
+		source.append("import xml.spreadsheet.annotation.RecordWriter;\n\n");
+		source.append("import java.util.Map;\n\n");
+		source.append("/**\n * Writes <code>").append(record.getSimpleName())
+			.append("</code> records as rows of a sheet.  Generated from its <code>SpreadsheetColumn</code> components.\n */\n");
+		source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+		source.append(visibility).append("final class ").append(className)
+			.append(" implements RecordWriter<").append(recordName).append("> {\n\n");
+		// Styles, resolved once
+		for (int i = 0; i < columns.size(); i++) {
+			if (!columns.get(i).style().isEmpty()) {
+				source.append("\tprivate final Style style").append(i).append(";\n");
+			}
+		}
+		source.append("\n\t/**\n\t * Builds a writer with no styles\n\t * @throws IllegalArgumentException If some column needs a style\n\t */\n");
+		source.append("\tpublic ").append(className).append("() {\n\t\tthis(Map.of());\n\t}\n\n");
+		source.append("\t/**\n\t * Builds a writer\n\t * @param styles Styles of the columns, by their keys\n")
+			.append("\t * @throws IllegalArgumentException If the style of some column is missing\n\t */\n");
+		source.append("\tpublic ").append(className).append("(Map<String, Style> styles) {\n");
+		for (int i = 0; i < columns.size(); i++) {
+			var style = columns.get(i).style();
+			if (!style.isEmpty()) {
+				source.append("\t\tstyle").append(i).append(" = style(styles, ").append(literal(style)).append(");\n");
+			}
+		}
+		source.append("\t}\n\n");
+		source.append("\tprivate static Style style(Map<String, Style> styles, String key) {\n");
+		source.append("\t\tvar style = styles.get(key);\n");
+		source.append("\t\tif (style == null) {\n");
+		source.append("\t\t\tthrow new IllegalArgumentException(\"Missing style: \" + key);\n");
+		source.append("\t\t}\n\t\treturn style;\n\t}\n\n");
+		// Columns section
+		source.append("\t@Override\n\tpublic void writeColumns(XMLSpreadsheetGenerator generator) throws XMLSpreadsheetException {\n");
+		source.append("\t\tgenerator.startColumns();\n");
+		for (int i = 0; i < columns.size(); i++) {
+			var column = columns.get(i);
+			source.append("\t\tgenerator.column(").append(column.style().isEmpty() ? "null" : "style" + i).append(", ")
+				.append(column.width() >= 0 ? Double.toString(column.width()) : "null").append(");\n");
+		}
+		source.append("\t\tgenerator.closeColumns();\n\t}\n\n");
+		// Header
+		source.append("\t@Override\n\tpublic void writeHeader(XMLSpreadsheetGenerator generator, Style style) throws XMLSpreadsheetException {\n");
+		source.append("\t\tgenerator.startRow();\n");
+		for (var column: columns) {
+			source.append("\t\tgenerator.writeCell(style, ").append(literal(column.name())).append(");\n");
+		}
+		source.append("\t\tgenerator.closeRow();\n\t}\n\n");
+		// Rows
+		source.append("\t@Override\n\tpublic void writeRow(XMLSpreadsheetGenerator generator, ").append(recordName)
+			.append(" row) throws XMLSpreadsheetException {\n");
+		source.append("\t\tgenerator.startRow();\n");
+		for (var column: columns) {
+			source.append("\t\t").append(column.code()).append("\n");
+		}
+		source.append("\t\tgenerator.closeRow();\n\t}\n\n");
+		source.append("\t@Override\n\tpublic long writeRows(XMLSpreadsheetGenerator generator, Iterable<? extends ")
+			.append(recordName).append("> rows) throws XMLSpreadsheetException {\n");
+		source.append("\t\tlong count = 0;\n");
+		source.append("\t\tfor (var row: rows) {\n\t\t\twriteRow(generator, row);\n\t\t\tcount++;\n\t\t}\n");
+		source.append("\t\treturn count;\n\t}\n}\n");
+
+		var qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+		try (var writer = processingEnv.getFiler().createSourceFile(qualifiedName, record).openWriter()) {
+			writer.write(source.toString());
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package xml.spreadsheet.flow;
+
+import xml.spreadsheet.RowMapper;
+import xml.spreadsheet.RowsWriter;
+import xml.spreadsheet.WorkbookWriter;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Writes the elements of a <code>Flow.Publisher</code> as the rows of a 
+ * single sheet document.
+ * <br/>
+ * Nothing is written on the threads of the publisher: elements are queued,
+ * and a task on the executor of the subscriber writes them, one task at a
+ * time.  Elements are requested in batches, and half a batch more is requested 
+ * every time half a batch has been written, so that no more than a batch is 
+ * ever waiting in memory.  Every request and cancellation is made from that
+ * task as well, even the first request, so that they never overlap: a 
+ * synchronous publisher may deliver elements from inside a request.
+ * <br/>
+ * The completion of the subscriber is completed with the number of elements 
+ * written once the document is closed, that is, once its end has been flushed
+ * into the output.  The document is closed as well if the publisher fails, if 
+ * the mapper fails or if the completion is cancelled: the subscription is 
+ * cancelled, and the rows written so far are kept in a well-formed document.  
+ * Only a mapper that fails in the middle of a row leaves that row unfinished.
+ * <br/>
+ * For instance:<br/><br/>
+ * <code>
+ * var subscriber = new SheetSubscriber&lt;Order&gt;(writer, "orders", 
+ * (order, rows) -&gt; rows.writeRow(order.customer(), order.amount()), executor);<br/>
+ * publisher.subscribe(subscriber);<br/>
+ * long count = subscriber.completion().join();
+ * </code>
+ * @param <T> Type of the elements
+ */
+public class SheetSubscriber<T> implements Flow.Subscriber<T> {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Default number of elements requested at once */
+	private static final int DEFAULT_BATCH_SIZE = 256;
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Writer of the document, with its styles and options already set */
+	private final XMLSpreadsheetWriter writer;
+	/** Sheet tab caption */
+	private final String sheetName;
+	/** Writes the rows of every element */
+	private final RowMapper<? super T> mapper;
+	/** Every write is run here */
+	private final Executor executor;
+	/** Number of elements requested at once */
+	private final int batchSize;
+	/** Completed once the document is closed */
+	private final CompletableFuture<Long> completion = new CompletableFuture<>();
+
+	/** Elements received and not written yet */
+	private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+	/** Pending signals for the writing task; it only runs while this is positive */
+	private final AtomicInteger signals = new AtomicInteger();
+	/** Subscription to the publisher */
+	private volatile Flow.Subscription subscription;
+	/** Has the publisher completed? */
+	private volatile boolean complete = false;
+	/** Failure of the publisher */
+	private volatile Throwable failure;
+
+	// Only touched by the writing task
+	/** Document being written */
+	private WorkbookWriter workbook;
+	/** Rows of the sheet */
+	private RowsWriter rows;
+	/** Elements written */
+	private long count = 0;
+	/** Has the document been closed? */
+	private boolean closed = false;
+	/** Has the first batch been requested? */
+	private boolean requested = false;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a subscriber that requests the default number of elements at once
+	 * @param writer Writer of the document, with its styles and options already set
+	 * @param sheetName Sheet tab caption
+	 * @param mapper Writes the rows of every element
+	 * @param executor Runs every write; it should allow blocking tasks
+	 * @throws XMLSpreadsheetException If any parameter is missing
+	 */
+	public SheetSubscriber(XMLSpreadsheetWriter writer, String sheetName, 
+			RowMapper<? super T> mapper, Executor executor) throws XMLSpreadsheetException {
+		this(writer, sheetName, mapper, executor, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Builds a subscriber
+	 * @param writer Writer of the document, with its styles and options already set
+	 * @param sheetName Sheet tab caption
+	 * @param mapper Writes the rows of every element
+	 * @param executor Runs every write; it should allow blocking tasks
+	 * @param batchSize Number of elements requested at once; at least 2
+	 * @throws XMLSpreadsheetException If any parameter is missing or the batch size is too small
+	 */
+	public SheetSubscriber(XMLSpreadsheetWriter writer, String sheetName, 
+			RowMapper<? super T> mapper, Executor executor, int batchSize) throws XMLSpreadsheetException {
+		assertion(writer != null && sheetName != null && mapper != null && executor != null, 
+			"The writer, sheet name, mapper and executor must be specified");
+		assertion(batchSize >= 2, "The batch size must be at least 2");
+		this.writer = writer;
+		this.sheetName = sheetName;
+		this.mapper = mapper;
+		this.executor = executor;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return Completed with the number of elements written once the document is
+	 * closed, or exceptionally if it could not be completed.  Cancelling it cancels
+	 * the subscription and closes the document
+	 */
+	public CompletableFuture<Long> completion() {
+		return completion;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription);
+		if (this.subscription != null) {
+			// Only one publisher per document
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		completion.whenComplete((c, e) -> {
+			if (completion.isCancelled()) {
+				signal();
+			}
+		});
+		// The first batch is requested by the writing task
+		signal();
+	}
+
+	@Override
+	public void onNext(T item) {
+		queue.add(Objects.requireNonNull(item));
+		signal();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		failure = Objects.requireNonNull(throwable);
+		signal();
+	}
+
+	@Override
+	public void onComplete() {
+		complete = true;
+		signal();
+	}
+
+	// Runs the writing task, unless it is already running; if so, it will
+	//	see the new signal before stopping
+	private void signal() {
+		if (signals.getAndIncrement() == 0) {
+			try {
+				executor.execute(this::drain);
+			} catch (RuntimeException e) {
+				// Nowhere to write
+				subscription.cancel();
+				completion.completeExceptionally(e);
+			}
+		}
+	}
+
+	// Writing task: writes the queued elements and handles the terminal signals
+	private void drain() {
+		int missed = signals.get();
+		do {
+			if (!closed) {
+				try {
+					write();
+				} catch (XMLSpreadsheetException | RuntimeException e) {
+					subscription.cancel();
+					finish(e);
+				}
+			}
+			missed = signals.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	// Writes the queued elements, and closes the document once the publisher
+	//	is done or the completion is cancelled
+	private void write() throws XMLSpreadsheetException {
+		if (workbook == null) {
+			workbook = writer.startDocument();
+			rows = workbook.startSheet(sheetName);
+		}
+		if (!requested && !completion.isCancelled()) {
+			requested = true;
+			subscription.request(batchSize);
+		}
+		T element;
+		while (!completion.isCancelled() && (element = queue.poll()) != null) {
+			mapper.writeRows(element, rows);
+			// Half a batch written, half a batch more requested
+			if (++count % (batchSize / 2) == 0) {
+				subscription.request(batchSize / 2);
+			}
+		}
+		if (completion.isCancelled()) {
+			subscription.cancel();
+			finish(new CancellationException());
+		}
+		else if (failure != null) {
+			finish(failure);
+		}
+		else if (complete && queue.isEmpty()) {
+			finish(null);
+		}
+	}
+
+	// Closes the document, keeping the rows written so far, and completes
+	private void finish(Throwable cause) {
+		closed = true;
+		queue.clear();
+		try {
+			if (workbook != null) {
+				rows.closeSheet();
+				workbook.close();
+			}
+		} catch (XMLSpreadsheetException | RuntimeException e) {
+			if (cause == null) {
+				cause = e;
+			}
+			else {
+				cause.addSuppressed(e);
+			}
+		}
+		if (cause == null) {
+			completion.complete(count);
+		}
+		else {
+			completion.completeExceptionally(cause);
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package xml.spreadsheet.flow;
+
+import xml.spreadsheet.RowMapper;
+import xml.spreadsheet.RowsWriter;
+import xml.spreadsheet.WorkbookWriter;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.utils.ChannelOutputBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Document rendered lazily as it is read: every read writes only as many rows
+ * as it takes to fill the buffer of the writer, so the memory used does not 
+ * depend on the size of the document, and its first bytes are available right
+ * away.  It suits any API that takes an <code>InputStream</code>, such as 
+ * uploads or HTTP response bodies.
+ * <br/>
+ * The sheets are registered beforehand, each of them with an iterator over its
+ * elements and a mapper that writes the rows of every element.  Styles and 
+ * options are set on the writer of the stream, before the first read; every 
+ * option but the pipelined mode is available.  Iterators and mappers are always
+ * called from the thread that reads, but a compressed document (which is read
+ * compressed) has its blocks deflated in the common <code>ForkJoinPool</code>,
+ * as with any other output: reads then wait for the blocks they need, and the
+ * stream keeps a few of them in flight on top of the buffer of the writer.
+ * <br/>
+ * For instance:<br/><br/>
+ * <code>
+ * var input = new SpreadsheetInputStream();<br/>
+ * var amount = input.getWriter().createStyle().withNumberFormat(NumberFormat.CURRENCY).build();<br/>
+ * input.addSheet("orders", orders.iterator(), <br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;(order, rows) -&gt; rows.startRow().writeCell(order.customer()).writeCell(amount, order.amount()).closeRow());<br/>
+ * upload(input);
+ * </code><br/>
+ * Failures of the mappers are raised by the read that runs into them, as an
+ * <code>IOException</code>.  The stream must be read by one thread at a time.
+ */
+public class SpreadsheetInputStream extends InputStream {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Buffer size, the same one the generator takes */
+	private static final int BUFFER_SIZE = 10 * 1024;
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Rendered bytes, until they are read */
+	private final ChannelOutputBuffer output;
+	/** Writer of the document */
+	private final XMLSpreadsheetWriter writer;
+	/** Sheets not started yet */
+	private final Queue<Sheet<?>> sheets = new ArrayDeque<>();
+
+	/** Document being written, once the first read starts it */
+	private WorkbookWriter workbook;
+	/** Sheet being written */
+	private Sheet<?> sheet;
+	/** Rows of the sheet being written */
+	private RowsWriter rows;
+	/** Has the document been completely written? */
+	private boolean done = false;
+	/** Failure while writing the document */
+	private IOException failure;
+	/** Has the stream been closed? */
+	private boolean closed = false;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * A sheet, with its elements and how they are written
+	 * @param name Sheet tab caption
+	 * @param elements Elements of the sheet
+	 * @param mapper Writes the rows of every element
+	 * @param <T> Type of the elements
+	 */
+	private record Sheet<T>(String name, Iterator<? extends T> elements, RowMapper<? super T> mapper) {
+
+		// Writes the rows of the next element; false if there are no more
+		boolean writeNext(RowsWriter rows) throws XMLSpreadsheetException {
+			if (!elements.hasNext()) {
+				return false;
+			}
+			mapper.writeRows(elements.next(), rows);
+			return true;
+		}
+	}
+
+	/**
+	 * Builds an empty stream with the default buffer size
+	 */
+	public SpreadsheetInputStream() {
+		this(BUFFER_SIZE);
+	}
+
+	/**
+	 * Builds an empty stream
+	 * @param bufferSize Buffer size of the writer, in bytes: the document is
+	 * rendered by pieces of about this size
+	 */
+	public SpreadsheetInputStream(int bufferSize) {
+		// A single element may write any amount, which is read before the next one
+		this.output = new ChannelOutputBuffer(bufferSize, ChannelOutputBuffer.MAX_LIMIT);
+		this.writer = new XMLSpreadsheetWriter(output, bufferSize);
+	}
+
+	/**
+	 * @return Writer of the document, to create styles and set options before 
+	 * the first read.  The document must not be started through it
+	 */
+	public XMLSpreadsheetWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Adds a sheet at the end of the document.  Its elements are only taken 
+	 * from the iterator as the stream is read
+	 * @param name Sheet tab caption
+	 * @param elements Elements of the sheet
+	 * @param mapper Writes the rows of every element
+	 * @param <T> Type of the elements
+	 * @return This stream
+	 * @throws XMLSpreadsheetException If any parameter is missing, or the stream
+	 * has already been read
+	 */
+	public <T> SpreadsheetInputStream addSheet(String name, Iterator<? extends T> elements, 
+			RowMapper<? super T> mapper) throws XMLSpreadsheetException {
+		assertion(name != null && elements != null && mapper != null, 
+			"The name, elements and mapper of the sheet must be specified");
+		assertion(workbook == null && !closed, "It is not possible to add a sheet once the stream is read");
+		sheets.add(new Sheet<>(name, elements, mapper));
+		return this;
+	}
+
+	// Writes the document until some bytes are rendered, or it is over
+	private void render() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+		try {
+			if (workbook == null) {
+				assertion(!writer.isPipelined(), "A document read as a stream is written from the reading thread");
+				workbook = writer.startDocument();
+			}
+			while (!done && !output.hasPendingOutput()) {
+				step();
+			}
+		} catch (XMLSpreadsheetException | RuntimeException e) {
+			failure = new IOException("The document could not be rendered: " + e.getMessage(), e);
+			throw failure;
+		}
+	}
+
+	// Writes the next element, or the next sheet boundary
+	private void step() throws XMLSpreadsheetException {
+		if (sheet == null) {
+			sheet = sheets.poll();
+			if (sheet == null) {
+				workbook.close();
+				done = true;
+				return;
+			}
+			rows = workbook.startSheet(sheet.name());
+		}
+		if (!sheet.writeNext(rows)) {
+			rows.closeSheet();
+			sheet = null;
+		}
+	}
+
+	// Fails if the stream is closed
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed");
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		var b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		checkOpen();
+		if (len == 0) {
+			return 0;
+		}
+		render();
+		return output.hasPendingOutput() ? output.drainTo(b, off, len) : -1;
+	}
+
+	@Override
+	public int available() throws IOException {
+		checkOpen();
+		return output.getPendingBytes();
+	}
+
+	/**
+	 * Closes the stream.  If it has not been read to the end, the rest of the 
+	 * document is never rendered, and the iterators are left where they are
+	 */
+	@Override
+	public void close() {
+		closed = true;
+	}
+}
@@ -0,0 +1,334 @@
+package xml.spreadsheet.jdbc;
+
+import xml.spreadsheet.Style;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static xml.spreadsheet.utils.AssertionHelper.assertion;
+
+/**
+ * Streams the rows of a JDBC <code>ResultSet</code> into a sheet of a generator.
+ * <br/>
+ * The metadata of the result set is read once, and every column is bound to a
+ * handler that reads it with the getter of its SQL type (<code>getLong</code>, 
+ * <code>getDouble</code>, <code>getTimestamp</code>...) and writes the matching
+ * cell, so values are not boxed on the way.  The only exception are the types
+ * with a time zone, which JDBC only offers through <code>getObject</code> with
+ * their <code>java.time</code> class.  Rows are written as they are read, so 
+ * memory does not grow with the size of the result set.
+ * <br/>
+ * Values are written as follows:
+ * <ul>
+ * <li>Integer types are written as exact integers</li>
+ * <li><code>DECIMAL</code> and <code>NUMERIC</code> values are written as exact
+ * integers if they have no fraction and fit a long, as doubles otherwise</li>
+ * <li><code>DATE</code> and <code>TIMESTAMP</code> values are written as their
+ * local date and time, with no time zone conversion</li>
+ * <li><code>TIMESTAMP_WITH_TIMEZONE</code> values are read as <code>OffsetDateTime</code>,
+ * and written as their local date and time in their own offset</li>
+ * <li><code>TIME</code> values are written on 1899-12-31, the day that spreadsheet
+ * products take for times with no date.  <code>TIME_WITH_TIMEZONE</code> values
+ * are read as <code>OffsetTime</code>, and written as their local time in their
+ * own offset</li>
+ * <li>SQL nulls are written as empty cells</li>
+ * <li>Any other type is written as the String that the driver returns for it</li>
+ * </ul>
+ */
+public class ResultSetExporter {
+
+	//---------------------------------------------------------------
+	// Class constants
+
+	/** Default number of rows to fetch from the database on every round trip */
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+	/** Day of times with no date */
+	private static final LocalDate TIME_DAY = LocalDate.of(1899, 12, 31);
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Generator to write into */
+	private final XMLSpreadsheetGenerator generator;
+	/** Number of rows to fetch on every round trip */
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	/** Should the column labels be written as a header row? */
+	private boolean header = true;
+	/** Style of the header row */
+	private Style headerStyle = null;
+	/** Styles of the columns, by their JDBC index */
+	private final Map<Integer, Style> columnStyles = new HashMap<>();
+
+	/**
+	 * Reads a column of the current row and writes it as a cell
+	 */
+	@FunctionalInterface
+	private interface ColumnHandler {
+		void write(ResultSet resultSet, int column, Style style) throws SQLException, XMLSpreadsheetException;
+	}
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds an exporter that writes into a generator.  Styles for the header
+	 * and the columns must be created in the generator before starting its document.
+	 * @param generator Generator to write into
+	 */
+	public ResultSetExporter(XMLSpreadsheetGenerator generator) {
+		this.generator = generator;
+	}
+
+	/**
+	 * @param fetchSize Number of rows to fetch from the database on every round trip.
+	 * Zero leaves the default of the driver
+	 * @throws XMLSpreadsheetException If the fetch size is negative
+	 */
+	public void setFetchSize(int fetchSize) throws XMLSpreadsheetException {
+		assertion(fetchSize >= 0, "The fetch size must not be negative");
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * @param header If true (by default), the column labels are written as the first row
+	 */
+	public void setHeader(boolean header) {
+		this.header = header;
+	}
+
+	/**
+	 * @param headerStyle Style of the header row cells; may be null
+	 */
+	public void setHeaderStyle(Style headerStyle) {
+		this.headerStyle = headerStyle;
+	}
+
+	/**
+	 * @param column Column index, starting at 1 as in JDBC
+	 * @param style Style of the cells of the column.  If null, dates take the 
+	 * default date format of the library, and the rest of cells take no style
+	 */
+	public void setColumnStyle(int column, Style style) {
+		columnStyles.put(column, style);
+	}
+
+	/**
+	 * Runs a query and writes its results into a new sheet.  The fetch size is set
+	 * on the statement before running the query, which is where drivers honor it.
+	 * @param sheetName Sheet tab caption
+	 * @param statement Statement to run the query with
+	 * @param sql Query
+	 * @return Number of rows written, not counting the header
+	 * @throws XMLSpreadsheetException If the generator is not in a state to start
+	 * a sheet or any other library-related exception arises
+	 * @throws SQLException If the query fails
+	 */
+	public long export(String sheetName, Statement statement, String sql) 
+			throws XMLSpreadsheetException, SQLException {
+		if (fetchSize > 0) {
+			statement.setFetchSize(fetchSize);
+		}
+		try (var resultSet = statement.executeQuery(sql)) {
+			return export(sheetName, resultSet);
+		}
+	}
+
+	/**
+	 * Writes the remaining rows of a result set into a new sheet
+	 * @param sheetName Sheet tab caption
+	 * @param resultSet Rows to write
+	 * @return Number of rows written, not counting the header
+	 * @throws XMLSpreadsheetException If the generator is not in a state to start
+	 * a sheet or any other library-related exception arises
+	 * @throws SQLException If reading the result set fails
+	 */
+	public long export(String sheetName, ResultSet resultSet) throws XMLSpreadsheetException, SQLException {
+		generator.startSheet(sheetName);
+		long rows = export(resultSet);
+		generator.closeSheet();
+		return rows;
+	}
+
+	/**
+	 * Writes the remaining rows of a result set into the current sheet
+	 * @param resultSet Rows to write
+	 * @return Number of rows written, not counting the header
+	 * @throws XMLSpreadsheetException If the generator is not in a state to write
+	 * rows or any other library-related exception arises
+	 * @throws SQLException If reading the result set fails
+	 */
+	public long export(ResultSet resultSet) throws XMLSpreadsheetException, SQLException {
+		if (fetchSize > 0) {
+			resultSet.setFetchSize(fetchSize);
+		}
+		var metaData = resultSet.getMetaData();
+		int columns = metaData.getColumnCount();
+		var handlers = new ColumnHandler[columns + 1];
+		var styles = new Style[columns + 1];
+		for (int column = 1; column <= columns; column++) {
+			handlers[column] = handler(metaData.getColumnType(column));
+			styles[column] = columnStyles.get(column);
+		}
+		if (header) {
+			generator.startRow();
+			for (int column = 1; column <= columns; column++) {
+				generator.writeCell(headerStyle, metaData.getColumnLabel(column));
+			}
+			generator.closeRow();
+		}
+		long rows = 0;
+		while (resultSet.next()) {
+			generator.startRow();
+			for (int column = 1; column <= columns; column++) {
+				handlers[column].write(resultSet, column, styles[column]);
+			}
+			generator.closeRow();
+			rows++;
+		}
+		return rows;
+	}
+
+	// Chooses the handler for a SQL type
+	private ColumnHandler handler(int sqlType) {
+		return switch (sqlType) {
+			case Types.BIT, Types.BOOLEAN -> this::booleanCell;
+			case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> this::longCell;
+			case Types.REAL, Types.FLOAT, Types.DOUBLE -> this::doubleCell;
+			case Types.DECIMAL, Types.NUMERIC -> this::decimalCell;
+			case Types.DATE -> this::dateCell;
+			case Types.TIME -> this::timeCell;
+			case Types.TIME_WITH_TIMEZONE -> this::offsetTimeCell;
+			case Types.TIMESTAMP -> this::timestampCell;
+			case Types.TIMESTAMP_WITH_TIMEZONE -> this::offsetTimestampCell;
+			default -> this::stringCell;
+		};
+	}
+
+	private void booleanCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		boolean value = resultSet.getBoolean(column);
+		if (resultSet.wasNull()) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value);
+		}
+	}
+
+	private void longCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		long value = resultSet.getLong(column);
+		if (resultSet.wasNull()) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value);
+		}
+	}
+
+	private void doubleCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		double value = resultSet.getDouble(column);
+		if (resultSet.wasNull()) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value);
+		}
+	}
+
+	private void decimalCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		BigDecimal value = resultSet.getBigDecimal(column);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			var integral = value.scale() <= 0 ? value : value.stripTrailingZeros();
+			// No fraction and fits a long: exact
+			if (integral.scale() <= 0 && integral.precision() - integral.scale() <= 18) {
+				generator.writeCell(style, integral.longValue());
+			}
+			else {
+				generator.writeCell(style, value.doubleValue());
+			}
+		}
+	}
+
+	private void dateCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		var value = resultSet.getDate(column);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value.toLocalDate());
+		}
+	}
+
+	private void timeCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		var value = resultSet.getTime(column);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, LocalDateTime.of(TIME_DAY, value.toLocalTime()));
+		}
+	}
+
+	private void offsetTimeCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		var value = resultSet.getObject(column, OffsetTime.class);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, LocalDateTime.of(TIME_DAY, value.toLocalTime()));
+		}
+	}
+
+	private void timestampCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		var value = resultSet.getTimestamp(column);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value.toLocalDateTime());
+		}
+	}
+
+	private void offsetTimestampCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		var value = resultSet.getObject(column, OffsetDateTime.class);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value);
+		}
+	}
+
+	private void stringCell(ResultSet resultSet, int column, Style style) 
+			throws SQLException, XMLSpreadsheetException {
+		var value = resultSet.getString(column);
+		if (value == null) {
+			generator.writeEmptyCell(style);
+		}
+		else {
+			generator.writeCell(style, value);
+		}
+	}
+}
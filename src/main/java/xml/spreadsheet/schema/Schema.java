@@ -0,0 +1,369 @@
+package xml.spreadsheet.schema;
+
+import xml.spreadsheet.Style;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Declares once how objects of a type are written as rows of a sheet: one
+ * column per property, each one with its name, extractor, style and width.
+ * <br/><br/>
+ * <code>
+ * var schema = Schema.of(Order.class)<br/>
+ * &nbsp;&nbsp;.text("customer", Order::customer)<br/>
+ * &nbsp;&nbsp;.number("amount", Order::amount, moneyStyle).withWidth(80d)<br/>
+ * &nbsp;&nbsp;.date("placed", Order::placed);<br/>
+ * schema.export(generator, "orders", orders);
+ * </code>
+ * <br/><br/>
+ * Numbers and booleans are read with primitive extractors, so no value is 
+ * boxed on the way.  The schema is a mutable object: columns should not be 
+ * added to it while it is writing a sheet.
+ * @param <T> Type of the objects written as rows
+ */
+public class Schema<T> {
+
+	/**
+	 * Kinds of column
+	 */
+	private enum Kind { NUMBER, INTEGER, BOOLEAN, TEXT, DATE, DATE_TIME, INSTANT }
+
+	/**
+	 * Column of the schema.  Only the extractor of its kind is not null
+	 */
+	private static final class Column<T> {
+		private final Kind kind;
+		private final String name;
+		private final Style style;
+		private Double width;
+		private final ToDoubleFunction<? super T> doubles;
+		private final ToLongFunction<? super T> longs;
+		private final Predicate<? super T> booleans;
+		private final Function<? super T, ?> objects;
+
+		private Column(Kind kind, String name, Style style, ToDoubleFunction<? super T> doubles, 
+				ToLongFunction<? super T> longs, Predicate<? super T> booleans, Function<? super T, ?> objects) {
+			this.kind = kind;
+			this.name = name;
+			this.style = style;
+			this.doubles = doubles;
+			this.longs = longs;
+			this.booleans = booleans;
+			this.objects = objects;
+		}
+	}
+
+	//---------------------------------------------------------------
+	// Class members
+
+	/** Columns, from left to right */
+	private final List<Column<T>> columns = new ArrayList<>();
+	/** Should the column names be written as a header row? */
+	private boolean header = true;
+	/** Style of the header row */
+	private Style headerStyle = null;
+
+	//---------------------------------------------------------------
+	// Class methods
+
+	// Use the factory method
+	private Schema() {}
+
+	/**
+	 * Builds an empty schema
+	 * @param type Type of the objects written as rows
+	 * @return Schema with no columns
+	 * @param <T> Type of the objects written as rows
+	 */
+	public static <T> Schema<T> of(Class<T> type) {
+		return new Schema<>();
+	}
+
+	// Adds a column after the previous ones
+	private Schema<T> add(Kind kind, String name, Style style, ToDoubleFunction<? super T> doubles, 
+			ToLongFunction<? super T> longs, Predicate<? super T> booleans, Function<? super T, ?> objects) {
+		columns.add(new Column<>(kind, name, style, doubles, longs, booleans, objects));
+		return this;
+	}
+
+	/**
+	 * Adds a number column
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> number(String name, ToDoubleFunction<? super T> extractor) {
+		return number(name, extractor, null);
+	}
+
+	/**
+	 * Adds a number column
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells; may be null
+	 * @return This schema
+	 */
+	public Schema<T> number(String name, ToDoubleFunction<? super T> extractor, Style style) {
+		return add(Kind.NUMBER, name, style, extractor, null, null, null);
+	}
+
+	/**
+	 * Adds an integer number column
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> integer(String name, ToLongFunction<? super T> extractor) {
+		return integer(name, extractor, null);
+	}
+
+	/**
+	 * Adds an integer number column
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells; may be null
+	 * @return This schema
+	 */
+	public Schema<T> integer(String name, ToLongFunction<? super T> extractor, Style style) {
+		return add(Kind.INTEGER, name, style, null, extractor, null, null);
+	}
+
+	/**
+	 * Adds a boolean column
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> bool(String name, Predicate<? super T> extractor) {
+		return bool(name, extractor, null);
+	}
+
+	/**
+	 * Adds a boolean column
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells; may be null
+	 * @return This schema
+	 */
+	public Schema<T> bool(String name, Predicate<? super T> extractor, Style style) {
+		return add(Kind.BOOLEAN, name, style, null, null, extractor, null);
+	}
+
+	/**
+	 * Adds a text column.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> text(String name, Function<? super T, String> extractor) {
+		return text(name, extractor, null);
+	}
+
+	/**
+	 * Adds a text column.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells; may be null
+	 * @return This schema
+	 */
+	public Schema<T> text(String name, Function<? super T, String> extractor, Style style) {
+		return add(Kind.TEXT, name, style, null, null, null, extractor);
+	}
+
+	/**
+	 * Adds a date column.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> date(String name, Function<? super T, LocalDate> extractor) {
+		return date(name, extractor, null);
+	}
+
+	/**
+	 * Adds a date column.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells.  If null, cells take the
+	 * default date format of the library
+	 * @return This schema
+	 */
+	public Schema<T> date(String name, Function<? super T, LocalDate> extractor, Style style) {
+		return add(Kind.DATE, name, style, null, null, null, extractor);
+	}
+
+	/**
+	 * Adds a date and time column.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> dateTime(String name, Function<? super T, LocalDateTime> extractor) {
+		return dateTime(name, extractor, null);
+	}
+
+	/**
+	 * Adds a date and time column.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells.  If null, cells take the
+	 * default date format of the library
+	 * @return This schema
+	 */
+	public Schema<T> dateTime(String name, Function<? super T, LocalDateTime> extractor, Style style) {
+		return add(Kind.DATE_TIME, name, style, null, null, null, extractor);
+	}
+
+	/**
+	 * Adds an instant column, written in local time of the time zone of the
+	 * generator.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @return This schema
+	 */
+	public Schema<T> instant(String name, Function<? super T, Instant> extractor) {
+		return instant(name, extractor, null);
+	}
+
+	/**
+	 * Adds an instant column, written in local time of the time zone of the
+	 * generator.  Null values are written as empty cells
+	 * @param name Name of the column, written in the header
+	 * @param extractor Reads the value of the column from an object
+	 * @param style Style of the column and its cells.  If null, cells take the
+	 * default date format of the library
+	 * @return This schema
+	 */
+	public Schema<T> instant(String name, Function<? super T, Instant> extractor, Style style) {
+		return add(Kind.INSTANT, name, style, null, null, null, extractor);
+	}
+
+	/**
+	 * Sets the width of the last column added
+	 * @param width Width of the column in points
+	 * @return This schema
+	 * @throws IllegalStateException If there are no columns yet
+	 */
+	public Schema<T> withWidth(Double width) {
+		if (columns.isEmpty()) {
+			throw new IllegalStateException("There is no column to set the width to");
+		}
+		columns.get(columns.size() - 1).width = width;
+		return this;
+	}
+
+	/**
+	 * @param header If true (by default), the column names are written as the first row
+	 * @return This schema
+	 */
+	public Schema<T> withHeader(boolean header) {
+		this.header = header;
+		return this;
+	}
+
+	/**
+	 * @param headerStyle Style of the header row cells; may be null
+	 * @return This schema
+	 */
+	public Schema<T> withHeaderStyle(Style headerStyle) {
+		this.headerStyle = headerStyle;
+		return this;
+	}
+
+	/**
+	 * @return Number of columns of the schema
+	 */
+	public int size() {
+		return columns.size();
+	}
+
+	/**
+	 * Writes a whole sheet: its columns section, the header row if enabled, and
+	 * a row for every object
+	 * @param generator Generator to write into; its document must be started
+	 * @param sheetName Sheet tab caption
+	 * @param rows Objects to write
+	 * @return Number of rows written, not counting the header
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	public long export(XMLSpreadsheetGenerator generator, String sheetName, Iterable<? extends T> rows) 
+			throws XMLSpreadsheetException {
+		generator.startSheet(sheetName);
+		writeColumns(generator);
+		if (header) {
+			writeHeader(generator);
+		}
+		long count = writeRows(generator, rows);
+		generator.closeSheet();
+		return count;
+	}
+
+	/**
+	 * Writes the columns section of a sheet, with the style and width of every column
+	 * @param generator Generator to write into, right after starting a sheet
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	public void writeColumns(XMLSpreadsheetGenerator generator) throws XMLSpreadsheetException {
+		generator.startColumns();
+		for (var column: columns) {
+			generator.column(column.style, column.width);
+		}
+		generator.closeColumns();
+	}
+
+	/**
+	 * Writes a row with the names of the columns
+	 * @param generator Generator to write into
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	public void writeHeader(XMLSpreadsheetGenerator generator) throws XMLSpreadsheetException {
+		generator.startRow();
+		for (var column: columns) {
+			generator.writeCell(headerStyle, column.name);
+		}
+		generator.closeRow();
+	}
+
+	/**
+	 * Writes a row for every object
+	 * @param generator Generator to write into
+	 * @param rows Objects to write
+	 * @return Number of rows written
+	 * @throws XMLSpreadsheetException If called in an inappropiate state of the 
+	 * generator or any other library-related exception arises
+	 */
+	public long writeRows(XMLSpreadsheetGenerator generator, Iterable<? extends T> rows) 
+			throws XMLSpreadsheetException {
+		long count = 0;
+		for (T row: rows) {
+			generator.startRow();
+			for (var column: columns) {
+				switch (column.kind) {
+					case NUMBER -> generator.writeCell(column.style, column.doubles.applyAsDouble(row));
+					case INTEGER -> generator.writeCell(column.style, column.longs.applyAsLong(row));
+					case BOOLEAN -> generator.writeCell(column.style, column.booleans.test(row));
+					case TEXT -> generator.writeCell(column.style, (String) column.objects.apply(row));
+					case DATE -> generator.writeCell(column.style, (LocalDate) column.objects.apply(row));
+					case DATE_TIME -> generator.writeCell(column.style, (LocalDateTime) column.objects.apply(row));
+					case INSTANT -> generator.writeCell(column.style, (Instant) column.objects.apply(row));
+				}
+			}
+			generator.closeRow();
+			count++;
+		}
+		return count;
+	}
+}
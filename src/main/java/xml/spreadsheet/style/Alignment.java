@@ -3,8 +3,8 @@
  */
 package xml.spreadsheet.style;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.utils.XmlEmitter;
 
 /**
  * Defines the font alignment attributes to use in this style. 
@@ -66,17 +66,23 @@ public record Alignment(
 	
 	@Override
 	public String toString() {
-		return element(
-			"ss:Alignment",
-			mapOf(
-					"ss:Horizontal", horizontal != null ? horizontal.toString() : null,
-					"ss:Rotate", rotate,
-					"ss:ShrinkToFit", shrinkToFit,
-					"ss:Vertical", vertical != null ? vertical.toString() : null,
-					"ss:VerticalText", verticalText,
-					"ss:WrapText", wrapText
-			)
-		);
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the alignment element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:Alignment")
+			.attribute("ss:Horizontal", horizontal)
+			.attribute("ss:Rotate", rotate)
+			.attribute("ss:ShrinkToFit", shrinkToFit)
+			.attribute("ss:Vertical", vertical)
+			.attribute("ss:VerticalText", verticalText)
+			.attribute("ss:WrapText", wrapText)
+			.closeEmptyElement();
 	}
 
 	/**
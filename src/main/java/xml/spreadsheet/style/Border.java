@@ -3,8 +3,8 @@
  */
 package xml.spreadsheet.style;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.utils.XmlEmitter;
 
 /**
  * Defines a single border within this style's Borders collection. The Borders 
@@ -178,15 +178,21 @@ public record Border(
 	}
 
 	@Override
-	public String toString() {		
-		return element(
-			"ss:Border",
-			mapOf(
-				"ss:Position", position != null ? position.toString() : null,
-				"ss:Color", color,
-				"ss:LineStyle", lineStyle != null ? lineStyle.toString() : null,
-				"ss:Weight", weight
-			)
-		);
+	public String toString() {
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the border element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:Border")
+			.attribute("ss:Position", position)
+			.attribute("ss:Color", color)
+			.attribute("ss:LineStyle", lineStyle)
+			.attribute("ss:Weight", weight)
+			.closeEmptyElement();
 	}
 }
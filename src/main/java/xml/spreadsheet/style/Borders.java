@@ -5,6 +5,7 @@ package xml.spreadsheet.style;
 
 import xml.spreadsheet.XMLSpreadsheetException;
 import xml.spreadsheet.style.Border.BorderPosition;
+import xml.spreadsheet.utils.XmlEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -76,16 +77,21 @@ public record Borders(
 	
 	@Override
 	public String toString() {
-		var sb = new StringBuilder();
-		
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the borders element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
 		if (borders != null && !borders.isEmpty()) {
-			sb.append("<ss:Borders>");
+			emitter.startElement("ss:Borders").closeStartTag();
 			for (Border border: borders.values()) {
-				sb.append(border.toString());
+				border.writeTo(emitter);
 			}
-			sb.append("</ss:Borders>");
+			emitter.endElement("ss:Borders");
 		}
-		
-		return sb.toString();
 	}
 }
@@ -1,7 +1,7 @@
 package xml.spreadsheet.style;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.utils.XmlEmitter;
 
 /**
  * Defines the font attributes to use in this style. 
@@ -97,23 +97,29 @@ public record Font(
 
 	@Override
 	public String toString() {
-		return element(
-			"ss:Font",
-			mapOf(
-				"ss:Bold", bold,
-				"ss:Color", color,
-				"ss:FontName", fontName,
-				"ss:Italic", italic,
-				"ss:Outline", outline,
-				"ss:Shadow", shadow,
-				"ss:Size", size,
-				"ss:StrikeThrough", strikeThrough,
-				"ss:Underline", underline != null ? underline.toString() : null,
-				"ss:VerticalAlign", verticalAlign != null ? verticalAlign.toString() : null,
-				"x:CharSet", charSet,
-				"x:Family", family != null ? family.toString() : null
-			)
-		);
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the font element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:Font")
+			.attribute("ss:Bold", bold)
+			.attribute("ss:Color", color)
+			.attribute("ss:FontName", fontName)
+			.attribute("ss:Italic", italic)
+			.attribute("ss:Outline", outline)
+			.attribute("ss:Shadow", shadow)
+			.attribute("ss:Size", size)
+			.attribute("ss:StrikeThrough", strikeThrough)
+			.attribute("ss:Underline", underline)
+			.attribute("ss:VerticalAlign", verticalAlign)
+			.attribute("x:CharSet", charSet)
+			.attribute("x:Family", family)
+			.closeEmptyElement();
 	}
 	
 	/**
@@ -1,7 +1,7 @@
 package xml.spreadsheet.style;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.utils.XmlEmitter;
 
 /**
  * Defines the fill properties to use in this style. 
@@ -42,13 +42,19 @@ public record Interior(
 	
 	@Override
 	public String toString() {
-		return element(
-			"ss:Interior",
-			mapOf(
-				"ss:Color", color,
-				"ss:Pattern", pattern != null ? pattern.toString() : null
-			)
-		);
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the interior element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:Interior")
+			.attribute("ss:Color", color)
+			.attribute("ss:Pattern", pattern)
+			.closeEmptyElement();
 	}
 	
 	/**
@@ -1,7 +1,7 @@
 package xml.spreadsheet.style;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.utils.XmlEmitter;
 
 /**
  * Defines the number format that should be in cells referencing this style. 
@@ -55,6 +55,15 @@ public record NumberFormat(
 	
 	@Override
 	public String toString() {
-		return element("ss:NumberFormat", mapOf("ss:Format", this.format));
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the number format element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:NumberFormat").attribute("ss:Format", format).closeEmptyElement();
 	}
 }
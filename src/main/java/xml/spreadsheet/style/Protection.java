@@ -1,7 +1,7 @@
 package xml.spreadsheet.style;
 
-import static xml.spreadsheet.utils.MapBuilder.mapOf;
-import static xml.spreadsheet.utils.XmlHelper.element;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.utils.XmlEmitter;
 
 
 /**
@@ -71,12 +71,19 @@ public record Protection(
 
 	@Override
 	public String toString() {
-		return element("ss:Protection",
-			mapOf(
-				"ss:Protected", protectedCell,
-				"x:HideFormula", hideFormula
-			)
-		);
+		return XmlEmitter.render(this::writeTo);
+	}
+
+	/**
+	 * Writes the protection element into an emitter
+	 * @param emitter Destination of the XML representation
+	 * @throws XMLSpreadsheetException If the emitter fails
+	 */
+	public void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException {
+		emitter.startElement("ss:Protection")
+			.attribute("ss:Protected", protectedCell)
+			.attribute("x:HideFormula", hideFormula)
+			.closeEmptyElement();
 	}
 	
 	
@@ -0,0 +1,273 @@
+package xml.spreadsheet.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Output stream that writes a file through an <code>AsynchronousFileChannel</code>,
+ * with several writes in flight at the same time, so that the latency of every
+ * write is not paid by the thread that produces the bytes.
+ * <br/>
+ * Bytes are staged in a set of direct buffers.  Every full buffer is written at
+ * the next position of the file, and the producer goes on with another buffer
+ * right away; buffers are taken back as soon as their write completes, in any
+ * order.  The producer only waits when every buffer is being written.
+ * <br/>
+ * Failures of the writes are raised on the next write, on <code>flush</code> or 
+ * on <code>close</code>.  <code>flush</code> waits for every write in flight; 
+ * <code>close</code> waits as well, and truncates the file to the bytes written.
+ * The stream must be written by one thread at a time.
+ */
+public class AsyncFileOutputStream extends OutputStream {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default buffer size, in bytes */
+	private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every stream is tied to an AsynchronousFileChannel */
+	private final AsynchronousFileChannel channel;
+	/** Buffers ready to be filled */
+	private final Queue<Write> free = new ConcurrentLinkedQueue<>();
+	/** Completes the writes, and takes their buffers back */
+	private final Handler handler = new Handler();
+	/** Writes in flight */
+	private final AtomicInteger inFlight = new AtomicInteger();
+	/** Producer waiting for a buffer, if any */
+	private volatile Thread waiting;
+	/** First failure of a write */
+	private volatile Throwable failure;
+
+	/** Buffer being filled */
+	private Write current;
+	/** Position of the file where the current buffer goes */
+	private long position;
+	/** Has the stream been closed? */
+	private boolean closed = false;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * A buffer, and where it is being written
+	 */
+	private static final class Write {
+		/** Staged bytes */
+		private final ByteBuffer buffer;
+		/** Position of the file where the remaining bytes go */
+		private long position;
+
+		Write(int bufferSize) {
+			this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		}
+	}
+
+	/**
+	 * Completion of the writes: a write goes on until its buffer is done
+	 */
+	private final class Handler implements CompletionHandler<Integer, Write> {
+		@Override
+		public void completed(Integer written, Write write) {
+			if (write.buffer.hasRemaining()) {
+				write.position += written;
+				try {
+					channel.write(write.buffer, write.position, write, this);
+				} catch (RuntimeException e) {
+					failed(e, write);
+				}
+				return;
+			}
+			release(write);
+		}
+
+		@Override
+		public void failed(Throwable exc, Write write) {
+			if (failure == null) {
+				failure = exc;
+			}
+			release(write);
+		}
+	}
+
+	/**
+	 * Builds a stream that writes a file, with the default buffer size
+	 * @param file File to write
+	 * @param buffers Number of buffers; at least two, so that one can be filled
+	 * while another one is written
+	 * @param options How the file is opened, as in <code>Files.newOutputStream</code>:
+	 * if there are none, it is created, or overwritten if it exists
+	 * @throws IOException If the file cannot be opened
+	 */
+	public AsyncFileOutputStream(Path file, int buffers, OpenOption... options) throws IOException {
+		this(AsynchronousFileChannel.open(file, openOptions(options), null), 0, DEFAULT_BUFFER_SIZE, buffers);
+	}
+
+	/**
+	 * Builds a stream that writes a channel from a position
+	 * @param channel Where the stream is going to write its output to; it is 
+	 * closed along with the stream
+	 * @param position Position of the first byte
+	 * @param bufferSize Size of every buffer, in bytes
+	 * @param buffers Number of buffers; at least two, so that one can be filled
+	 * while another one is written
+	 */
+	public AsyncFileOutputStream(AsynchronousFileChannel channel, long position, int bufferSize, int buffers) {
+		if (bufferSize <= 0 || buffers < 2) {
+			throw new IllegalArgumentException("There must be at least two buffers of one byte");
+		}
+		this.channel = channel;
+		this.position = position;
+		for (int i = 0; i < buffers; i++) {
+			free.add(new Write(bufferSize));
+		}
+		this.current = free.poll();
+	}
+
+	// Options to open a file for writing: the ones given, or the default ones
+	private static HashSet<OpenOption> openOptions(OpenOption... options) {
+		var set = new HashSet<OpenOption>(options.length == 0 
+			? List.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+			: List.of(options));
+		set.add(StandardOpenOption.WRITE);
+		return set;
+	}
+
+	// Takes a buffer back once its write is over, and wakes the producer up
+	private void release(Write write) {
+		free.add(write);
+		inFlight.decrementAndGet();
+		var thread = waiting;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	// Raises the failure of a write, if any
+	private void checkFailure() throws IOException {
+		var e = failure;
+		if (e != null) {
+			throw new IOException("The output failed: " + e.getMessage(), e);
+		}
+	}
+
+	// Fails if the stream is closed, or a write has failed
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed");
+		}
+		checkFailure();
+	}
+
+	// Writes the current buffer, if there is anything in it, and takes another 
+	//	one, waiting if every one is in flight
+	private void dispatch() throws IOException {
+		var write = current;
+		if (write.buffer.position() > 0) {
+			write.buffer.flip();
+			write.position = position;
+			position += write.buffer.remaining();
+			inFlight.incrementAndGet();
+			try {
+				channel.write(write.buffer, write.position, write, handler);
+			} catch (RuntimeException e) {
+				handler.failed(e, write);
+			}
+			current = takeBuffer();
+			checkFailure();
+		}
+	}
+
+	// Takes a free buffer, waiting for one if needed
+	private Write takeBuffer() {
+		var write = free.poll();
+		if (write == null) {
+			waiting = Thread.currentThread();
+			while ((write = free.poll()) == null) {
+				LockSupport.park(this);
+			}
+			waiting = null;
+		}
+		write.buffer.clear();
+		return write;
+	}
+
+	// Waits until no write is in flight
+	private void awaitWrites() {
+		if (inFlight.get() > 0) {
+			waiting = Thread.currentThread();
+			while (inFlight.get() > 0) {
+				LockSupport.park(this);
+			}
+			waiting = null;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkOpen();
+		if (!current.buffer.hasRemaining()) {
+			dispatch();
+		}
+		current.buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkOpen();
+		while (len > 0) {
+			if (!current.buffer.hasRemaining()) {
+				dispatch();
+			}
+			int count = Math.min(len, current.buffer.remaining());
+			current.buffer.put(b, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		dispatch();
+		awaitWrites();
+		checkFailure();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			checkFailure();
+			dispatch();
+			awaitWrites();
+			checkFailure();
+			channel.truncate(position);
+		} finally {
+			closed = true;
+			// No write is left behind the channel
+			try {
+				awaitWrites();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
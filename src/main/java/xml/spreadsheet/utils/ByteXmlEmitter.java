@@ -0,0 +1,270 @@
+package xml.spreadsheet.utils;
+
+import xml.spreadsheet.XMLSpreadsheetException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Emitter that buffers bytes and writes them straight into an
+ * <code>OutputStream</code>.  <code>Markup</code> constants and numbers are
+ * copied as they are; only text goes through the encoder, which writes either
+ * UTF-8 or windows-1252 (cp1252).
+ * <br/>
+ * The UTF-8 encoder copies runs of ASCII characters in bulk, and only
+ * branches for characters that take several bytes.  In cp1252, characters 
+ * that cannot be represented are written as <code>?</code>, just as the JDK
+ * encoder does; the same goes for unpaired surrogates in UTF-8.
+ */
+public class ByteXmlEmitter extends XmlEmitter {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default buffer size, in bytes */
+	private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+	/** Written in place of the characters that cannot be encoded */
+	private static final byte REPLACEMENT = '?';
+	/** Legacy encoding */
+	private static final Charset CP1252 = Charset.forName("windows-1252");
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every emitter is tied to an OutputStream */
+	private final OutputStream output;
+	/** Pending bytes */
+	private final byte[] buffer;
+	/** First free position of the buffer */
+	private int position = 0;
+	/** UTF-8 or cp1252 */
+	private final boolean utf8;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds an emitter tied to an output stream, with the default buffer size,
+	 * writing UTF-8
+	 * @param output Where the emitter is going to write its output to
+	 */
+	public ByteXmlEmitter(OutputStream output) {
+		this(output, DEFAULT_BUFFER_SIZE, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Builds an emitter tied to an output stream
+	 * @param output Where the emitter is going to write its output to
+	 * @param bufferSize Size of the internal buffer, in bytes
+	 * @param charset Either UTF-8 or windows-1252
+	 */
+	public ByteXmlEmitter(OutputStream output, int bufferSize, Charset charset) {
+		if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(CP1252)) {
+			throw new IllegalArgumentException("Unsupported charset: " + charset);
+		}
+		this.output = output;
+		this.buffer = new byte[Math.max(bufferSize, 16)];
+		this.utf8 = charset.equals(StandardCharsets.UTF_8);
+	}
+
+	// Encodes a non ASCII character into cp1252.  It is the same as ISO-8859-1
+	//	but for the 0x80-0x9F range, which holds some typographic characters
+	private static byte encode(char c) {
+		if (c >= 0xA0 && c <= 0xFF) {
+			return (byte) c;
+		}
+		return switch (c) {
+			case '\u20AC' -> (byte) 0x80;
+			case '\u201A' -> (byte) 0x82;
+			case '\u0192' -> (byte) 0x83;
+			case '\u201E' -> (byte) 0x84;
+			case '\u2026' -> (byte) 0x85;
+			case '\u2020' -> (byte) 0x86;
+			case '\u2021' -> (byte) 0x87;
+			case '\u02C6' -> (byte) 0x88;
+			case '\u2030' -> (byte) 0x89;
+			case '\u0160' -> (byte) 0x8A;
+			case '\u2039' -> (byte) 0x8B;
+			case '\u0152' -> (byte) 0x8C;
+			case '\u017D' -> (byte) 0x8E;
+			case '\u2018' -> (byte) 0x91;
+			case '\u2019' -> (byte) 0x92;
+			case '\u201C' -> (byte) 0x93;
+			case '\u201D' -> (byte) 0x94;
+			case '\u2022' -> (byte) 0x95;
+			case '\u2013' -> (byte) 0x96;
+			case '\u2014' -> (byte) 0x97;
+			case '\u02DC' -> (byte) 0x98;
+			case '\u2122' -> (byte) 0x99;
+			case '\u0161' -> (byte) 0x9A;
+			case '\u203A' -> (byte) 0x9B;
+			case '\u0153' -> (byte) 0x9C;
+			case '\u017E' -> (byte) 0x9E;
+			case '\u0178' -> (byte) 0x9F;
+			default -> REPLACEMENT;
+		};
+	}
+
+	@Override
+	protected void flushBuffer() throws XMLSpreadsheetException {
+		if (position > 0) {
+			try {
+				output.write(buffer, 0, position);
+			} catch (IOException ioe) {
+				throw new XMLSpreadsheetException(ioe);
+			}
+			position = 0;
+		}
+	}
+
+	@Override
+	protected void append(char c) throws XMLSpreadsheetException {
+		if (c >= 0x80 && utf8) {
+			if (Character.isSurrogate(c)) {
+				// Half a pair, on its own
+				appendUtf8(String.valueOf(c), 0, 1);
+				return;
+			}
+			if (buffer.length - position < 3) {
+				flushBuffer();
+			}
+			appendUtf8(c);
+			return;
+		}
+		if (position == buffer.length) {
+			flushBuffer();
+		}
+		buffer[position++] = c < 0x80 ? (byte) c : encode(c);
+	}
+
+	// Encodes a non ASCII character of the BMP, other than a surrogate, into 
+	//	UTF-8.  There must be room for 3 bytes
+	private void appendUtf8(char c) {
+		if (c < 0x800) {
+			buffer[position++] = (byte) (0xC0 | c >> 6);
+			buffer[position++] = (byte) (0x80 | c & 0x3F);
+		}
+		else {
+			buffer[position++] = (byte) (0xE0 | c >> 12);
+			buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+			buffer[position++] = (byte) (0x80 | c & 0x3F);
+		}
+	}
+
+	@Override
+	protected void append(String s, int from, int to) throws XMLSpreadsheetException {
+		if (utf8) {
+			appendUtf8(s, from, to);
+		}
+		else {
+			appendCp1252(s, from, to);
+		}
+	}
+
+	// Encodes a section of a String into UTF-8
+	private void appendUtf8(String s, int from, int to) throws XMLSpreadsheetException {
+		while (from < to) {
+			if (buffer.length - position < 4) {
+				flushBuffer();
+			}
+			// Run of ASCII characters, copied with no further checks
+			int end = from + Math.min(to - from, buffer.length - position);
+			int run = from;
+			for (char ascii; run < end && (ascii = s.charAt(run)) < 0x80; run++) {
+				buffer[position++] = (byte) ascii;
+			}
+			if (run > from) {
+				from = run;
+				continue;
+			}
+			char c = s.charAt(from++);
+			if (!Character.isSurrogate(c)) {
+				appendUtf8(c);
+			}
+			else if (Character.isHighSurrogate(c) && from < to && Character.isLowSurrogate(s.charAt(from))) {
+				int codePoint = Character.toCodePoint(c, s.charAt(from++));
+				buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+				buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+				buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+				buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+			}
+			else {
+				buffer[position++] = REPLACEMENT;
+			}
+		}
+	}
+
+	// Encodes a section of a String into cp1252
+	private void appendCp1252(String s, int from, int to) throws XMLSpreadsheetException {
+		while (from < to) {
+			if (position == buffer.length) {
+				flushBuffer();
+			}
+			// Every character takes a single byte
+			int end = from + Math.min(to - from, buffer.length - position);
+			while (from < end) {
+				char c = s.charAt(from++);
+				if (c < 0x80) {
+					buffer[position++] = (byte) c;
+				}
+				else {
+					// A surrogate pair is a single character that cannot be encoded
+					if (Character.isHighSurrogate(c) && from < to && Character.isLowSurrogate(s.charAt(from))) {
+						from++;
+					}
+					buffer[position++] = encode(c);
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void appendAscii(byte[] ascii, int from, int to) throws XMLSpreadsheetException {
+		int length = to - from;
+		if (length > buffer.length - position) {
+			flushBuffer();
+			if (length > buffer.length) {
+				try {
+					output.write(ascii, from, length);
+				} catch (IOException ioe) {
+					throw new XMLSpreadsheetException(ioe);
+				}
+				return;
+			}
+		}
+		System.arraycopy(ascii, from, buffer, position, length);
+		position += length;
+	}
+
+	@Override
+	public XmlEmitter encoded(byte[] bytes, int from, int to, Charset charset) throws XMLSpreadsheetException {
+		if (charset.equals(utf8 ? StandardCharsets.UTF_8 : CP1252)) {
+			// Copied as it is
+			appendAscii(bytes, from, to);
+			return this;
+		}
+		return super.encoded(bytes, from, to, charset);
+	}
+
+	@Override
+	public void flush() throws XMLSpreadsheetException {
+		flushBuffer();
+		try {
+			output.flush();
+		} catch (IOException ioe) {
+			throw new XMLSpreadsheetException(ioe);
+		}
+	}
+
+	@Override
+	public void close() throws XMLSpreadsheetException {
+		flushBuffer();
+		try {
+			output.close();
+		} catch (IOException ioe) {
+			throw new XMLSpreadsheetException(ioe);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package xml.spreadsheet.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream that keeps the document in memory until it is drained into a 
+ * non-blocking channel, so that a generator can be driven from an event loop
+ * without ever blocking it.  It can be drained into an array as well.
+ * <br/>
+ * The buffer has a capacity and a limit.  Writes never block: the capacity is
+ * the point where the buffer <code>isFull</code>, and it is up to the caller to
+ * stop producing then, and to drain it when the channel is ready for writing.
+ * A generator call that starts below the capacity may take the buffer somewhat
+ * beyond it (the buffer size of the generator, plus whatever the call writes),
+ * up to the limit; a write that would take it past the limit fails instead, so
+ * memory is bounded whatever the caller does.  The generator holds part of the
+ * document in its own buffer, which its <code>flush</code> pushes into this one,
+ * for instance when the rows stop for a while:<br/><br/>
+ * <code>
+ * while (!output.isFull() &amp;&amp; rows.hasNext()) { generator.writeRow(...); }<br/>
+ * if (!rows.hasNext()) { generator.flush(); }<br/>
+ * output.drainTo(channel);<br/>
+ * if (output.hasPendingOutput()) { // wait for OP_WRITE }
+ * </code><br/>
+ * Closing the stream (as the generator does with the document) only marks it 
+ * as complete: the end of the document is still there to be drained.  The 
+ * buffer must be used by one thread at a time, which is the case in an event loop.
+ */
+public class ChannelOutputBuffer extends OutputStream {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Largest limit an array can hold */
+	public static final int MAX_LIMIT = Integer.MAX_VALUE - 8;
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Bytes held before the buffer is considered full */
+	private final int capacity;
+	/** Bytes the buffer can ever hold */
+	private final int limit;
+	/** Pending bytes, between start and end */
+	private byte[] buffer;
+	/** First pending byte */
+	private int start = 0;
+	/** Position after the last pending byte */
+	private int end = 0;
+	/** Has the stream been closed? */
+	private boolean closed = false;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds an empty buffer that holds up to twice its capacity
+	 * @param capacity Bytes held before the buffer is full
+	 */
+	public ChannelOutputBuffer(int capacity) {
+		this(capacity, (int) Math.min(2L * capacity, MAX_LIMIT));
+	}
+
+	/**
+	 * Builds an empty buffer
+	 * @param capacity Bytes held before the buffer is full
+	 * @param limit Bytes the buffer can ever hold; it must not be below the capacity,
+	 * and leave room for the call that fills the buffer
+	 */
+	public ChannelOutputBuffer(int capacity, int limit) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		if (limit < capacity || limit > MAX_LIMIT) {
+			throw new IllegalArgumentException("The limit must be between the capacity and " + MAX_LIMIT);
+		}
+		this.capacity = capacity;
+		this.limit = limit;
+		this.buffer = new byte[capacity];
+	}
+
+	/**
+	 * @return Are there bytes waiting to be drained?
+	 */
+	public boolean hasPendingOutput() {
+		return end > start;
+	}
+
+	/**
+	 * @return Number of bytes waiting to be drained
+	 */
+	public int getPendingBytes() {
+		return end - start;
+	}
+
+	/**
+	 * @return Are there at least as many bytes waiting as the capacity?  If so, 
+	 * the buffer should be drained before writing more
+	 */
+	public boolean isFull() {
+		return end - start >= capacity;
+	}
+
+	/**
+	 * @return Has the stream been closed, and every byte drained?
+	 */
+	public boolean isComplete() {
+		return closed && !hasPendingOutput();
+	}
+
+	/**
+	 * Writes as many pending bytes as the channel takes, without waiting for it
+	 * @param channel Channel to write into; usually in non-blocking mode
+	 * @return Number of bytes written
+	 * @throws IOException If the channel fails
+	 */
+	public int drainTo(WritableByteChannel channel) throws IOException {
+		int written = 0;
+		if (hasPendingOutput()) {
+			var bytes = ByteBuffer.wrap(buffer, start, end - start);
+			int count;
+			while (bytes.hasRemaining() && (count = channel.write(bytes)) > 0) {
+				written += count;
+			}
+			start = bytes.position();
+			if (start == end) {
+				start = end = 0;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Copies pending bytes into an array, as an <code>InputStream</code> would
+	 * @param destination Where to copy the bytes
+	 * @param off First position to copy to
+	 * @param len Maximum number of bytes to copy
+	 * @return Number of bytes copied
+	 */
+	public int drainTo(byte[] destination, int off, int len) {
+		int count = Math.min(len, end - start);
+		System.arraycopy(buffer, start, destination, off, count);
+		start += count;
+		if (start == end) {
+			start = end = 0;
+		}
+		return count;
+	}
+
+	// Makes room for a number of bytes after the pending ones, up to the limit
+	private void ensureRoom(int length) throws IOException {
+		if (buffer.length - end < length) {
+			int pending = end - start;
+			if ((long) pending + length > limit) {
+				throw new IOException("The buffer cannot hold more than " + limit 
+					+ " bytes; nothing must be written while it is full");
+			}
+			if (buffer.length - pending >= length) {
+				System.arraycopy(buffer, start, buffer, 0, pending);
+			}
+			else {
+				var grown = new byte[(int) Math.min(Math.max(2L * buffer.length, pending + length), limit)];
+				System.arraycopy(buffer, start, grown, 0, pending);
+				buffer = grown;
+			}
+			start = 0;
+			end = pending;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed");
+		}
+		ensureRoom(len);
+		System.arraycopy(b, off, buffer, end, len);
+		end += len;
+	}
+
+	/**
+	 * Marks the stream as complete; pending bytes are kept until drained
+	 */
+	@Override
+	public void close() {
+		closed = true;
+	}
+}
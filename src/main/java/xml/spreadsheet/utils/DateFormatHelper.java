@@ -1,21 +1,32 @@
 package xml.spreadsheet.utils;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
 /**
- * Offers support for date format across the entire library
+ * Offers support for date format across the entire library.  Dates are written
+ * as <code>yyyy-MM-ddTHH:mm:ss.SSS</code> (1987-10-30T00:00:00.000), as ASCII
+ * characters straight into a byte buffer.  There is no shared state, so every
+ * method is safe to use from several threads at once.
  */
 public class DateFormatHelper {
 
 	//------------------------------------------------------------------
-	// Class properties
+	// Class constants
+
+	/** Maximum number of characters needed to write a date */
+	public static final int MAX_DATE_TIME_LENGTH = 32;
+
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+	/** Days from 0000-03-01 to 1970-01-01 */
+	private static final long DAYS_0000_TO_1970 = 719_468L;
+	/** Days in a 400 years cycle */
+	private static final long DAYS_PER_CYCLE = 146_097L;
 
-	/** Date format: 1987-10-30T00:00:00.000 */
-	private static DateFormat DATE_FORMAT = 
-		new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");		
-	
 	//------------------------------------------------------------------
 	// Class methods
 	
@@ -23,15 +34,100 @@ public class DateFormatHelper {
 	private DateFormatHelper() {}	
 
 	/**
-	 * Formats a date to the necessary format
+	 * Formats a date to the necessary format, in the default time zone of the system
 	 * @param d Date value
 	 * @return String presentation of the date
 	 */
 	public static String format(Date d) {
 		String ret = null;
 		if (d != null) {
-			ret = DATE_FORMAT.format(d);
+			var buffer = new byte[MAX_DATE_TIME_LENGTH];
+			var offset = ZoneId.systemDefault().getRules().getOffset(d.toInstant());
+			var localMillis = d.getTime() + offset.getTotalSeconds() * 1000L;
+			ret = new String(buffer, 0, writeEpochMillis(localMillis, buffer, 0), ISO_8859_1);
 		}
 		return ret;
 	}
+
+	/**
+	 * Writes a date at midnight into a buffer
+	 * @param date Date to write
+	 * @param buffer Destination; it must have room for at least <code>MAX_DATE_TIME_LENGTH</code>
+	 * characters after <code>position</code>
+	 * @param position Where to start writing
+	 * @return Position right after the last character written
+	 */
+	public static int writeDate(LocalDate date, byte[] buffer, int position) {
+		return writeDateTime(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), 0, 0, 0, 0, buffer, position);
+	}
+
+	/**
+	 * Writes a date and time into a buffer, truncated to milliseconds
+	 * @param dateTime Date and time to write
+	 * @param buffer Destination; it must have room for at least <code>MAX_DATE_TIME_LENGTH</code>
+	 * characters after <code>position</code>
+	 * @param position Where to start writing
+	 * @return Position right after the last character written
+	 */
+	public static int writeDateTime(LocalDateTime dateTime, byte[] buffer, int position) {
+		return writeDateTime(dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(),
+			dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond(), dateTime.getNano() / 1_000_000,
+			buffer, position);
+	}
+
+	/**
+	 * Writes into a buffer the date and time found at a number of milliseconds from
+	 * 1970-01-01T00:00:00.000, with no time zone involved
+	 * @param localMillis Milliseconds from the local epoch; see <code>ZoneOffsetCache</code>
+	 * @param buffer Destination; it must have room for at least <code>MAX_DATE_TIME_LENGTH</code>
+	 * characters after <code>position</code>
+	 * @param position Where to start writing
+	 * @return Position right after the last character written
+	 */
+	public static int writeEpochMillis(long localMillis, byte[] buffer, int position) {
+		long epochDay = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+		int millisOfDay = (int) Math.floorMod(localMillis, MILLIS_PER_DAY);
+		// Civil date from the day count, on years starting on March so that the
+		//	leap day is the last one of the year
+		long shifted = epochDay + DAYS_0000_TO_1970;
+		long cycle = Math.floorDiv(shifted, DAYS_PER_CYCLE);
+		long dayOfCycle = shifted - cycle * DAYS_PER_CYCLE;
+		long yearOfCycle = (dayOfCycle - dayOfCycle / 1460 + dayOfCycle / 36524 - dayOfCycle / 146096) / 365;
+		long dayOfYear = dayOfCycle - (365 * yearOfCycle + yearOfCycle / 4 - yearOfCycle / 100);
+		int monthFromMarch = (int) ((5 * dayOfYear + 2) / 153);
+		int day = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+		int month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+		int year = (int) (yearOfCycle + cycle * 400 + (month <= 2 ? 1 : 0));
+		int seconds = millisOfDay / 1000;
+		return writeDateTime(year, month, day, seconds / 3600, seconds / 60 % 60, seconds % 60, millisOfDay % 1000,
+			buffer, position);
+	}
+
+	// Writes every field in the yyyy-MM-ddTHH:mm:ss.SSS format
+	private static int writeDateTime(int year, int month, int day, int hour, int minute, int second, int millis,
+			byte[] buffer, int position) {
+		if (year >= 0 && year < 10_000) {
+			NumberFormatHelper.writePair(year / 100, buffer, position);
+			NumberFormatHelper.writePair(year % 100, buffer, position + 2);
+			position += 4;
+		}
+		else {
+			// Out of the range of any spreadsheet product anyway
+			position = NumberFormatHelper.writeLong(year, buffer, position);
+		}
+		buffer[position] = '-';
+		NumberFormatHelper.writePair(month, buffer, position + 1);
+		buffer[position + 3] = '-';
+		NumberFormatHelper.writePair(day, buffer, position + 4);
+		buffer[position + 6] = 'T';
+		NumberFormatHelper.writePair(hour, buffer, position + 7);
+		buffer[position + 9] = ':';
+		NumberFormatHelper.writePair(minute, buffer, position + 10);
+		buffer[position + 12] = ':';
+		NumberFormatHelper.writePair(second, buffer, position + 13);
+		buffer[position + 15] = '.';
+		buffer[position + 16] = (byte) ('0' + millis / 100);
+		NumberFormatHelper.writePair(millis % 100, buffer, position + 17);
+		return position + 19;
+	}
 }
@@ -0,0 +1,231 @@
+package xml.spreadsheet.utils;
+
+import java.math.BigInteger;
+
+import static java.lang.Math.multiplyHigh;
+
+/**
+ * Shortest decimal representation of a double, after the Schubfach algorithm by
+ * Raffaello Giulietti.  The digits written are the fewest that round-trip back
+ * to the very same double when parsed, choosing the closest to the exact binary
+ * value if there are several candidates.
+ * <br/>
+ * Values are written in plain notation (<code>0.000123</code>, <code>123.45</code>,
+ * <code>1000000</code>) unless they are very small or very large, in which case
+ * they get the scientific notation that spreadsheet products use (<code>1.5E+300</code>).
+ * @see <a href="https://drive.google.com/file/d/1gp5xv4CAa78SVgCeWfGqqI4FfYYYuNFb">The Schubfach way to render doubles</a>
+ */
+final class DoubleToDecimal {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Precision of a double, in bits */
+	private static final int P = 53;
+	/** Exponent width, in bits */
+	private static final int W = 11;
+	/** Minimum exponent of the binary representation */
+	private static final int Q_MIN = -1074;
+	/** Minimum significand of a normal value */
+	private static final long C_MIN = 1L << P - 1;
+	/** Subnormal significands below this one need an additional digit */
+	private static final int C_TINY = 3;
+	/** Significand mask */
+	private static final long T_MASK = (1L << P - 1) - 1;
+	/** Biased exponent mask */
+	private static final int BQ_MASK = (1 << W) - 1;
+	private static final long MASK_63 = (1L << 63) - 1;
+
+	/** Range of the decimal exponents covered by the g table */
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+
+	/** Values whose first digit is placed outside this range get the scientific notation */
+	private static final int PLAIN_MIN = -5;
+	private static final int PLAIN_MAX = 21;
+
+	/** Higher (g1) and lower (g0) 63 bits of floor(10^-k 2^-r) + 1, with 2^125 &lt;= 10^-k 2^-r &lt; 2^126 */
+	private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	static {
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int r = flog2pow10(-k) - 125;
+			var numerator = k <= 0 ? BigInteger.TEN.pow(-k) : BigInteger.ONE;
+			var denominator = k <= 0 ? BigInteger.ONE : BigInteger.TEN.pow(k);
+			if (r <= 0) {
+				numerator = numerator.shiftLeft(-r);
+			}
+			else {
+				denominator = denominator.shiftLeft(r);
+			}
+			var g = numerator.divide(denominator).add(BigInteger.ONE);
+			G[2 * (k - K_MIN)] = g.shiftRight(63).longValueExact();
+			G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+		}
+	}
+
+	// We do not want this to be instantiated
+	private DoubleToDecimal() {}
+
+	// floor(log10(2^e))
+	private static int flog10pow2(int e) {
+		return (int) (e * 661_971_961_083L >> 41);
+	}
+
+	// floor(log10(3/4 2^e))
+	private static int flog10threeQuartersPow2(int e) {
+		return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+	}
+
+	// floor(log2(10^e))
+	private static int flog2pow10(int e) {
+		return (int) (e * 913_124_641_741L >> 38);
+	}
+
+	// Rounds to odd the product of g and cp
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	/**
+	 * Writes the shortest decimal representation of a finite double into a buffer
+	 * @param v Finite value to write
+	 * @param buffer Destination
+	 * @param position Where to start writing
+	 * @return Position right after the last character written
+	 */
+	static int write(double v, byte[] buffer, int position) {
+		long bits = Double.doubleToRawLongBits(v);
+		long t = bits & T_MASK;
+		int bq = (int) (bits >>> P - 1) & BQ_MASK;
+		if (bits < 0) {
+			buffer[position++] = '-';
+		}
+		if (bq != 0) {
+			// Normal value: v = c 2^q
+			int mq = -Q_MIN + 1 - bq;
+			long c = C_MIN | t;
+			// Integers are their own shortest representation
+			if (0 < mq & mq < P) {
+				long f = c >> mq;
+				if (f << mq == c) {
+					return toChars(f, 0, buffer, position);
+				}
+			}
+			return toDecimal(-mq, c, 0, buffer, position);
+		}
+		if (t != 0) {
+			// Subnormal value
+			return t < C_TINY
+				? toDecimal(Q_MIN, 10 * t, -1, buffer, position)
+				: toDecimal(Q_MIN, t, 0, buffer, position);
+		}
+		buffer[position++] = '0';
+		return position;
+	}
+
+	// Finds the shortest decimal f 10^e in the rounding interval of c 2^q
+	private static int toDecimal(int q, long c, int dk, byte[] buffer, int position) {
+		int out = (int) c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != C_MIN | q == Q_MIN) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		}
+		else {
+			// The interval is asymmetric at powers of two
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+		long g1 = G[2 * (k - K_MIN)];
+		long g0 = G[2 * (k - K_MIN) + 1];
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+		long s = vb >> 2;
+		if (s >= 100) {
+			// s / 10 * 10, through a multiplication
+			long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				return toChars(upin ? sp10 : tp10, k, buffer, position);
+			}
+		}
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			return toChars(uin ? s : t, k + dk, buffer, position);
+		}
+		// Both candidates are in the interval: take the closest one, or the even one on ties
+		long cmp = vb - (s + t << 1);
+		return toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, position);
+	}
+
+	// Renders f 10^e
+	private static int toChars(long f, int e, byte[] buffer, int position) {
+		while (f % 10 == 0) {
+			f /= 10;
+			e++;
+		}
+		int length = NumberFormatHelper.digits(f);
+		// Position of the decimal point, relative to the first digit
+		int point = length + e;
+		if (point > PLAIN_MAX || point < PLAIN_MIN) {
+			// d.dddE+x
+			buffer[position] = '0';
+			NumberFormatHelper.writeDigits(f, buffer, position + 1 + length);
+			buffer[position] = buffer[position + 1];
+			if (length > 1) {
+				buffer[position + 1] = '.';
+				position += length + 1;
+			}
+			else {
+				position++;
+			}
+			buffer[position++] = 'E';
+			buffer[position++] = (byte) (point > 0 ? '+' : '-');
+			return NumberFormatHelper.writeLong(Math.abs(point - 1), buffer, position);
+		}
+		if (point <= 0) {
+			// 0.000ddd
+			buffer[position++] = '0';
+			buffer[position++] = '.';
+			for (int i = point; i < 0; i++) {
+				buffer[position++] = '0';
+			}
+			position += length;
+			NumberFormatHelper.writeDigits(f, buffer, position);
+			return position;
+		}
+		if (point < length) {
+			// ddd.ddd: write the digits one place to the right, then move the
+			//	integral ones back to make room for the point
+			NumberFormatHelper.writeDigits(f, buffer, position + length + 1);
+			System.arraycopy(buffer, position + 1, buffer, position, point);
+			buffer[position + point] = '.';
+			return position + length + 1;
+		}
+		// ddd000
+		position += length;
+		NumberFormatHelper.writeDigits(f, buffer, position);
+		for (int i = length; i < point; i++) {
+			buffer[position++] = '0';
+		}
+		return position;
+	}
+}
@@ -0,0 +1,159 @@
+package xml.spreadsheet.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writer that encodes characters straight into a byte buffer, and hands it 
+ * down to an <code>OutputStream</code> when it is full or when flushed.
+ * <br/>
+ * It writes the very same bytes as an <code>OutputStreamWriter</code>, characters
+ * that cannot be encoded included, but it is meant to be owned by a single thread:
+ * no monitor nor lock is ever taken, so a virtual thread blocked on the output 
+ * does not pin its carrier.  A surrogate pair split across two writes is kept
+ * until the second half arrives.
+ */
+public final class EncodingWriter extends Writer {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default buffer size, in bytes */
+	private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every writer is tied to an OutputStream */
+	private final OutputStream output;
+	/** Encoder of the charset, replacing what it cannot encode */
+	private final CharsetEncoder encoder;
+	/** Pending bytes */
+	private final ByteBuffer buffer;
+	/** First half of a surrogate pair, waiting for the second one */
+	private final CharBuffer pair = CharBuffer.allocate(2);
+	/** Is there a first half waiting? */
+	private boolean pending = false;
+	/** Has the writer been closed? */
+	private boolean closed = false;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a writer tied to an output stream, with the default buffer size
+	 * @param output Where the writer is going to write its output to
+	 * @param charset Charset to encode characters with
+	 */
+	public EncodingWriter(OutputStream output, Charset charset) {
+		this(output, charset, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Builds a writer tied to an output stream
+	 * @param output Where the writer is going to write its output to
+	 * @param charset Charset to encode characters with
+	 * @param bufferSize Size of the internal buffer, in bytes
+	 */
+	public EncodingWriter(OutputStream output, Charset charset, int bufferSize) {
+		this.output = output;
+		this.encoder = charset.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.buffer = ByteBuffer.allocate(Math.max(bufferSize, 16));
+	}
+
+	// Encodes as much of the input as possible, writing the buffer down every
+	//	time it gets full
+	private void encode(CharBuffer input, boolean endOfInput) throws IOException {
+		while (true) {
+			CoderResult result = encoder.encode(input, buffer, endOfInput);
+			if (!result.isOverflow()) {
+				return;
+			}
+			flushBuffer();
+		}
+	}
+
+	// Hands the pending bytes down to the underlying output
+	private void flushBuffer() throws IOException {
+		if (buffer.position() > 0) {
+			output.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+	}
+
+	// Fails if the writer is closed
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The writer is closed");
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		checkOpen();
+		while (pending && len > 0) {
+			// Completes the pair (or replaces a lone first half) with the next character
+			pair.put(cbuf[off++]).flip();
+			len--;
+			encode(pair, false);
+			pending = pair.hasRemaining();
+			pair.compact();
+		}
+		if (len <= 0) {
+			return;
+		}
+		var input = CharBuffer.wrap(cbuf, off, len);
+		encode(input, false);
+		if (input.hasRemaining()) {
+			// Only the first half of a pair can be left behind
+			pair.put(input.get());
+			pending = true;
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		write(new char[] { (char) c }, 0, 1);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		var chars = new char[len];
+		str.getChars(off, off + len, chars, 0);
+		write(chars, 0, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		flushBuffer();
+		output.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			pair.flip();
+			encode(pair, true);
+			while (encoder.flush(buffer).isOverflow()) {
+				flushBuffer();
+			}
+			flushBuffer();
+		} finally {
+			closed = true;
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package xml.spreadsheet.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Output stream that writes a file through a <code>FileChannel</code>, staging
+ * the bytes in a large direct buffer: every write of the buffer goes to the file 
+ * system with no further copies, and there is a system call for every megabyte 
+ * (by default) rather than for every small write.  Writes larger than the buffer
+ * go straight to the channel.
+ * <br/>
+ * On <code>close</code>, the file is truncated to the bytes written, so that a
+ * channel positioned over a longer file does not keep its old tail.
+ * <br/>
+ * Sheets spilled into temporary files can be transferred into the channel by 
+ * the file system, once the stream is flushed.  The stream must be written by 
+ * one thread at a time.
+ */
+public class FileChannelOutputStream extends OutputStream {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default buffer size, in bytes */
+	private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every stream is tied to a FileChannel */
+	private final FileChannel channel;
+	/** Pending bytes */
+	private final ByteBuffer buffer;
+	/** Has the stream been closed? */
+	private boolean closed = false;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a stream that writes a file, with the default buffer size
+	 * @param file File to write
+	 * @param options How the file is opened, as in <code>Files.newOutputStream</code>:
+	 * if there are none, it is created, or overwritten if it exists
+	 * @throws IOException If the file cannot be opened
+	 */
+	public FileChannelOutputStream(Path file, OpenOption... options) throws IOException {
+		this(FileChannel.open(file, openOptions(options)), DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Builds a stream that writes a channel from its current position
+	 * @param channel Where the stream is going to write its output to; it is 
+	 * closed along with the stream
+	 * @param bufferSize Size of the direct buffer, in bytes
+	 */
+	public FileChannelOutputStream(FileChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+	}
+
+	// Options to open a file for writing: the ones given, or the default ones
+	private static HashSet<OpenOption> openOptions(OpenOption... options) {
+		var set = new HashSet<OpenOption>(options.length == 0 
+			? List.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+			: List.of(options));
+		set.add(StandardOpenOption.WRITE);
+		return set;
+	}
+
+	/**
+	 * @return Channel of the file.  Bytes still in the buffer are not in the
+	 * channel until the stream is flushed
+	 */
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	// Writes a buffer into the channel
+	private void writeFully(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	// Hands the pending bytes down to the channel
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	// Fails if the stream is closed
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed");
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkOpen();
+		if (!buffer.hasRemaining()) {
+			flushBuffer();
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkOpen();
+		if (len > buffer.remaining()) {
+			flushBuffer();
+			if (len >= buffer.capacity()) {
+				writeFully(ByteBuffer.wrap(b, off, len));
+				return;
+			}
+		}
+		buffer.put(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		flushBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try (channel) {
+			flushBuffer();
+			channel.truncate(channel.position());
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package xml.spreadsheet.utils;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Constant markup fragment, such as <code>&lt;/ss:Row&gt;</code>.  Its bytes
+ * are computed once, so that emitters writing bytes can copy them as they are,
+ * without encoding them every time.
+ */
+public final class Markup {
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Text of the fragment */
+	private final String text;
+	/** ASCII bytes of the fragment */
+	private final byte[] bytes;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	// Use the factory method
+	private Markup(String text) {
+		this.text = text;
+		this.bytes = text.getBytes(US_ASCII);
+	}
+
+	/**
+	 * Builds a markup fragment
+	 * @param text Text of the fragment.  Only ASCII characters are allowed, as in
+	 * every tag and attribute name of the format
+	 * @return Markup fragment
+	 */
+	public static Markup of(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				throw new IllegalArgumentException("Markup must be ASCII: " + text);
+			}
+		}
+		return new Markup(text);
+	}
+
+	/**
+	 * Builds a markup fragment out of well-formed XML, that may hold any character
+	 * in its attribute values or text.  Characters out of ASCII are replaced by
+	 * character references (<code>&amp;#233;</code>), so the fragment is the same
+	 * in every encoding.  Not suitable for CDATA sections, where references are
+	 * not expanded
+	 * @param xml Well-formed XML fragment
+	 * @return Markup fragment
+	 */
+	public static Markup ofXml(String xml) {
+		var ascii = new StringBuilder(xml.length());
+		for (int i = 0; i < xml.length(); ) {
+			int codePoint = xml.codePointAt(i);
+			if (codePoint < 0x80) {
+				ascii.append((char) codePoint);
+			}
+			else {
+				ascii.append("&#").append(codePoint).append(';');
+			}
+			i += Character.charCount(codePoint);
+		}
+		return new Markup(ascii.toString());
+	}
+
+	// ASCII bytes of the fragment; not to be modified
+	byte[] bytes() {
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
@@ -1,30 +1,60 @@
 package xml.spreadsheet.utils;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
 /**
- * Offers support for number format across the entire library
+ * Offers support for number format across the entire library.  Numbers are
+ * written as ASCII characters straight into a byte buffer, with the help of
+ * a digit table; no intermediate objects are created on the usual path.
+ * <br/>
+ * Doubles are written with the shortest decimal representation that parses
+ * back to the very same value.  There is no shared state, so every method is
+ * safe to use from several threads at once.
  */
 public class NumberFormatHelper {
 
 	//------------------------------------------------------------------
-	// Class properties
+	// Class constants
+
+	/** Maximum number of characters needed to write a long */
+	public static final int MAX_LONG_LENGTH = 20;
+	/** Maximum number of characters needed to write a double */
+	public static final int MAX_DOUBLE_LENGTH = 32;
+
+	/** Decimal digits, by pairs: 00, 01, 02... 99 */
+	private static final byte[] DIGIT_PAIRS = new byte[200];
+	/** Powers of ten that fit into a long */
+	private static final long[] POWERS_OF_TEN = new long[19];
+	/** Digits of the one long value that has no positive counterpart */
+	private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(ISO_8859_1);
+
+	/** Integers below this value are copied from a table of precomputed digits */
+	private static final int SMALL_INTEGERS = 1000;
+	/** Digits of every small integer, 3 characters each, with leading zeros */
+	private static final byte[] SMALL_INTEGER_DIGITS = new byte[3 * SMALL_INTEGERS];
+	/** Doubles below this absolute value are exact integers if they have no fraction */
+	private static final double EXACT_INTEGER_LIMIT = 0x1p53;
 
-	/** Number format for doubles */
-	private static DecimalFormat DOUBLE_FORMAT = null;
-		
-	
 	//------------------------------------------------------------------
 	// Class methods
-	
+
 	static {
-		DOUBLE_FORMAT = new DecimalFormat("#.#####");
-		var dfs = new DecimalFormatSymbols();
-		dfs.setDecimalSeparator('.');
-		DOUBLE_FORMAT.setDecimalFormatSymbols(dfs);
+		for (int i = 0; i < 100; i++) {
+			DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+			DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+		}
+		long power = 1;
+		for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = power;
+			power *= 10;
+		}
+		for (int i = 0; i < SMALL_INTEGERS; i++) {
+			SMALL_INTEGER_DIGITS[3 * i] = (byte) ('0' + i / 100);
+			SMALL_INTEGER_DIGITS[3 * i + 1] = DIGIT_PAIRS[2 * (i % 100)];
+			SMALL_INTEGER_DIGITS[3 * i + 2] = DIGIT_PAIRS[2 * (i % 100) + 1];
+		}
 	}
-	
+
 	// We do not want this to be instantiated
 	private NumberFormatHelper() {}
 
@@ -36,8 +66,107 @@ public class NumberFormatHelper {
 	public static String format(Double d) {
 		String ret = null;
 		if (d != null) {
-			ret = DOUBLE_FORMAT.format(d);
+			var buffer = new byte[MAX_DOUBLE_LENGTH];
+			ret = new String(buffer, 0, writeDouble(d, buffer, 0), ISO_8859_1);
 		}
 		return ret;
 	}
+
+	// Number of decimal digits of a non negative long
+	static int digits(long value) {
+		int digits = 1;
+		while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+		return digits;
+	}
+
+	// Writes the digits of a non negative long, right-aligned so that the last
+	//	one lands right before end
+	static void writeDigits(long value, byte[] buffer, int end) {
+		int i = end;
+		while (value >= 100) {
+			int pair = (int) (value % 100) << 1;
+			value /= 100;
+			buffer[--i] = DIGIT_PAIRS[pair + 1];
+			buffer[--i] = DIGIT_PAIRS[pair];
+		}
+		if (value >= 10) {
+			int pair = (int) value << 1;
+			buffer[--i] = DIGIT_PAIRS[pair + 1];
+			buffer[--i] = DIGIT_PAIRS[pair];
+		}
+		else {
+			buffer[--i] = (byte) ('0' + value);
+		}
+	}
+
+	// Writes a number between 0 and 99 as two digits
+	static void writePair(int value, byte[] buffer, int position) {
+		buffer[position] = DIGIT_PAIRS[2 * value];
+		buffer[position + 1] = DIGIT_PAIRS[2 * value + 1];
+	}
+
+	// Copies an ASCII string into the buffer
+	private static int writeAscii(String s, byte[] buffer, int position) {
+		for (int i = 0; i < s.length(); i++) {
+			buffer[position++] = (byte) s.charAt(i);
+		}
+		return position;
+	}
+
+	/**
+	 * Writes the decimal representation of a long into a buffer
+	 * @param value Value to write
+	 * @param buffer Destination; it must have room for at least <code>MAX_LONG_LENGTH</code>
+	 * characters after <code>position</code>
+	 * @param position Where to start writing
+	 * @return Position right after the last character written
+	 */
+	public static int writeLong(long value, byte[] buffer, int position) {
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				System.arraycopy(MIN_LONG, 0, buffer, position, MIN_LONG.length);
+				return position + MIN_LONG.length;
+			}
+			buffer[position++] = '-';
+			value = -value;
+		}
+		if (value < SMALL_INTEGERS) {
+			int length = value < 10 ? 1 : value < 100 ? 2 : 3;
+			System.arraycopy(SMALL_INTEGER_DIGITS, 3 * (int) value + 3 - length, buffer, position, length);
+			return position + length;
+		}
+		int end = position + digits(value);
+		writeDigits(value, buffer, end);
+		return end;
+	}
+
+	/**
+	 * Writes the shortest decimal representation of a double that parses back
+	 * to the same value.  Very small and very large values get the scientific
+	 * notation (<code>1.5E+300</code>); NaN and infinities are written as
+	 * <code>NaN</code>, <code>Infinity</code> and <code>-Infinity</code>
+	 * @param value Value to write
+	 * @param buffer Destination; it must have room for at least <code>MAX_DOUBLE_LENGTH</code>
+	 * characters after <code>position</code>
+	 * @param position Where to start writing
+	 * @return Position right after the last character written
+	 */
+	public static int writeDouble(double value, byte[] buffer, int position) {
+		if (Double.isNaN(value)) {
+			return writeAscii("NaN", buffer, position);
+		}
+		if (Double.isInfinite(value)) {
+			return writeAscii(value > 0 ? "Infinity" : "-Infinity", buffer, position);
+		}
+		if (Math.abs(value) < EXACT_INTEGER_LIMIT) {
+			long integral = (long) value;
+			// Negative zero keeps its sign, as any other negative value
+			if (integral == value && (integral != 0 || Double.doubleToRawLongBits(value) == 0)) {
+				return writeLong(integral, buffer, position);
+			}
+		}
+		return DoubleToDecimal.write(value, buffer, position);
+	}
 }
@@ -0,0 +1,322 @@
+package xml.spreadsheet.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream that writes a single gzip member, deflating fixed-size blocks
+ * of its input at the same time on an executor.
+ * <br/>
+ * Every block is compressed on its own, with the last 32 KB of the block before
+ * it as a preset dictionary, so that the ratio is close to the one of a single
+ * deflater.  Every block but the last one ends on a byte boundary (a sync flush),
+ * so the compressed blocks are just concatenated, in order, into one deflate
+ * stream; the CRC32 and the size of the trailer are computed as the bytes are
+ * written.  The output only depends on the input and on the block size: it is 
+ * the same whatever the executor or the timing of its threads.
+ * <br/>
+ * Memory is bounded by the number of blocks in flight: once that many blocks
+ * are being compressed, or waiting to be written, the stream writes the oldest
+ * one before taking more input.  Blocks and their deflaters are recycled.
+ * <br/>
+ * As with <code>GZIPOutputStream</code>, <code>flush</code> does not cut the 
+ * block being filled: it writes the blocks already compressed and flushes the
+ * underlying output.  The stream must be written by one thread at a time.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default size of the uncompressed blocks */
+	private static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+	/** Size of the deflate window, and of the dictionary of every block */
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	/** Member header: no name, no timestamp, unknown file system */
+	private static final byte[] HEADER = { 
+		0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every stream is tied to an OutputStream */
+	private final OutputStream output;
+	/** Blocks are compressed here */
+	private final Executor executor;
+	/** Compression level */
+	private final int level;
+	/** Size of the uncompressed blocks */
+	private final int blockSize;
+	/** Maximum number of blocks compressed or waiting to be written */
+	private final int maxBlocks;
+
+	/** Blocks handed down, in order, and not written yet */
+	private final ArrayDeque<Block> pending = new ArrayDeque<>();
+	/** Blocks already written, ready to be reused */
+	private final ArrayDeque<Block> free = new ArrayDeque<>();
+	/** Every block built, so that their deflaters are released on close */
+	private final List<Block> blocks = new ArrayList<>();
+	/** Checksum of the uncompressed bytes */
+	private final CRC32 crc = new CRC32();
+	/** Block being filled */
+	private Block current;
+	/** Number of uncompressed bytes */
+	private long size = 0;
+	/** Has the header been written? */
+	private boolean started = false;
+	/** Has the stream been closed? */
+	private boolean closed = false;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * A block of input, and its compressed form once it has been deflated
+	 */
+	private static final class Block implements Runnable {
+		/** Uncompressed bytes */
+		private final byte[] input;
+		/** Uncompressed bytes filled */
+		private int length = 0;
+		/** End of the previous block */
+		private final byte[] dictionary = new byte[DICTIONARY_SIZE];
+		/** Bytes of the dictionary */
+		private int dictionaryLength = 0;
+		/** Compressed bytes */
+		private byte[] compressed;
+		/** Compressed bytes filled */
+		private int compressedLength = 0;
+		/** Is it the last block of the stream? */
+		private boolean last = false;
+		/** Deflater, reset on every use */
+		private final Deflater deflater;
+		/** Completed once the block is compressed */
+		private CompletableFuture<Void> done;
+
+		Block(int blockSize, int level) {
+			this.input = new byte[blockSize];
+			// Room for incompressible input, so that it seldom grows
+			this.compressed = new byte[blockSize + (blockSize >> 8) + 64];
+			this.deflater = new Deflater(level, true);
+		}
+
+		// Takes the end of the previous block as the dictionary
+		void prime(Block previous) {
+			dictionaryLength = Math.min(DICTIONARY_SIZE, previous.length);
+			System.arraycopy(previous.input, previous.length - dictionaryLength, dictionary, 0, dictionaryLength);
+		}
+
+		@Override
+		public void run() {
+			deflater.reset();
+			if (dictionaryLength > 0) {
+				deflater.setDictionary(dictionary, 0, dictionaryLength);
+			}
+			deflater.setInput(input, 0, length);
+			compressedLength = 0;
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					deflate(Deflater.NO_FLUSH);
+				}
+			}
+			else {
+				// Done once the deflater leaves room in the output
+				do {
+					deflate(Deflater.SYNC_FLUSH);
+				} while (compressedLength == compressed.length);
+			}
+		}
+
+		// Deflates into the free part of the output, growing it if full
+		private void deflate(int flush) {
+			if (compressedLength == compressed.length) {
+				compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+			}
+			compressedLength += deflater.deflate(compressed, compressedLength, 
+				compressed.length - compressedLength, flush);
+		}
+	}
+
+	/**
+	 * Builds a stream tied to an output stream, that compresses blocks of the
+	 * default size with the default level in the common pool
+	 * @param output Where the stream is going to write its output to
+	 */
+	public ParallelGzipOutputStream(OutputStream output) {
+		this(output, ForkJoinPool.commonPool(), Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, 
+			Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Builds a stream tied to an output stream
+	 * @param output Where the stream is going to write its output to
+	 * @param executor Blocks are compressed here
+	 * @param level Compression level, from 0 to 9, or <code>Deflater.DEFAULT_COMPRESSION</code>
+	 * @param blockSize Size of the uncompressed blocks
+	 * @param maxBlocks Maximum number of blocks compressed or waiting to be 
+	 * written; at least two
+	 */
+	public ParallelGzipOutputStream(OutputStream output, Executor executor, int level, int blockSize, int maxBlocks) {
+		if (blockSize <= 0 || maxBlocks < 2) {
+			throw new IllegalArgumentException("There must be at least two blocks of one byte");
+		}
+		if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.output = output;
+		this.executor = executor;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxBlocks = maxBlocks;
+		this.current = newBlock();
+	}
+
+	// Builds a block, or takes one already written
+	private Block newBlock() {
+		var block = free.poll();
+		if (block == null) {
+			block = new Block(blockSize, level);
+			blocks.add(block);
+		}
+		block.length = 0;
+		block.dictionaryLength = 0;
+		block.last = false;
+		return block;
+	}
+
+	// Hands the current block down to the executor and, unless it is the last
+	//	one, takes the next one, waiting for room if needed
+	private void dispatch(boolean last) throws IOException {
+		var block = current;
+		Block next = null;
+		if (!last) {
+			// Primed before the block is handed down, as it may be written and reused right away
+			while (pending.size() >= maxBlocks) {
+				writeOldest();
+			}
+			next = newBlock();
+			next.prime(block);
+		}
+		block.last = last;
+		block.done = CompletableFuture.runAsync(block, executor);
+		pending.add(block);
+		current = next;
+		writeCompressed(false);
+	}
+
+	// Writes the oldest pending block, waiting for it if needed
+	private void writeOldest() throws IOException {
+		var block = pending.peek();
+		try {
+			block.done.join();
+		} catch (CompletionException e) {
+			throw new IOException("A block could not be compressed: " + e.getCause().getMessage(), e.getCause());
+		}
+		pending.poll();
+		if (!started) {
+			output.write(HEADER);
+			started = true;
+		}
+		output.write(block.compressed, 0, block.compressedLength);
+		free.add(block);
+	}
+
+	// Writes the pending blocks in order: every one of them if wait is true, 
+	//	otherwise only the ones already compressed
+	private void writeCompressed(boolean wait) throws IOException {
+		while (!pending.isEmpty() && (wait || pending.peek().done.isDone())) {
+			writeOldest();
+		}
+	}
+
+	// Fails if the stream is closed
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed");
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkOpen();
+		crc.update(b);
+		size++;
+		current.input[current.length++] = (byte) b;
+		if (current.length == blockSize) {
+			dispatch(false);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkOpen();
+		crc.update(b, off, len);
+		size += len;
+		while (len > 0) {
+			int count = Math.min(len, blockSize - current.length);
+			System.arraycopy(b, off, current.input, current.length, count);
+			current.length += count;
+			off += count;
+			len -= count;
+			if (current.length == blockSize) {
+				dispatch(false);
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		writeCompressed(false);
+		output.flush();
+	}
+
+	// Writes an int in little endian order
+	private static void writeInt(byte[] buffer, int position, long value) {
+		for (int i = 0; i < 4; i++) {
+			buffer[position + i] = (byte) (value >> 8 * i);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			// The last block may be empty: it still ends the deflate stream
+			dispatch(true);
+			writeCompressed(true);
+			var trailer = new byte[8];
+			writeInt(trailer, 0, crc.getValue());
+			writeInt(trailer, 4, size);
+			output.write(trailer);
+		} finally {
+			try {
+				// No deflater is released while still in use
+				for (var block: pending) {
+					if (block.done != null) {
+						block.done.exceptionally(e -> null).join();
+					}
+				}
+				for (var block: blocks) {
+					block.deflater.end();
+				}
+			} finally {
+				output.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package xml.spreadsheet.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Output stream that hands its bytes down to the underlying output from a
+ * dedicated thread, so that the thread that formats the document does not
+ * stall on slow writes.
+ * <br/>
+ * Bytes are copied into fixed-size chunks.  A ring of chunks is shared by
+ * the producer, that fills them in order, and the writer thread, that writes
+ * them in the same order: each side publishes how many chunks it is done with
+ * through a single counter, so no locks are taken and no chunks are allocated
+ * once the stream is built.  The producer only waits when every chunk is
+ * pending to be written.
+ * <br/>
+ * Failures of the underlying output are raised in the producer on the next 
+ * chunk it hands down, and on <code>flush</code> or <code>close</code>.  The 
+ * stream must be written by one thread at a time.
+ * <br/>
+ * The writer thread is started when the first chunk is handed down: it is a
+ * virtual thread if the stream is written from a virtual thread, and a platform
+ * daemon thread otherwise.
+ */
+public final class PipelinedOutputStream extends OutputStream {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default number of chunks */
+	private static final int DEFAULT_CHUNKS = 4;
+	/** Name of the writer thread */
+	private static final String WRITER_NAME = "xml-spreadsheet-writer";
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every stream is tied to an OutputStream */
+	private final OutputStream output;
+	/** Ring of chunks */
+	private final byte[][] chunks;
+	/** Bytes filled in every chunk of the ring */
+	private final int[] lengths;
+	/** Thread that writes the chunks, once started */
+	private Thread writer;
+
+	/** Chunks handed down by the producer */
+	private volatile long produced = 0;
+	/** Chunks written by the writer thread */
+	private volatile long consumed = 0;
+	/** Producer waiting for a chunk to be written, if any */
+	private volatile Thread waiting;
+	/** Has the producer finished? */
+	private volatile boolean finished = false;
+	/** Failure of the underlying output */
+	private volatile IOException failure;
+
+	/** Chunk being filled by the producer */
+	private byte[] current;
+	/** First free position of the current chunk */
+	private int position = 0;
+	/** Has the stream been closed? */
+	private boolean closed = false;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a stream tied to an output stream, with the default number of chunks
+	 * @param output Where the stream is going to write its output to
+	 * @param chunkSize Size of every chunk, in bytes
+	 */
+	public PipelinedOutputStream(OutputStream output, int chunkSize) {
+		this(output, chunkSize, DEFAULT_CHUNKS);
+	}
+
+	/**
+	 * Builds a stream tied to an output stream
+	 * @param output Where the stream is going to write its output to
+	 * @param chunkSize Size of every chunk, in bytes
+	 * @param chunks Number of chunks; at least two, so that one can be filled 
+	 * while another one is written
+	 */
+	public PipelinedOutputStream(OutputStream output, int chunkSize, int chunks) {
+		if (chunkSize <= 0 || chunks < 2) {
+			throw new IllegalArgumentException("There must be at least two chunks of one byte");
+		}
+		this.output = output;
+		this.chunks = new byte[chunks][chunkSize];
+		this.lengths = new int[chunks];
+		this.current = this.chunks[0];
+	}
+
+	// Starts the writer thread, of the same kind as the producer
+	private Thread startWriter() {
+		return (Thread.currentThread().isVirtual() 
+				? Thread.ofVirtual().name(WRITER_NAME) 
+				: Thread.ofPlatform().name(WRITER_NAME).daemon())
+			.start(this::drain);
+	}
+
+	// Ring slot of a chunk
+	private int slot(long chunk) {
+		return (int) (chunk % chunks.length);
+	}
+
+	// Writer thread: writes every chunk as soon as it is handed down, until 
+	//	the producer finishes or the output fails
+	private void drain() {
+		long next = 0;
+		try {
+			while (true) {
+				while (produced == next) {
+					if (finished) {
+						return;
+					}
+					LockSupport.park(this);
+				}
+				int slot = slot(next);
+				output.write(chunks[slot], 0, lengths[slot]);
+				consumed = ++next;
+				wakeProducer();
+			}
+		} catch (IOException ioe) {
+			failure = ioe;
+		} catch (RuntimeException e) {
+			failure = new IOException(e);
+		}
+		wakeProducer();
+	}
+
+	// Wakes the producer up, if it is waiting
+	private void wakeProducer() {
+		var thread = waiting;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	// Raises the failure of the underlying output, if any
+	private void checkFailure() throws IOException {
+		var e = failure;
+		if (e != null) {
+			throw new IOException("The output failed: " + e.getMessage(), e);
+		}
+	}
+
+	// Waits until the writer thread is done with the given number of chunks
+	private void awaitConsumed(long chunk) throws IOException {
+		while (consumed < chunk) {
+			checkFailure();
+			waiting = Thread.currentThread();
+			// Checked again, in case the writer missed us
+			if (consumed < chunk && failure == null) {
+				LockSupport.park(this);
+			}
+			waiting = null;
+		}
+		checkFailure();
+	}
+
+	// Hands the current chunk down to the writer thread, and takes the next one
+	//	as soon as it is free
+	private void handOff() throws IOException {
+		long chunk = produced;
+		lengths[slot(chunk)] = position;
+		produced = chunk + 1;
+		if (writer == null) {
+			writer = startWriter();
+		}
+		else {
+			LockSupport.unpark(writer);
+		}
+		// The next slot was last taken by chunk + 1 - chunks.length
+		awaitConsumed(chunk + 2 - chunks.length);
+		current = chunks[slot(chunk + 1)];
+		position = 0;
+	}
+
+	// Validates that the stream can still be written
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The stream is closed");
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		checkOpen();
+		current[position++] = (byte) b;
+		if (position == current.length) {
+			handOff();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		checkOpen();
+		while (len > 0) {
+			int count = Math.min(len, current.length - position);
+			System.arraycopy(b, off, current, position, count);
+			position += count;
+			off += count;
+			len -= count;
+			if (position == current.length) {
+				handOff();
+			}
+		}
+	}
+
+	/**
+	 * Hands the pending bytes down, waits until every chunk is written and flushes
+	 * the underlying output
+	 * @throws IOException If the output fails
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkOpen();
+		if (position > 0) {
+			handOff();
+		}
+		awaitConsumed(produced);
+		// The writer thread is idle until the next chunk is handed down
+		output.flush();
+	}
+
+	/**
+	 * Hands the pending bytes down, waits until every chunk is written, stops 
+	 * the writer thread and closes the underlying output.  Further attempts to
+	 * close it are ignored.
+	 * @throws IOException If the output fails, now or on any previous chunk
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (position > 0) {
+				handOff();
+			}
+			awaitConsumed(produced);
+		} finally {
+			finished = true;
+			if (writer != null) {
+				LockSupport.unpark(writer);
+				boolean interrupted = false;
+				while (writer.isAlive()) {
+					try {
+						writer.join();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			output.close();
+		}
+	}
+}
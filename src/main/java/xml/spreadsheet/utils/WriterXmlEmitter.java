@@ -0,0 +1,115 @@
+package xml.spreadsheet.utils;
+
+import xml.spreadsheet.XMLSpreadsheetException;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Emitter that buffers characters, and leaves the encoding to a <code>Writer</code>
+ */
+public class WriterXmlEmitter extends XmlEmitter {
+
+	//------------------------------------------------------------------
+	// Class constants
+
+	/** Default buffer size, in characters */
+	private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Every emitter is tied to a Writer */
+	private final Writer writer;
+	/** Pending characters */
+	private final char[] buffer;
+	/** First free position of the buffer */
+	private int position = 0;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds an emitter tied to a writer, with the default buffer size
+	 * @param writer Where the emitter is going to write its output to
+	 */
+	public WriterXmlEmitter(Writer writer) {
+		this(writer, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Builds an emitter tied to a writer
+	 * @param writer Where the emitter is going to write its output to
+	 * @param bufferSize Size of the internal buffer, in characters
+	 */
+	public WriterXmlEmitter(Writer writer, int bufferSize) {
+		this.writer = writer;
+		this.buffer = new char[Math.max(bufferSize, 16)];
+	}
+
+	@Override
+	protected void flushBuffer() throws XMLSpreadsheetException {
+		if (position > 0) {
+			try {
+				writer.write(buffer, 0, position);
+			} catch (IOException ioe) {
+				throw new XMLSpreadsheetException(ioe);
+			}
+			position = 0;
+		}
+	}
+
+	@Override
+	protected void append(char c) throws XMLSpreadsheetException {
+		if (position == buffer.length) {
+			flushBuffer();
+		}
+		buffer[position++] = c;
+	}
+
+	@Override
+	protected void append(String s, int from, int to) throws XMLSpreadsheetException {
+		while (from < to) {
+			if (position == buffer.length) {
+				flushBuffer();
+			}
+			int count = Math.min(to - from, buffer.length - position);
+			s.getChars(from, from + count, buffer, position);
+			position += count;
+			from += count;
+		}
+	}
+
+	@Override
+	protected void appendAscii(byte[] ascii, int from, int to) throws XMLSpreadsheetException {
+		while (from < to) {
+			if (position == buffer.length) {
+				flushBuffer();
+			}
+			int end = from + Math.min(to - from, buffer.length - position);
+			while (from < end) {
+				buffer[position++] = (char) ascii[from++];
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws XMLSpreadsheetException {
+		flushBuffer();
+		try {
+			writer.flush();
+		} catch (IOException ioe) {
+			throw new XMLSpreadsheetException(ioe);
+		}
+	}
+
+	@Override
+	public void close() throws XMLSpreadsheetException {
+		flushBuffer();
+		try {
+			writer.close();
+		} catch (IOException ioe) {
+			throw new XMLSpreadsheetException(ioe);
+		}
+	}
+}
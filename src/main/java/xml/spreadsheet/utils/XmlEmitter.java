@@ -0,0 +1,368 @@
+package xml.spreadsheet.utils;
+
+import xml.spreadsheet.XMLSpreadsheetException;
+
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming XML writer.  Start tags, attributes and text are copied straight
+ * into an internal buffer, that is handed down to the underlying output only
+ * when it is full or when explicitly flushed.  No intermediate maps or strings
+ * are built on the way.
+ * <br/>
+ * There are two implementations: <code>WriterXmlEmitter</code> buffers characters
+ * and leaves the encoding to a <code>Writer</code>, while <code>ByteXmlEmitter</code>
+ * buffers bytes, copies <code>Markup</code> constants as they are and only encodes
+ * text.
+ * <br/>
+ * Every method returns the emitter itself, so that an element can be written
+ * in a single chain:<br/><br/>
+ * <code>
+ * emitter.startElement("ss:Cell").attribute("ss:StyleID", id).closeEmptyElement();
+ * </code>
+ */
+public abstract class XmlEmitter {
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Numbers are formatted here before being copied into the buffer */
+	private final byte[] scratch = new byte[NumberFormatHelper.MAX_DOUBLE_LENGTH];
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Functional interface for anything that knows how to write itself into an emitter
+	 */
+	@FunctionalInterface
+	public interface Fragment {
+		void writeTo(XmlEmitter emitter) throws XMLSpreadsheetException;
+	}
+
+	/**
+	 * Renders a fragment into a String.  Intended for <code>toString</code>
+	 * implementations and other non-critical paths.
+	 * @param fragment Code that writes XML into the emitter
+	 * @return String representation of the fragment
+	 */
+	public static String render(Fragment fragment) {
+		var stringWriter = new StringWriter();
+		var emitter = new WriterXmlEmitter(stringWriter, 256);
+		try {
+			fragment.writeTo(emitter);
+			emitter.flush();
+		} catch (XMLSpreadsheetException e) {
+			// A StringWriter never fails
+			throw new IllegalStateException(e);
+		}
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Hands the pending content down to the underlying output
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	protected abstract void flushBuffer() throws XMLSpreadsheetException;
+
+	/**
+	 * Appends a single character to the buffer
+	 * @param c Character to append
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	protected abstract void append(char c) throws XMLSpreadsheetException;
+
+	/**
+	 * Appends a section of a String to the buffer
+	 * @param s String to append
+	 * @param from First position to append
+	 * @param to Position after the last one to append
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	protected abstract void append(String s, int from, int to) throws XMLSpreadsheetException;
+
+	/**
+	 * Appends a section of a byte array of ASCII characters to the buffer
+	 * @param ascii Buffer holding the characters
+	 * @param from First position to append
+	 * @param to Position after the last one to append
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	protected abstract void appendAscii(byte[] ascii, int from, int to) throws XMLSpreadsheetException;
+
+	// Appends a String to the buffer, replacing the characters that are not
+	//	allowed in attribute values (or text, if attribute is false) by entities
+	private void appendEscaped(String s, boolean attribute) throws XMLSpreadsheetException {
+		int length = s.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			String entity = switch (s.charAt(i)) {
+				case '&' -> "&amp;";
+				case '<' -> "&lt;";
+				case '>' -> attribute ? null : "&gt;";
+				case '"' -> attribute ? "&quot;" : null;
+				default -> null;
+			};
+			if (entity != null) {
+				append(s, start, i);
+				append(entity, 0, entity.length());
+				start = i + 1;
+			}
+		}
+		append(s, start, length);
+	}
+
+	/**
+	 * Writes a string as is, with no escaping at all
+	 * @param markup Well-formed XML fragment
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter raw(String markup) throws XMLSpreadsheetException {
+		append(markup, 0, markup.length());
+		return this;
+	}
+
+	/**
+	 * Writes a constant markup fragment
+	 * @param markup Precomputed markup
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter markup(Markup markup) throws XMLSpreadsheetException {
+		appendAscii(markup.bytes(), 0, markup.bytes().length);
+		return this;
+	}
+
+	/**
+	 * Writes markup that has already been encoded, with no escaping at all.  It
+	 * is decoded back unless the emitter writes the very same charset.
+	 * @param bytes Buffer holding the encoded markup
+	 * @param from First position to write
+	 * @param to Position after the last one to write
+	 * @param charset Charset the markup is encoded with
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter encoded(byte[] bytes, int from, int to, Charset charset) throws XMLSpreadsheetException {
+		return raw(new String(bytes, from, to - from, charset));
+	}
+
+	/**
+	 * Opens a start tag (<code>&lt;name</code>).  It must be completed
+	 * with either <code>closeStartTag</code> or <code>closeEmptyElement</code>
+	 * @param name Name of the element
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter startElement(String name) throws XMLSpreadsheetException {
+		append('<');
+		return raw(name);
+	}
+
+	/**
+	 * Closes the start tag currently open (<code>&gt;</code>)
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter closeStartTag() throws XMLSpreadsheetException {
+		append('>');
+		return this;
+	}
+
+	/**
+	 * Closes the start tag currently open as an empty element (<code>/&gt;</code>)
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter closeEmptyElement() throws XMLSpreadsheetException {
+		append('/');
+		append('>');
+		return this;
+	}
+
+	/**
+	 * Writes an end tag (<code>&lt;/name&gt;</code>)
+	 * @param name Name of the element
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter endElement(String name) throws XMLSpreadsheetException {
+		append('<');
+		append('/');
+		raw(name);
+		append('>');
+		return this;
+	}
+
+	/**
+	 * Writes an attribute into the start tag currently open.  Null values are
+	 * silently discarded.
+	 * @param name Name of the attribute
+	 * @param value Value of the attribute
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter attribute(String name, String value) throws XMLSpreadsheetException {
+		if (value != null) {
+			attributeName(name);
+			appendEscaped(value, true);
+			append('"');
+		}
+		return this;
+	}
+
+	// Writes the beginning of an attribute, up to the opening quote of its value
+	private void attributeName(String name) throws XMLSpreadsheetException {
+		append(' ');
+		raw(name);
+		append('=');
+		append('"');
+	}
+
+	/**
+	 * Writes a numeric attribute into the start tag currently open.  Null values are
+	 * silently discarded.
+	 * @param name Name of the attribute
+	 * @param value Value of the attribute
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter attribute(String name, Double value) throws XMLSpreadsheetException {
+		if (value != null) {
+			attributeName(name);
+			number(value);
+			append('"');
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a numeric attribute into the start tag currently open.  Null values are
+	 * silently discarded.
+	 * @param name Name of the attribute
+	 * @param value Value of the attribute
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter attribute(String name, Long value) throws XMLSpreadsheetException {
+		if (value != null) {
+			attributeName(name);
+			number(value);
+			append('"');
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a boolean attribute into the start tag currently open.  Null values are
+	 * silently discarded.
+	 * @param name Name of the attribute
+	 * @param value Value of the attribute.  1 = true; 0 = false
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter attribute(String name, Boolean value) throws XMLSpreadsheetException {
+		return value != null ? attribute(name, value ? "1" : "0") : this;
+	}
+
+	/**
+	 * Writes an enumerated attribute into the start tag currently open.  Null values are
+	 * silently discarded.
+	 * @param name Name of the attribute
+	 * @param value Value of the attribute
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter attribute(String name, Enum<?> value) throws XMLSpreadsheetException {
+		return value != null ? attribute(name, value.toString()) : this;
+	}
+
+	/**
+	 * Writes the decimal representation of a long as character data
+	 * @param value Value to write
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter number(long value) throws XMLSpreadsheetException {
+		appendAscii(scratch, 0, NumberFormatHelper.writeLong(value, scratch, 0));
+		return this;
+	}
+
+	/**
+	 * Writes the shortest decimal representation of a double as character data
+	 * @param value Value to write
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 * @see NumberFormatHelper#writeDouble(double, byte[], int)
+	 */
+	public XmlEmitter number(double value) throws XMLSpreadsheetException {
+		appendAscii(scratch, 0, NumberFormatHelper.writeDouble(value, scratch, 0));
+		return this;
+	}
+
+	/**
+	 * Writes preformatted ASCII characters as character data, with no escaping at all
+	 * @param ascii Buffer holding the characters
+	 * @param from First position to write
+	 * @param to Position after the last one to write
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter ascii(byte[] ascii, int from, int to) throws XMLSpreadsheetException {
+		appendAscii(ascii, from, to);
+		return this;
+	}
+
+	/**
+	 * Writes escaped character data
+	 * @param text Text to write
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter text(String text) throws XMLSpreadsheetException {
+		if (text != null) {
+			appendEscaped(text, false);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a CDATA section
+	 * @param text Content of the section
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter cdata(String text) throws XMLSpreadsheetException {
+		if (text != null) {
+			raw("<![CDATA[");
+			raw(text);
+			raw("]]>");
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a complete element with text content (<code>&lt;name&gt;text&lt;/name&gt;</code>)
+	 * @param name Name of the element
+	 * @param text Text content of the element
+	 * @return This emitter
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public XmlEmitter textElement(String name, String text) throws XMLSpreadsheetException {
+		return startElement(name).closeStartTag().text(text).endElement(name);
+	}
+
+	/**
+	 * Hands every pending character down to the underlying output, and flushes it
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public abstract void flush() throws XMLSpreadsheetException;
+
+	/**
+	 * Flushes every pending character and closes the underlying output
+	 * @throws XMLSpreadsheetException If the underlying output fails
+	 */
+	public abstract void close() throws XMLSpreadsheetException;
+}
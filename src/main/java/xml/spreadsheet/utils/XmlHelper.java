@@ -5,23 +5,16 @@ import java.util.Map;
 import static java.lang.String.format;
 
 /**
- * Provides support to XML generation across the library
+ * Provides support to XML generation across the library.  These methods build
+ * whole Strings, and are kept for compatibility: the generator itself writes
+ * through an <code>XmlEmitter</code>
+ * @see XmlEmitter
  */
 public class XmlHelper {
 	
 	//------------------------------------------------------------------
 	// Class methods
 	
-	/** 
-	 * Appends an xml attribute into the StringBuilder
-	 * @param sb Mutable String
-	 * @param name Name of the attribute
-	 * @param value Non null value to fill into the string
-	 */
-	private static void attr(StringBuilder sb, String name, String value) {
-		sb.append(format(" %s=\"%s\"", name, value));
-	}
-	
 	/**
 	 * Encloses a string into a CDATA construct as defined in its 
 	 * <a href="https://www.w3resource.com/xml/CDATA-sections.php">documentation</a>
@@ -36,36 +29,6 @@ public class XmlHelper {
 		return ret;
 	}
 
-	/** 
-	 * Appends an xml attribute into the StringBuilder
-	 * @param sb Mutable String
-	 * @param name Name of the attribute
-	 * @param value Value to fill into the string
-	 */
-	private static void attr(StringBuilder sb, String name, Double value) {
-		if (value != null) attr(sb, name, NumberFormatHelper.format(value));
-	}
-	
-	/** 
-	 * Appends an xml attribute into the StringBuilder
-	 * @param sb Mutable String
-	 * @param name Name of the attribute
-	 * @param value Value to fill into the string
-	 */
-	private static void attr(StringBuilder sb, String name, Long value) {
-		if (value != null) attr(sb, name, Long.toString(value));
-	}
-	
-	/** 
-	 * Appends an xml attribute into the StringBuilder
-	 * @param sb Mutable String
-	 * @param name Name of the attribute
-	 * @param value Value to fill into the string.  1 = true; 0 = false
-	 */
-	private static void attr(StringBuilder sb, String name, Boolean value) {
-		if (value != null) attr(sb, name, value?"1":"0");
-	}
-	
 	/**
 	 * Creates a closed, empty xml node with the indicated attributes
 	 * @param elementName Name of the element
@@ -141,32 +104,32 @@ public class XmlHelper {
 		String content,
 		boolean close
 	) {
-		StringBuilder sb = new StringBuilder();
-		sb.append("<");
-		sb.append(elementName);
-		if (attributes != null && !attributes.isEmpty()) {
-			sb.append(" ");
-			for (String key: attributes.keySet()) {
-				Object value = attributes.get(key);
-				switch (value) {
-					case String s -> attr(sb, key, s);
-					case Double d -> attr(sb, key, d);
-					case Boolean b -> attr(sb, key, b);
-					case Long l -> attr(sb, key, l);
-					case null, default -> attr(sb, key, value == null ? "" : value.toString());
+		return XmlEmitter.render(emitter -> {
+			emitter.startElement(elementName);
+			if (attributes != null) {
+				for (var entry: attributes.entrySet()) {
+					switch (entry.getValue()) {
+						case String s -> emitter.attribute(entry.getKey(), s);
+						case Double d -> emitter.attribute(entry.getKey(), d);
+						case Boolean b -> emitter.attribute(entry.getKey(), b);
+						case Long l -> emitter.attribute(entry.getKey(), l);
+						case null -> emitter.attribute(entry.getKey(), "");
+						default -> emitter.attribute(entry.getKey(), entry.getValue().toString());
+					}
 				}
 			}
-		}
-		if (content != null) {
-			sb.append(">");
-			sb.append(content);
-			if (close) {
-				sb.append(format("</%s>", elementName));
+			if (content != null) {
+				emitter.closeStartTag().raw(content);
+				if (close) {
+					emitter.endElement(elementName);
+				}
 			}
-		}
-		else {
-			sb.append(close?"/>":">");
-		}
-		return sb.toString();
+			else if (close) {
+				emitter.closeEmptyElement();
+			}
+			else {
+				emitter.closeStartTag();
+			}
+		});
 	}
 } 
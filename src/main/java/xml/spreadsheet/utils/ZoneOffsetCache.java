@@ -0,0 +1,73 @@
+package xml.spreadsheet.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Translates instants into local time for a given time zone.  The offset of the
+ * zone is kept for the whole period between two transitions, so that it is only
+ * looked up again when an instant falls out of it (say, on daylight saving time
+ * changes).
+ * <br/>
+ * This class is not thread-safe: every thread must use its own instance.
+ */
+public class ZoneOffsetCache {
+
+	//------------------------------------------------------------------
+	// Class members
+
+	/** Time zone */
+	private final ZoneId zone;
+	/** Rules of the time zone */
+	private final ZoneRules rules;
+	/** First second (from the epoch) of the period with the current offset */
+	private long periodStart = Long.MAX_VALUE;
+	/** First second (from the epoch) after the period with the current offset */
+	private long periodEnd = Long.MIN_VALUE;
+	/** Current offset, in milliseconds */
+	private long offsetMillis = 0;
+
+	//------------------------------------------------------------------
+	// Class methods
+
+	/**
+	 * Builds a cache for a time zone
+	 * @param zone Time zone
+	 */
+	public ZoneOffsetCache(ZoneId zone) {
+		this.zone = zone;
+		this.rules = zone.getRules();
+	}
+
+	/**
+	 * @return Time zone of this cache
+	 */
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * Translates an instant into local time
+	 * @param epochMillis Milliseconds from 1970-01-01T00:00:00.000Z
+	 * @return Milliseconds from 1970-01-01T00:00:00.000 in local time
+	 */
+	public long toLocalMillis(long epochMillis) {
+		long second = Math.floorDiv(epochMillis, 1000);
+		if (second < periodStart || second >= periodEnd) {
+			lookUp(second);
+		}
+		return epochMillis + offsetMillis;
+	}
+
+	// Finds the offset of the zone at a given second and the period it applies to
+	private void lookUp(long second) {
+		var instant = Instant.ofEpochSecond(second);
+		offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+		// Transitions happen on whole seconds: this one is the last at or before the instant
+		var previous = rules.previousTransition(instant.plusSeconds(1));
+		var next = rules.nextTransition(instant);
+		periodStart = previous == null ? Long.MIN_VALUE : previous.toEpochSecond();
+		periodEnd = next == null ? Long.MAX_VALUE : next.toEpochSecond();
+	}
+}
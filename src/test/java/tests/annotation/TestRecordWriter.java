@@ -0,0 +1,149 @@
+package tests.annotation;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.annotation.SpreadsheetColumn;
+import xml.spreadsheet.annotation.SpreadsheetColumn.Type;
+import xml.spreadsheet.style.Font;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.XmlTestUtils.executeWithTempFile;
+import static tests.XmlTestUtils.getAttributeValue;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestRecordWriter {
+
+	enum Status { OPEN, CLOSED }
+
+	record Order(
+		@SpreadsheetColumn(name = "Customer \"name\"", width = 120) String customer,
+		@SpreadsheetColumn(style = "money", width = 80) double amount,
+		@SpreadsheetColumn int quantity,
+		@SpreadsheetColumn Integer discount,
+		@SpreadsheetColumn BigDecimal tax,
+		@SpreadsheetColumn Boolean paid,
+		@SpreadsheetColumn Status status,
+		@SpreadsheetColumn(name = "Placed") LocalDate placed,
+		@SpreadsheetColumn(type = Type.DATE_TIME) Instant updated,
+		@SpreadsheetColumn(type = Type.STRING) long code,
+		// Not a column
+		String comment) {}
+
+	private static final List<Order> ORDERS = List.of(
+		new Order("ACME & Co.", 1250.5d, 3, 10, new BigDecimal("12.5"), true, Status.OPEN,
+			LocalDate.of(2023, 5, 1), Instant.parse("2023-05-01T10:15:30Z"), 42L, "first"),
+		new Order(null, -0.25d, 0, null, null, null, null, null, null, 7L, null));
+
+	@Test
+	public void testExport() {
+		executeWithTempFile( baos -> {
+			try {
+				final var SHEET_NAME = "orders";
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					generator.setZoneId(ZoneOffset.UTC);
+					var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+					var writer = new TestRecordWriter_OrderRowWriter(Map.of("money", generator.createStyle().build()));
+					generator.startDocument();
+					assertEquals(2, writer.export(generator, SHEET_NAME, bold, ORDERS));
+				}
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				var columns = searchColumns(doc, SHEET_NAME);
+				// Plus the empty column that closes the section
+				assertEquals(11, columns.size());
+				assertEquals("120", getAttributeValue(columns.get(0), "Width", "ss"));
+				assertEquals("80", getAttributeValue(columns.get(1), "Width", "ss"));
+				assertNotNull(getAttributeValue(columns.get(1), "StyleID", "ss"));
+				assertNull(getAttributeValue(columns.get(2), "Width", "ss"));
+				var rows = searchRows(doc, SHEET_NAME);
+				assertEquals(3, rows.size());
+				var header = searchCells(rows.get(0));
+				assertEquals(10, header.size());
+				assertEquals("Customer \"name\"", data(header.get(0)).getText());
+				assertEquals("amount", data(header.get(1)).getText());
+				assertEquals("Placed", data(header.get(7)).getText());
+				String[][] expected = {
+					{ "String", "ACME & Co." },
+					{ "Number", "1250.5" },
+					{ "Number", "3" },
+					{ "Number", "10" },
+					{ "Number", "12.5" },
+					{ "Boolean", "1" },
+					{ "String", "OPEN" },
+					{ "DateTime", "2023-05-01T00:00:00.000" },
+					{ "DateTime", "2023-05-01T10:15:30.000" },
+					{ "String", "42" }
+				};
+				var first = searchCells(rows.get(1));
+				assertEquals(expected.length, first.size());
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(expected[i][0], getAttributeValue(data(first.get(i)), "Type", "ss"));
+					assertEquals(expected[i][1], data(first.get(i)).getText());
+				}
+				var second = searchCells(rows.get(2));
+				assertEquals(expected.length, second.size());
+				assertEquals("", data(second.get(0)).getText());
+				assertEquals("-0.25", data(second.get(1)).getText());
+				for (int i = 3; i < 9; i++) {
+					assertEquals("", data(second.get(i)).getText());
+				}
+				assertEquals("7", data(second.get(9)).getText());
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+
+	@Test
+	public void testMissingStyle() {
+		assertThrows(IllegalArgumentException.class, TestRecordWriter_OrderRowWriter::new);
+	}
+
+	@Test
+	public void testSameAsCellByCell() {
+		try {
+			var cellByCell = new ByteArrayOutputStream();
+			var generated = new ByteArrayOutputStream();
+			var order = ORDERS.get(0);
+			try (var generator = new XMLSpreadsheetGenerator(cellByCell)) {
+				var money = generator.createStyle().build();
+				generator.startDocument();
+				generator.startSheet("orders");
+				generator.startRow();
+				generator.writeCell(order.customer());
+				generator.writeCell(money, order.amount());
+				generator.writeCell(order.quantity());
+				generator.writeCell(order.discount().longValue());
+				generator.writeCell(order.tax().doubleValue());
+				generator.writeCell(order.paid().booleanValue());
+				generator.writeCell(order.status().name());
+				generator.writeCell(order.placed());
+				generator.writeCell(order.updated());
+				generator.writeCell(Long.toString(order.code()));
+				generator.closeRow();
+				generator.closeSheet();
+			}
+			try (var generator = new XMLSpreadsheetGenerator(generated)) {
+				var writer = new TestRecordWriter_OrderRowWriter(Map.of("money", generator.createStyle().build()));
+				generator.startDocument();
+				generator.startSheet("orders");
+				writer.writeRow(generator, order);
+				generator.closeSheet();
+			}
+			assertArrayEquals(cellByCell.toByteArray(), generated.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
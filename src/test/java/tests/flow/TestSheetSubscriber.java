@@ -0,0 +1,205 @@
+package tests.flow;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.RowMapper;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.flow.SheetSubscriber;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestSheetSubscriber {
+
+	private static final int ELEMENTS = 5_000;
+	private static final String SHEET_NAME = "flow";
+	private static final String WRITER_THREAD = "sheet-writer";
+
+	// Single thread executor with a recognizable thread
+	private static ExecutorService writerExecutor() {
+		return Executors.newSingleThreadExecutor(r -> new Thread(r, WRITER_THREAD));
+	}
+
+	@Test
+	public void testPublisher() {
+		var executor = writerExecutor();
+		try (var publisher = new SubmissionPublisher<Integer>()) {
+			var baos = new ByteArrayOutputStream();
+			Set<String> threads = ConcurrentHashMap.newKeySet();
+			RowMapper<Integer> mapper = (i, rows) -> {
+				threads.add(Thread.currentThread().getName());
+				rows.writeRow("element " + i, (long) i);
+			};
+			var subscriber = new SheetSubscriber<>(new XMLSpreadsheetWriter(baos), SHEET_NAME, mapper, executor, 64);
+			publisher.subscribe(subscriber);
+			for (int i = 0; i < ELEMENTS; i++) {
+				publisher.submit(i);
+			}
+			publisher.close();
+			assertEquals(ELEMENTS, subscriber.completion().get(30, TimeUnit.SECONDS).longValue());
+			assertEquals(Set.of(WRITER_THREAD), threads);
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertNotNull(doc);
+			var rows = searchRows(doc, SHEET_NAME);
+			assertEquals(ELEMENTS, rows.size());
+			assertEquals(2, searchCells(rows.get(ELEMENTS - 1)).size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testDemand() {
+		final int BATCH_SIZE = 16;
+		var executor = writerExecutor();
+		try {
+			var baos = new ByteArrayOutputStream();
+			var requested = new AtomicLong();
+			var delivered = new AtomicLong();
+			var outstanding = new AtomicLong();
+			Set<String> callers = ConcurrentHashMap.newKeySet();
+			var subscriber = new SheetSubscriber<Integer>(new XMLSpreadsheetWriter(baos), SHEET_NAME, 
+				(i, rows) -> rows.writeRow((long) i), executor, BATCH_SIZE);
+			// Publishes synchronously, as much as requested
+			Flow.Publisher<Integer> publisher = s -> s.onSubscribe(new Flow.Subscription() {
+				private boolean emitting = false;
+				@Override
+				public synchronized void request(long n) {
+					callers.add(Thread.currentThread().getName());
+					requested.addAndGet(n);
+					outstanding.accumulateAndGet(n, Math::max);
+					if (emitting) {
+						return;
+					}
+					emitting = true;
+					while (delivered.get() < requested.get() && delivered.get() < ELEMENTS) {
+						outstanding.accumulateAndGet(requested.get() - delivered.get(), Math::max);
+						s.onNext((int) delivered.getAndIncrement());
+					}
+					if (delivered.get() == ELEMENTS) {
+						delivered.incrementAndGet();
+						s.onComplete();
+					}
+					emitting = false;
+				}
+				@Override
+				public void cancel() {}
+			});
+			publisher.subscribe(subscriber);
+			assertEquals(ELEMENTS, subscriber.completion().get(30, TimeUnit.SECONDS).longValue());
+			// Never more than a batch waiting to be written
+			assertTrue(outstanding.get() <= BATCH_SIZE);
+			// Every request comes from the writing task, so they never overlap
+			assertEquals(Set.of(WRITER_THREAD), callers);
+			assertEquals(ELEMENTS, searchRows(parseDocument(baos.toString(StandardCharsets.UTF_8)), SHEET_NAME).size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancel() {
+		var executor = writerExecutor();
+		try (var publisher = new SubmissionPublisher<Integer>()) {
+			var baos = new ByteArrayOutputStream();
+			var written = new CountDownLatch(100);
+			var subscriber = new SheetSubscriber<Integer>(new XMLSpreadsheetWriter(baos), SHEET_NAME, 
+				(i, rows) -> {
+					rows.writeRow((long) i);
+					written.countDown();
+				}, executor, 32);
+			publisher.subscribe(subscriber);
+			var producer = CompletableFuture.runAsync(() -> {
+				for (int i = 0; i < ELEMENTS && !publisher.isClosed() && publisher.hasSubscribers(); i++) {
+					publisher.offer(i, 10, TimeUnit.MILLISECONDS, null);
+				}
+			});
+			assertTrue(written.await(30, TimeUnit.SECONDS));
+			assertTrue(subscriber.completion().cancel(false));
+			producer.get(30, TimeUnit.SECONDS);
+			// Every write has been run once the executor is done
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+			assertFalse(publisher.hasSubscribers());
+			// Truncated, but well-formed
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertNotNull(doc);
+			var rows = searchRows(doc, SHEET_NAME).size();
+			assertTrue(rows >= 100 && rows < ELEMENTS);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPublisherError() {
+		var executor = writerExecutor();
+		try (var publisher = new SubmissionPublisher<Integer>()) {
+			var baos = new ByteArrayOutputStream();
+			var subscriber = new SheetSubscriber<Integer>(new XMLSpreadsheetWriter(baos), SHEET_NAME, 
+				(i, rows) -> rows.writeRow((long) i), executor);
+			publisher.subscribe(subscriber);
+			for (int i = 0; i < 10; i++) {
+				publisher.submit(i);
+			}
+			publisher.closeExceptionally(new IllegalStateException("publisher failure"));
+			var e = assertThrows(ExecutionException.class, () -> subscriber.completion().get(30, TimeUnit.SECONDS));
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertNotNull(parseDocument(baos.toString(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testMapperFailure() {
+		var executor = writerExecutor();
+		try (var publisher = new SubmissionPublisher<Integer>()) {
+			var baos = new ByteArrayOutputStream();
+			var subscriber = new SheetSubscriber<Integer>(new XMLSpreadsheetWriter(baos), SHEET_NAME, 
+				(i, rows) -> rows.writeRow(i == 50 ? new Object() : (long) i), executor);
+			publisher.subscribe(subscriber);
+			for (int i = 0; i < 100; i++) {
+				publisher.submit(i);
+			}
+			publisher.close();
+			var e = assertThrows(ExecutionException.class, () -> subscriber.completion().get(30, TimeUnit.SECONDS));
+			assertTrue(e.getCause() instanceof XMLSpreadsheetException);
+			// Closed anyway, though the failing row is left unfinished
+			assertTrue(baos.toString(StandardCharsets.UTF_8).endsWith("</Workbook>"));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testWrongParameters() {
+		assertThrows(XMLSpreadsheetException.class, 
+			() -> new SheetSubscriber<Integer>(new XMLSpreadsheetWriter(new ByteArrayOutputStream()), SHEET_NAME, 
+				(i, rows) -> {}, null));
+		assertThrows(XMLSpreadsheetException.class, 
+			() -> new SheetSubscriber<Integer>(new XMLSpreadsheetWriter(new ByteArrayOutputStream()), SHEET_NAME, 
+				(i, rows) -> {}, Runnable::run, 1));
+	}
+}
@@ -0,0 +1,178 @@
+package tests.flow;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.RowMapper;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.flow.SpreadsheetInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestSpreadsheetInputStream {
+
+	private static final int ELEMENTS = 10_000;
+
+	// Writes every element as a row, and every tenth one as two
+	private static final RowMapper<Integer> MAPPER = (i, rows) -> {
+		rows.writeRow("element " + i + " €", i * 0.25d, (long) i);
+		if (i % 10 == 0) {
+			rows.emptyRow();
+		}
+	};
+
+	// Elements of a sheet
+	private static Iterator<Integer> elements(int count) {
+		return IntStream.range(0, count).iterator();
+	}
+
+	// A stream with two sheets and an empty one in between
+	private static SpreadsheetInputStream stream() throws XMLSpreadsheetException {
+		return new SpreadsheetInputStream()
+			.addSheet("first", elements(ELEMENTS), MAPPER)
+			.addSheet("empty", elements(0), MAPPER)
+			.addSheet("second", elements(ELEMENTS / 2), MAPPER);
+	}
+
+	// The same document, written at once
+	private static byte[] expected() throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var workbook = new XMLSpreadsheetWriter(baos).startDocument()) {
+			var rows = workbook.startSheet("first");
+			for (int i = 0; i < ELEMENTS; i++) {
+				MAPPER.writeRows(i, rows);
+			}
+			rows.closeSheet().startSheet("empty").closeSheet();
+			rows = workbook.startSheet("second");
+			for (int i = 0; i < ELEMENTS / 2; i++) {
+				MAPPER.writeRows(i, rows);
+			}
+			rows.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testSameDocument() {
+		try {
+			var expected = expected();
+			try (var input = stream()) {
+				assertArrayEquals(expected, input.readAllBytes());
+				assertEquals(-1, input.read());
+			}
+			// Byte by byte, and by odd pieces
+			var bytes = new ByteArrayOutputStream();
+			try (var input = stream()) {
+				int b;
+				while ((b = input.read()) >= 0) {
+					bytes.write(b);
+				}
+			}
+			assertArrayEquals(expected, bytes.toByteArray());
+			bytes.reset();
+			try (var input = stream()) {
+				var buffer = new byte[7];
+				int count;
+				while ((count = input.read(buffer, 0, buffer.length)) >= 0) {
+					bytes.write(buffer, 0, count);
+				}
+			}
+			assertArrayEquals(expected, bytes.toByteArray());
+			var doc = parseDocument(new String(expected, StandardCharsets.UTF_8));
+			assertEquals(ELEMENTS + ELEMENTS / 10, searchRows(doc, "first").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testLazy() {
+		try {
+			var taken = new AtomicInteger();
+			Iterator<Integer> endless = new Iterator<>() {
+				@Override
+				public boolean hasNext() {
+					return true;
+				}
+				@Override
+				public Integer next() {
+					return taken.getAndIncrement();
+				}
+			};
+			try (var input = new SpreadsheetInputStream(4096).addSheet("endless", endless, MAPPER)) {
+				// The first bytes come before most of the rows are written
+				var first = input.readNBytes(100);
+				assertEquals(100, first.length);
+				assertTrue(new String(first, StandardCharsets.UTF_8).startsWith("<?xml"));
+				assertTrue(taken.get() < 100);
+				// Memory does not grow with what is read
+				for (int i = 0; i < 1_000; i++) {
+					input.readNBytes(4096);
+					assertTrue(input.available() < 8192);
+				}
+				assertTrue(taken.get() > 1_000);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCompressed() {
+		try {
+			var input = stream();
+			input.getWriter().setCompressed(true);
+			try (InputStream gunzip = new GZIPInputStream(input)) {
+				assertArrayEquals(expected(), gunzip.readAllBytes());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testMapperFailure() {
+		try {
+			var input = new SpreadsheetInputStream().addSheet("failing", elements(ELEMENTS), 
+				(i, rows) -> rows.writeRow(i == 5_000 ? new Object() : (long) i));
+			var e = assertThrows(IOException.class, input::readAllBytes);
+			assertTrue(e.getCause() instanceof XMLSpreadsheetException);
+			// Still failing
+			assertThrows(IOException.class, input::read);
+			input.close();
+			assertThrows(IOException.class, input::read);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWrongUsage() {
+		try {
+			var input = stream();
+			input.read();
+			// Too late to add sheets
+			assertThrows(XMLSpreadsheetException.class, () -> input.addSheet("late", elements(1), MAPPER));
+			assertThrows(XMLSpreadsheetException.class, () -> new SpreadsheetInputStream().addSheet("missing", null, MAPPER));
+			var pipelined = stream();
+			pipelined.getWriter().setPipelined(true);
+			assertThrows(IOException.class, pipelined::read);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
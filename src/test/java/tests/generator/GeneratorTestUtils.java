@@ -5,6 +5,7 @@ import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.util.List;
 
@@ -28,6 +29,19 @@ public class GeneratorTestUtils {
 		}
 		return doc;
 	}
+
+	// Parses a document from its bytes, honoring the encoding it declares
+	public static Document parseDocument(byte[] value) {
+		Document doc = null;
+		try {
+			var builder = new SAXBuilder();
+			doc = builder.build(new ByteArrayInputStream(value));
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+		}
+		return doc;
+	}
 	
 	// List of rows of a certain sheet
 	// Returns rows as Element objects
@@ -47,6 +61,12 @@ public class GeneratorTestUtils {
 		return generateXPathExpression("ss:Cell").evaluate(row);
 	}
 	
+	// Data element of a cell
+	// Returns null for an empty cell
+	public static Element data(Element cell) {
+		return cell.getContent().isEmpty() ? null : (Element) cell.getContent().get(0);
+	}
+	
 	// Style of a certain id
 	// Returns the style as an Element object
 	public static Element searchStyle(Document doc, String styleId) throws JDOMException {
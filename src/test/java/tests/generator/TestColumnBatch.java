@@ -0,0 +1,115 @@
+package tests.generator;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.ColumnBatch;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.style.Font;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestColumnBatch {
+
+	// More than a chunk of rows
+	private static final int ROWS = 600;
+	private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
+
+	@Test
+	public void testSameOutputAsCells() {
+		try {
+			var doubles = new double[ROWS];
+			var longs = new long[ROWS];
+			var booleans = new boolean[ROWS];
+			var millis = new long[ROWS];
+			var strings = new String[ROWS];
+			// Every third value is missing
+			var validity = new long[(ROWS + 63) / 64];
+			for (int i = 0; i < ROWS; i++) {
+				doubles[i] = i % 7 == 0 ? Double.NaN : i * 1.25d;
+				longs[i] = i * -1_000_003L;
+				booleans[i] = i % 2 == 0;
+				millis[i] = 1_700_000_000_000L + i * 86_400_123L;
+				strings[i] = i % 5 == 0 ? null : "value & " + i;
+				if (i % 3 != 0) {
+					validity[i / 64] |= 1L << i;
+				}
+			}
+			var cellByCell = new ByteArrayOutputStream();
+			var columnar = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(cellByCell)) {
+				generator.setZoneId(ZONE);
+				var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+				generator.startDocument();
+				generator.startSheet("columns");
+				for (int i = 0; i < ROWS; i++) {
+					boolean valid = i % 3 != 0;
+					generator.startRow();
+					generator.writeCell(bold, doubles[i]);
+					generator.writeCell(null, valid ? (Double) (double) longs[i] : null);
+					if (valid) {
+						generator.writeCell(null, longs[i]);
+					}
+					else {
+						generator.writeCell(null, (Double) null);
+					}
+					generator.writeCell(booleans[i]);
+					generator.writeCell(valid ? Instant.ofEpochMilli(millis[i]) : null);
+					generator.writeCell(bold, strings[i]);
+					generator.closeRow();
+				}
+				generator.closeSheet();
+			}
+			try (var generator = new XMLSpreadsheetGenerator(columnar)) {
+				generator.setZoneId(ZONE);
+				var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+				var asDoubles = new double[ROWS];
+				for (int i = 0; i < ROWS; i++) {
+					asDoubles[i] = longs[i];
+				}
+				var batch = ColumnBatch.builder()
+					.withDoubles(bold, doubles)
+					.withDoubles(null, asDoubles, validity)
+					.withLongs(null, longs, validity)
+					.withBooleans(null, booleans)
+					.withEpochMillis(null, millis, validity)
+					.withStrings(bold, strings)
+					.build();
+				assertEquals(ROWS, batch.rows());
+				assertEquals(6, batch.size());
+				generator.startDocument();
+				generator.startSheet("columns");
+				generator.writeColumns(batch);
+				generator.closeSheet();
+			}
+			assertArrayEquals(cellByCell.toByteArray(), columnar.toByteArray());
+			var doc = parseDocument(columnar.toString(StandardCharsets.UTF_8));
+			assertEquals(ROWS, searchRows(doc, "columns").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testBatchErrors() {
+		assertThrows(XMLSpreadsheetException.class, 
+			() -> ColumnBatch.builder().withDoubles(null, new double[2]).withLongs(null, new long[3]).build());
+		assertThrows(XMLSpreadsheetException.class, 
+			() -> ColumnBatch.builder().withLongs(null, new long[65], new long[1]).build());
+		assertThrows(XMLSpreadsheetException.class, 
+			() -> ColumnBatch.builder().withStrings(null, null).build());
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+				generator.startDocument();
+				// Not inside a sheet
+				generator.writeColumns(ColumnBatch.builder().withLongs(null, new long[1]).build());
+			}
+		});
+	}
+}
@@ -0,0 +1,307 @@
+package tests.generator;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.RowTemplate.ColumnType;
+import xml.spreadsheet.Style;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.XmlTestUtils.executeWithTempFile;
+import static tests.XmlTestUtils.getAttributeValue;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestGeneratorCellTypes {
+
+	@Test
+	public void testPrimitiveCells() {
+		executeWithTempFile( baos -> {
+			try {
+				final var SHEET_NAME = "primitives";
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					var style = generator.createStyle().build();
+					generator.startDocument();
+					generator.startSheet(SHEET_NAME);
+					generator.startRow();
+					generator.writeCell(style, 12.75d);
+					generator.writeCell(style, -9876543210L);
+					generator.writeCell(style, 42);
+					generator.writeCell(style, true);
+					generator.writeCell(false);
+					generator.writeCell(Long.MIN_VALUE);
+					generator.closeRow();
+					generator.closeSheet();
+				}
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				var cells = searchCells(searchRows(doc, SHEET_NAME).get(0));
+				assertEquals(6, cells.size());
+				String[][] expected = {
+					{ "Number", "12.75" },
+					{ "Number", "-9876543210" },
+					{ "Number", "42" },
+					{ "Boolean", "1" },
+					{ "Boolean", "0" },
+					{ "Number", Long.toString(Long.MIN_VALUE) }
+				};
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(expected[i][0], getAttributeValue(data(cells.get(i)), "Type", "ss"));
+					assertEquals(expected[i][1], data(cells.get(i)).getText());
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+
+	@Test
+	public void testErrorCells() {
+		executeWithTempFile( baos -> {
+			try {
+				final var SHEET_NAME = "errors";
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					generator.startDocument();
+					generator.startSheet(SHEET_NAME);
+					generator.startRow();
+					generator.writeErrorCell(null, "#N/A");
+					// Not representable in a spreadsheet
+					generator.writeCell(Double.NaN);
+					generator.writeCell(null, Double.POSITIVE_INFINITY);
+					generator.closeRow();
+					generator.closeSheet();
+				}
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				var cells = searchCells(searchRows(doc, SHEET_NAME).get(0));
+				assertEquals(3, cells.size());
+				assertEquals("#N/A", data(cells.get(0)).getText());
+				assertEquals("#NUM!", data(cells.get(1)).getText());
+				assertEquals("#NUM!", data(cells.get(2)).getText());
+				for (var cell: cells) {
+					assertEquals("Error", getAttributeValue(data(cell), "Type", "ss"));
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+
+	@Test
+	public void testBoxedAndPrimitiveMatch() {
+		try {
+			var boxed = new ByteArrayOutputStream();
+			var primitive = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(boxed)) {
+				generator.startDocument();
+				generator.startSheet("numbers");
+				generator.startRow();
+				generator.writeCell(Double.valueOf(3.14159265d));
+				generator.closeRow();
+				generator.closeSheet();
+			}
+			try (var generator = new XMLSpreadsheetGenerator(primitive)) {
+				generator.startDocument();
+				generator.startSheet("numbers");
+				generator.startRow();
+				generator.writeCell(3.14159265d);
+				generator.closeRow();
+				generator.closeSheet();
+			}
+			assertArrayEquals(boxed.toByteArray(), primitive.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testDateCells() {
+		executeWithTempFile( baos -> {
+			try {
+				final var SHEET_NAME = "dates";
+				final var ZONE = ZoneId.of("America/New_York");
+				final var WINTER = Instant.parse("2023-01-15T12:30:45.123Z");
+				final var SUMMER = Instant.parse("2023-07-15T12:30:45.123Z");
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					generator.setZoneId(ZONE);
+					assertEquals(ZONE, generator.getZoneId());
+					generator.startDocument();
+					generator.startSheet(SHEET_NAME);
+					generator.startRow();
+					generator.writeCell(LocalDate.of(1987, 10, 30));
+					generator.writeCell(LocalDateTime.of(2014, 3, 22, 13, 5, 7, 167_500_000));
+					generator.writeCell(WINTER);
+					generator.writeCell(SUMMER);
+					generator.writeCell(Date.from(SUMMER));
+					generator.writeCell(OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(9)));
+					generator.writeCell((Instant) null);
+					generator.closeRow();
+					generator.closeSheet();
+				}
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				var cells = searchCells(searchRows(doc, SHEET_NAME).get(0));
+				String[] expected = {
+					"1987-10-30T00:00:00.000",
+					"2014-03-22T13:05:07.167",
+					"2023-01-15T07:30:45.123",
+					"2023-07-15T08:30:45.123",
+					"2023-07-15T08:30:45.123",
+					"2020-01-02T03:04:05.000",
+					""
+				};
+				assertEquals(expected.length, cells.size());
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals("DateTime", getAttributeValue(data(cells.get(i)), "Type", "ss"));
+					assertEquals(expected[i], data(cells.get(i)).getText());
+					// Default date format
+					assertNotNull(getAttributeValue(cells.get(i), "StyleID", "ss"));
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+
+	@Test
+	public void testZoneAfterInitialization() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+				generator.startDocument();
+				generator.setZoneId(ZoneOffset.UTC);
+			}
+		});
+	}
+
+	@Test
+	public void testWriteRow() {
+		try {
+			var cellByCell = new ByteArrayOutputStream();
+			var bulk = new ByteArrayOutputStream();
+			final var DATE = LocalDate.of(1987, 10, 30);
+			try (var generator = new XMLSpreadsheetGenerator(cellByCell)) {
+				var style = generator.createStyle().build();
+				generator.startDocument();
+				generator.startSheet("rows");
+				generator.startRow();
+				generator.writeCell(style, "text");
+				generator.writeCell(1.5d);
+				generator.writeCell(style, 42L);
+				generator.writeCell(7);
+				generator.writeCell(0.25d);
+				generator.writeCell(true);
+				generator.writeCell(DATE);
+				generator.writeEmptyCell();
+				generator.closeRow();
+				generator.startRow();
+				generator.writeCell(style, 1d);
+				generator.writeCell(Double.NaN);
+				generator.closeRow();
+				generator.startRow();
+				generator.writeCell(-3L);
+				generator.writeCell(Long.MAX_VALUE);
+				generator.closeRow();
+				generator.emptyRow();
+				generator.closeSheet();
+			}
+			try (var generator = new XMLSpreadsheetGenerator(bulk)) {
+				var style = generator.createStyle().build();
+				generator.startDocument();
+				generator.startSheet("rows");
+				generator.writeRow(
+					new Style[] { style, null, style, null, null, null, null, null },
+					new Object[] { "text", 1.5d, 42L, 7, 0.25f, true, DATE, null });
+				generator.writeRow(new Style[] { style, null }, new double[] { 1d, Double.NaN });
+				generator.writeRow(new long[] { -3L, Long.MAX_VALUE });
+				generator.writeRow();
+				generator.closeSheet();
+			}
+			assertArrayEquals(cellByCell.toByteArray(), bulk.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWriteRowErrors() {
+		try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+			var style = generator.createStyle().build();
+			// Document not started yet
+			assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(1L, 2L));
+			generator.startDocument();
+			generator.startSheet("errors");
+			assertThrows(XMLSpreadsheetException.class, 
+				() -> generator.writeRow(new Style[] { style }, new long[] { 1L, 2L }));
+			assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(new Object()));
+			// Not inside a row
+			generator.startRow();
+			assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(new double[] { 1d }));
+			generator.closeRow();
+			generator.closeSheet();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWrongRowLeavesNoOpenRow() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(baos)) {
+				generator.startDocument();
+				generator.startSheet("wrong");
+				generator.writeRow("before", 1L);
+				// The last value cannot be written, after some that can
+				assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow("text", 2L, new Object()));
+				generator.writeRow("after", 3L);
+				generator.closeSheet();
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertNotNull(doc);
+			var rows = searchRows(doc, "wrong");
+			assertEquals(2, rows.size());
+			assertEquals("after", data(searchCells(rows.get(1)).get(0)).getText());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWrongRowKeepsState() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(baos)) {
+				var style = generator.createStyle().build();
+				generator.startDocument();
+				var template = generator.createRowTemplate().withColumn(ColumnType.NUMBER, null).build();
+				generator.startSheet("state");
+				// Nothing is written, and the columns can still be defined
+				assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(new Object()));
+				assertThrows(XMLSpreadsheetException.class, 
+					() -> generator.writeRow(new Style[] { style }, new long[] { 1L, 2L }));
+				assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(template, "text"));
+				generator.startColumns();
+				generator.column(null, 20d);
+				generator.closeColumns();
+				generator.writeRow(template, 1L);
+				generator.closeSheet();
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertEquals(1, searchRows(doc, "state").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
@@ -3,6 +3,8 @@ package tests.generator;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEncoding;
+import xml.spreadsheet.OutputEngine;
 import xml.spreadsheet.Style;
 import xml.spreadsheet.XMLSpreadsheetException;
 import xml.spreadsheet.XMLSpreadsheetGenerator;
@@ -16,7 +18,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Date;
 
@@ -35,7 +37,7 @@ public class TestGeneratorMisc {
 			try (var generator = new XMLSpreadsheetGenerator(baos)) {
 				generator.startDocument();
 			}
-			var document = baos.toString(Charset.forName("cp1252"));
+			var document = baos.toString(StandardCharsets.UTF_8);
 			var doc = GeneratorTestUtils.parseDocument(document);
 			assertNotNull(doc);
 		}
@@ -51,7 +53,7 @@ public class TestGeneratorMisc {
 				try (var generator = new XMLSpreadsheetGenerator(baos)) {
 					generator.startDocument();
 				}
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				var doc = GeneratorTestUtils.parseDocument(document);
 				assertNotNull(doc);
 			} catch (Exception e) {
@@ -81,7 +83,7 @@ public class TestGeneratorMisc {
 					generator.closeRow();
 					generator.closeSheet();
 				}
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 
 				// Not empty and correct document
 				var doc = GeneratorTestUtils.parseDocument(document);
@@ -134,7 +136,7 @@ public class TestGeneratorMisc {
 					generator.closeRow();
 					generator.closeSheet();
 				}
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 
 				// Not empty and correct document
 				var doc = GeneratorTestUtils.parseDocument(document);
@@ -185,7 +187,7 @@ public class TestGeneratorMisc {
 					generator.closeRow();
 					generator.closeSheet();
 				}
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 
 				// Not empty and correct document
 				var doc = GeneratorTestUtils.parseDocument(document);
@@ -272,7 +274,7 @@ public class TestGeneratorMisc {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = GeneratorTestUtils.parseDocument(document);
 				assertNotNull(doc);
@@ -378,7 +380,7 @@ public class TestGeneratorMisc {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 
 				// Not empty and correct document
 				var doc = GeneratorTestUtils.parseDocument(document);
@@ -575,4 +577,78 @@ public class TestGeneratorMisc {
 			fail(e.getMessage());
 		}
 	}
+
+	// Text with characters out of cp1252
+	private static final String UNICODE_TEXT = "r\u00e9sum\u00e9 \u201cquoted\u201d \u4e2d\u6587 \ud83d\ude00";
+
+	// Writes the same document with a given engine and encoding
+	private static byte[] writeWithEngine(OutputEngine engine, OutputEncoding encoding) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos, 64)) {
+			generator.setOutputEngine(engine);
+			assertEquals(engine, generator.getOutputEngine());
+			generator.setOutputEncoding(encoding);
+			assertEquals(encoding, generator.getOutputEncoding());
+			var style = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+			generator.startDocument();
+			generator.startSheet("Caf\u00e9 \u20ac");
+			for (int i = 0; i < 50; i++) {
+				generator.startRow(null, null, i % 2 == 0 ? 12.5d : null, null, null);
+				generator.writeCell(style, UNICODE_TEXT + " " + i);
+				generator.writeCell(i * 1.25d);
+				generator.writeCell(i % 3 == 0);
+				generator.writeEmptyCell();
+				generator.closeRow();
+			}
+			generator.emptyRow();
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testOutputEngines() {
+		try {
+			for (var encoding: OutputEncoding.values()) {
+				var bytes = writeWithEngine(OutputEngine.BYTES, encoding);
+				assertArrayEquals(writeWithEngine(OutputEngine.WRITER, encoding), bytes);
+				assertArrayEquals(writeWithEngine(OutputEngine.ENCODER, encoding), bytes);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testOutputEncodings() {
+		try {
+			// UTF-8 keeps every character
+			var doc = GeneratorTestUtils.parseDocument(writeWithEngine(OutputEngine.BYTES, OutputEncoding.UTF_8));
+			assertNotNull(doc);
+			var cell = searchCells(searchRows(doc, "Caf\u00e9 \u20ac").get(0)).get(0);
+			assertEquals(UNICODE_TEXT + " 0", ((Element) cell.getContent().get(0)).getText());
+			// cp1252 declares itself as such, and loses what it cannot represent
+			var bytes = writeWithEngine(OutputEngine.BYTES, OutputEncoding.CP1252);
+			assertTrue(new String(bytes, StandardCharsets.US_ASCII).startsWith(
+				"<?xml version=\"1.0\" encoding=\"windows-1252\"?>"));
+			doc = GeneratorTestUtils.parseDocument(bytes);
+			assertNotNull(doc);
+			cell = searchCells(searchRows(doc, "Caf\u00e9 \u20ac").get(0)).get(0);
+			assertEquals("r\u00e9sum\u00e9 \u201cquoted\u201d ?? ? 0", ((Element) cell.getContent().get(0)).getText());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testOutputEngineAfterInitialization() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+				generator.startDocument();
+				generator.setOutputEngine(OutputEngine.WRITER);
+			}
+		});
+	}
 }
@@ -12,7 +12,7 @@ import xml.spreadsheet.utils.BooleanFormatHelper;
 import xml.spreadsheet.utils.NumberFormatHelper;
 
 import java.io.ByteArrayOutputStream;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -69,7 +69,7 @@ public class TestGeneratorStyles {
 				generator.createStyle();				
 				generator.startDocument();				
 			}
-			var document = baos.toString(Charset.forName("cp1252"));
+			var document = baos.toString(StandardCharsets.UTF_8);
 			var doc = parseDocument(document);
 			assertNotNull(doc);
 		} catch(Exception e) {
@@ -87,7 +87,7 @@ public class TestGeneratorStyles {
 				).build();
 				generator.startDocument();			
 			}
-			var document = baos.toString(Charset.forName("cp1252"));
+			var document = baos.toString(StandardCharsets.UTF_8);
 			var doc = parseDocument(document);
 			assertNotNull(doc);
 			checkAttributeValue(
@@ -109,7 +109,7 @@ public class TestGeneratorStyles {
 				).build();
 				generator.startDocument();
 			}
-			var document = baos.toString(Charset.forName("cp1252"));
+			var document = baos.toString(StandardCharsets.UTF_8);
 			var doc = parseDocument(document);
 			assertNotNull(doc);
 			checkAttributeValue("ss", doc, "//ss:Style/ss:Borders/ss:Border", "Position", Bottom.toString());
@@ -209,7 +209,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -349,7 +349,7 @@ public class TestGeneratorStyles {
 				}
 
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -428,7 +428,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -478,7 +478,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -542,7 +542,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -623,7 +623,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -700,7 +700,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -805,7 +805,7 @@ public class TestGeneratorStyles {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 
 				// Not empty and correct document
 				var doc = parseDocument(document);
@@ -863,4 +863,4 @@ public class TestGeneratorStyles {
 			}
 		});
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -7,6 +7,7 @@ import xml.spreadsheet.XMLSpreadsheetGenerator;
 
 import java.util.Date;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.fail;
 import static tests.XmlTestUtils.executeWithTempFile;
@@ -119,4 +120,43 @@ public class TestGeneratorTransitions {
 			}
 		});
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testInvalidTransitionMessages() {
+		executeWithTempFile( baos -> {
+			final var LS = System.lineSeparator();
+			try {
+				// Don't mind here to have a warning that the resource is never closed
+				@SuppressWarnings("resource")
+				var generator = new XMLSpreadsheetGenerator(baos);
+				generator.startDocument();
+				generator.startSheet("this will fail");
+				generator.writeCell(1L); // not the proper place
+				fail(); // Should not get here!
+			} catch (XMLSpreadsheetException e) {
+				assertEquals("Invalid transition: WRITING_SHEET -> WRITING_CELL" + LS
+					+ "Valid transitions from WRITING_SHEET: " + LS
+					+ "WRITING_COLUMNS" + LS + "WRITING_ROW" + LS + "CLEAN_DOCUMENT", e.getMessage());
+			} catch (Throwable t) {
+				fail();
+			}
+			try {
+				// Don't mind here to have a warning that the resource is never closed
+				@SuppressWarnings("resource")
+				var generator = new XMLSpreadsheetGenerator(baos);
+				generator.startDocument();
+				generator.startSheet("this will fail");
+				generator.startRow();
+				generator.writeCell(1L);
+				generator.closeSheet(); // the row is still open
+				fail(); // Should not get here!
+			} catch (XMLSpreadsheetException e) {
+				assertEquals("Invalid transition: WRITING_ROW -> CLEAN_DOCUMENT" + LS
+					+ "Valid transitions from WRITING_ROW: " + LS
+					+ "WRITING_SHEET_ROWS" + LS + "WRITING_CELL", e.getMessage());
+			} catch (Throwable t) {
+				fail();
+			}
+		});
+	}
+}
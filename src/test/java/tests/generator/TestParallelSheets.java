@@ -0,0 +1,191 @@
+package tests.generator;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.RowsWriter;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestParallelSheets {
+
+	private static final int ROWS = 500;
+
+	// Fills the sheet of a month, and closes it
+	private static void fill(RowsWriter sheet, Month month) throws XMLSpreadsheetException {
+		for (int i = 0; i < ROWS; i++) {
+			sheet.startRow()
+				.writeCell(month.name() + " #" + i)
+				.writeCell(i * 1.25d)
+				.writeCell(LocalDate.of(2023, month, 1 + i % 28))
+				.closeRow();
+		}
+		sheet.closeSheet();
+	}
+
+	// Writes a sheet per month, and a summary in between, one after another
+	private static void sequential(OutputStream output, OutputEngine engine) throws Exception {
+		var writer = new XMLSpreadsheetWriter(output);
+		writer.setOutputEngine(engine);
+		try (var workbook = writer.startDocument()) {
+			for (var month: Month.values()) {
+				if (month == Month.JULY) {
+					workbook.startSheet("summary").writeRow("first half").closeSheet();
+				}
+				fill(workbook.startSheet(month.name(), month == Month.MAY), month);
+			}
+		}
+	}
+
+	// Writes the same document with every month in its own thread
+	private static void parallel(OutputStream output, OutputEngine engine, long spillThreshold) throws Exception {
+		var writer = new XMLSpreadsheetWriter(output);
+		writer.setOutputEngine(engine);
+		writer.setSpillThreshold(spillThreshold);
+		var executor = Executors.newFixedThreadPool(4);
+		try (var workbook = writer.startDocument()) {
+			var tasks = new ArrayList<Callable<Void>>();
+			for (var month: Month.values()) {
+				if (month == Month.JULY) {
+					// The first half must be done before going on
+					for (var future: executor.invokeAll(tasks)) {
+						future.get();
+					}
+					tasks.clear();
+					workbook.startSheet("summary").writeRow("first half").closeSheet();
+				}
+				var sheet = workbook.startParallelSheet(month.name(), month == Month.MAY);
+				tasks.add(() -> {
+					fill(sheet, month);
+					return null;
+				});
+			}
+			for (var future: executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSameOutputAsSequential() {
+		try {
+			for (var engine: OutputEngine.values()) {
+				var expected = new ByteArrayOutputStream();
+				sequential(expected, engine);
+				for (long spillThreshold: new long[] { 16 * 1024 * 1024, 1024, 0 }) {
+					var actual = new ByteArrayOutputStream();
+					parallel(actual, engine, spillThreshold);
+					assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+				}
+				var doc = parseDocument(expected.toString(StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				assertEquals(ROWS, searchRows(doc, "DECEMBER").size());
+				assertEquals(1, searchRows(doc, "summary").size());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSpillIntoFile() {
+		try {
+			var expected = new ByteArrayOutputStream();
+			sequential(expected, OutputEngine.BYTES);
+			var file = Files.createTempFile("parallel", ".xml");
+			try {
+				// Spill files are transferred straight into the output file
+				parallel(new FileOutputStream(file.toFile()), OutputEngine.BYTES, 0);
+				assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+			} finally {
+				Files.delete(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testUnclosedSheet() {
+		try {
+			var closed = new AtomicBoolean();
+			var output = new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					closed.set(true);
+				}
+			};
+			var workbook = new XMLSpreadsheetWriter(output).startDocument();
+			var sheet = workbook.startParallelSheet("open").writeRow(1L, 2L);
+			workbook.startParallelSheet("closed").closeSheet();
+			assertThrows(XMLSpreadsheetException.class, () -> workbook.startSheet("next"));
+			var e = assertThrows(XMLSpreadsheetException.class, workbook::close);
+			assertTrue(e.getMessage().contains("[open]"));
+			// The output is closed anyway, and the open sheet is not written any further
+			assertTrue(closed.get());
+			assertThrows(XMLSpreadsheetException.class, sheet::closeSheet);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCloseWhileWriting() {
+		try {
+			for (long spillThreshold: new long[] { Long.MAX_VALUE, 0 }) {
+				for (int i = 0; i < 20; i++) {
+					var writer = new XMLSpreadsheetWriter(new ByteArrayOutputStream(), 64);
+					writer.setSpillThreshold(spillThreshold);
+					var workbook = writer.startDocument();
+					var sheet = workbook.startParallelSheet("abandoned");
+					var started = new CountDownLatch(1);
+					var producer = CompletableFuture.runAsync(() -> {
+						try {
+							for (long row = 0; ; row++) {
+								sheet.writeRow("row", row);
+								started.countDown();
+							}
+						} catch (XMLSpreadsheetException e) {
+							// The only way out
+						}
+					});
+					started.await();
+					assertThrows(XMLSpreadsheetException.class, workbook::close);
+					// Anything else than the exception of a discarded sheet fails here
+					producer.get(30, TimeUnit.SECONDS);
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testNegativeSpillThreshold() {
+		assertThrows(XMLSpreadsheetException.class, 
+			() -> new XMLSpreadsheetWriter(new ByteArrayOutputStream()).setSpillThreshold(-1));
+	}
+}
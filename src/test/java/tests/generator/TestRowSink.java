@@ -0,0 +1,194 @@
+package tests.generator;
+
+import org.jdom2.Element;
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.RowTemplate.ColumnType;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestRowSink {
+
+	private static final int ROWS = 5_000;
+	private static final LocalDate DATE = LocalDate.of(2023, 5, 1);
+
+	// Values of a row
+	private static Object[] values(int i) {
+		return new Object[] { "row €" + i, i * 0.5d, (long) i, DATE.plusDays(i % 30) };
+	}
+
+	// Writes the rows from a single thread
+	private static byte[] sequential(OutputEngine engine) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos)) {
+			generator.setOutputEngine(engine);
+			generator.startDocument();
+			generator.startSheet("rows");
+			generator.writeRow("header");
+			for (int i = 0; i < ROWS; i++) {
+				generator.writeRow(values(i));
+			}
+			generator.writeRow("footer");
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testSameOutputAsSequential() {
+		var pool = new ForkJoinPool(4);
+		try {
+			for (var engine: OutputEngine.values()) {
+				var baos = new ByteArrayOutputStream();
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					generator.setOutputEngine(engine);
+					generator.startDocument();
+					generator.startSheet("rows");
+					generator.writeRow("header");
+					try (var sink = generator.openRowSink(16)) {
+						// Rows are submitted in any order
+						pool.submit(() -> IntStream.range(0, ROWS).parallel().forEach(i -> {
+							try {
+								sink.submit(i, values(i));
+							} catch (XMLSpreadsheetException e) {
+								throw new IllegalStateException(e);
+							}
+						})).get();
+						assertEquals(ROWS, sink.next());
+					}
+					generator.writeRow("footer");
+					generator.closeSheet();
+				}
+				assertArrayEquals(sequential(engine), baos.toByteArray());
+			}
+			var doc = parseDocument(new String(sequential(OutputEngine.BYTES), StandardCharsets.UTF_8));
+			assertEquals(ROWS + 2, searchRows(doc, "rows").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testTemplatesWithWriter() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			var writer = new XMLSpreadsheetWriter(baos);
+			try (var workbook = writer.startDocument()) {
+				var template = workbook.createRowTemplate()
+					.withColumn(ColumnType.STRING, null)
+					.withColumn(ColumnType.NUMBER, null)
+					.build();
+				var sheet = workbook.startSheet("templates");
+				try (var sink = sheet.openRowSink(4)) {
+					var threads = new Thread[4];
+					for (int t = 0; t < threads.length; t++) {
+						int first = t;
+						threads[t] = Thread.ofPlatform().start(() -> {
+							try {
+								for (int i = first; i < 100; i += threads.length) {
+									sink.submit(i, template, "t" + i, (double) i);
+								}
+							} catch (XMLSpreadsheetException e) {
+								fail(e.getMessage());
+							}
+						});
+					}
+					for (var thread: threads) {
+						thread.join();
+					}
+				}
+				sheet.closeSheet();
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			var rows = searchRows(doc, "templates");
+			assertEquals(100, rows.size());
+			for (int i = 0; i < rows.size(); i++) {
+				var data = (Element) searchCells(rows.get(i)).get(0).getContent().get(0);
+				assertEquals("t" + i, data.getText());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testMissingRow() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(baos)) {
+				generator.startDocument();
+				generator.startSheet("gaps");
+				var sink = generator.openRowSink(8);
+				sink.submit(0, 1L);
+				sink.submit(3, 4L);
+				sink.submit(2, 3L);
+				assertEquals(1, sink.next());
+				var e = assertThrows(XMLSpreadsheetException.class, sink::close);
+				assertTrue(e.getMessage().contains("row 1 "));
+				assertTrue(e.getMessage().contains("[2, 3]"));
+				assertThrows(XMLSpreadsheetException.class, () -> sink.submit(1, 2L));
+				// The document goes on with the rows written so far
+				generator.closeSheet();
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertEquals(1, searchRows(doc, "gaps").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testRepeatedRow() {
+		try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+			generator.startDocument();
+			generator.startSheet("repeated");
+			try (var sink = generator.openRowSink(8)) {
+				sink.submit(0, 1L);
+				assertThrows(XMLSpreadsheetException.class, () -> sink.submit(0, 1L));
+				sink.submit(2, 3L);
+				assertThrows(XMLSpreadsheetException.class, () -> sink.submit(2, 3L));
+				sink.submit(1, 2L);
+			}
+			generator.closeSheet();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testGeneratorStateWhileOpen() {
+		try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+			generator.startDocument();
+			// Not inside a sheet
+			assertThrows(XMLSpreadsheetException.class, () -> generator.openRowSink(8));
+			generator.startSheet("state");
+			assertThrows(XMLSpreadsheetException.class, () -> generator.openRowSink(0));
+			var sink = generator.openRowSink(8);
+			assertThrows(XMLSpreadsheetException.class, generator::startRow);
+			assertThrows(XMLSpreadsheetException.class, generator::closeSheet);
+			sink.close();
+			assertThrows(XMLSpreadsheetException.class, () -> sink.submit(0, 1L));
+			generator.writeRow(1L);
+			generator.closeSheet();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package tests.generator;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.RowTemplate.ColumnType;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.style.Font;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.XmlTestUtils.getAttributeValue;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestRowTemplate {
+
+	private static final LocalDate DATE = LocalDate.of(1987, 10, 30);
+
+	@Test
+	public void testSameOutputAsCells() {
+		try {
+			var cellByCell = new ByteArrayOutputStream();
+			var templated = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(cellByCell)) {
+				var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+				generator.startDocument();
+				generator.startSheet("template");
+				for (int i = 0; i < 2; i++) {
+					generator.startRow("row", true, 20d, null, bold);
+					generator.writeCell(bold, "text " + i);
+					generator.writeCell(i + 0.5d);
+					generator.writeCell(bold, (long) i);
+					generator.writeCell(i == 0);
+					generator.writeCell(DATE.plusDays(i));
+					generator.closeRow();
+				}
+				generator.startRow("row", true, 20d, null, bold);
+				generator.writeEmptyCell(bold);
+				generator.writeCell((Double) null);
+				generator.writeCell(bold, Double.NaN);
+				generator.writeCell(false);
+				generator.writeCell((LocalDate) null);
+				generator.closeRow();
+				generator.closeSheet();
+			}
+			try (var generator = new XMLSpreadsheetGenerator(templated)) {
+				var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+				generator.startDocument();
+				var template = generator.createRowTemplate()
+					.withCaption("row")
+					.withAutoFitHeight(true)
+					.withHeight(20d)
+					.withStyle(bold)
+					.withColumn(ColumnType.STRING, bold)
+					.withColumn(ColumnType.NUMBER, null)
+					.withColumn(ColumnType.NUMBER, bold)
+					.withColumn(ColumnType.BOOLEAN, null)
+					.withColumn(ColumnType.DATE_TIME, null)
+					.build();
+				assertEquals(5, template.size());
+				generator.startSheet("template");
+				for (int i = 0; i < 2; i++) {
+					generator.writeRow(template, "text " + i, i + 0.5d, i, i == 0, DATE.plusDays(i));
+				}
+				generator.writeRow(template, null, null, Double.NaN, false, null);
+				generator.closeSheet();
+			}
+			assertArrayEquals(cellByCell.toByteArray(), templated.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWriterTemplate() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			try (var workbook = new XMLSpreadsheetWriter(baos).startDocument()) {
+				var template = workbook.createRowTemplate()
+					.withCaption("Ñandú")
+					.withColumn(ColumnType.NUMBER, null)
+					.build();
+				workbook.startSheet("writer")
+					.writeRow(template, new BigDecimal("1.25"))
+					.writeRow(template, (short) 3)
+					.closeSheet();
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			var rows = searchRows(doc, "writer");
+			assertEquals(2, rows.size());
+			assertEquals("Ñandú", getAttributeValue(rows.get(0), "Caption", "ss"));
+			assertEquals("1.25", data(searchCells(rows.get(0)).get(0)).getText());
+			assertEquals("3", data(searchCells(rows.get(1)).get(0)).getText());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testTemplateErrors() {
+		try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+			// Document not started yet
+			assertThrows(XMLSpreadsheetException.class, generator::createRowTemplate);
+			generator.startDocument();
+			var template = generator.createRowTemplate()
+				.withColumn(ColumnType.NUMBER, null)
+				.withColumn(ColumnType.DATE_TIME, null)
+				.build();
+			assertThrows(XMLSpreadsheetException.class, 
+				() -> generator.createRowTemplate().withColumn(null, null).build());
+			generator.startSheet("errors");
+			// Not as many values as columns
+			assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(template, 1d));
+			// Values of the wrong type
+			assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(template, "1", DATE));
+			assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(template, 1d, 1d));
+			generator.closeSheet();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWrongValueLeavesNoOpenRow() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(baos)) {
+				generator.startDocument();
+				var template = generator.createRowTemplate()
+					.withColumn(ColumnType.STRING, null)
+					.withColumn(ColumnType.NUMBER, null)
+					.withColumn(ColumnType.DATE_TIME, null)
+					.build();
+				generator.startSheet("wrong");
+				// Only the last value does not match its column
+				assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(template, "text", 1L, 2L));
+				assertThrows(XMLSpreadsheetException.class, () -> generator.writeRow(template, "text", true, DATE));
+				generator.writeRow(template, "after", 3L, DATE);
+				generator.closeSheet();
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertNotNull(doc);
+			var rows = searchRows(doc, "wrong");
+			assertEquals(1, rows.size());
+			assertEquals("after", data(searchCells(rows.get(0)).get(0)).getText());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
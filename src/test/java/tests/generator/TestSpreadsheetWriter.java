@@ -0,0 +1,150 @@
+package tests.generator;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.style.Font;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestSpreadsheetWriter {
+
+	private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
+	private static final Instant INSTANT = Instant.parse("2023-07-15T12:30:45.123Z");
+
+	// Writes a document with every kind of content through the generator
+	private static byte[] withGenerator(OutputEngine engine) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos)) {
+			generator.setZoneId(ZONE);
+			generator.setOutputEngine(engine);
+			var bold = generator.createStyle("bold").withFont(Font.builder().withBold(true).build()).build();
+			generator.startDocument();
+			generator.startSheet("first");
+			generator.startColumns();
+			generator.column(bold, 50d);
+			generator.column(null, null, true, 4L, 2L, null, 20d);
+			generator.closeColumns();
+			generator.startRow();
+			generator.writeCell(bold, "caption & <text>");
+			generator.writeCell(12.75d);
+			generator.writeCell(Double.NaN);
+			generator.writeCell((Double) null);
+			generator.writeCell(-42L);
+			generator.writeCell(7);
+			generator.writeCell(true);
+			generator.writeErrorCell(null, "#N/A");
+			generator.writeEmptyCell();
+			generator.closeRow();
+			generator.emptyRow();
+			generator.writeEmptyRows(2L, true, 15d, bold);
+			generator.startRow("dates", null, 20d, false, bold);
+			generator.writeCell(Date.from(INSTANT));
+			generator.writeCell(INSTANT);
+			generator.writeCell(LocalDate.of(1987, 10, 30));
+			generator.writeCell(bold, LocalDateTime.of(2014, 3, 22, 13, 5, 7));
+			generator.writeCell(OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(9)));
+			generator.writeCell((LocalDate) null);
+			generator.closeRow();
+			generator.closeSheet();
+			generator.startSheet("second", true);
+			generator.startRow();
+			generator.closeRow();
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	// Writes the same document through the typed writers
+	private static byte[] withWriter(OutputEngine engine) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		var writer = new XMLSpreadsheetWriter(baos);
+		writer.setZoneId(ZONE);
+		writer.setOutputEngine(engine);
+		var bold = writer.createStyle("bold").withFont(Font.builder().withBold(true).build()).build();
+		try (var workbook = writer.startDocument()) {
+			workbook.startSheet("first")
+				.startColumns()
+					.column(bold, 50d)
+					.column(null, null, true, 4L, 2L, null, 20d)
+					.closeColumns()
+				.startRow()
+					.writeCell(bold, "caption & <text>")
+					.writeCell(12.75d)
+					.writeCell(Double.NaN)
+					.writeCell((Double) null)
+					.writeCell(-42L)
+					.writeCell(7)
+					.writeCell(true)
+					.writeErrorCell(null, "#N/A")
+					.writeEmptyCell()
+					.closeRow()
+				.emptyRow()
+				.writeEmptyRows(2L, true, 15d, bold)
+				.startRow("dates", null, 20d, false, bold)
+					.writeCell(Date.from(INSTANT))
+					.writeCell(INSTANT)
+					.writeCell(LocalDate.of(1987, 10, 30))
+					.writeCell(bold, LocalDateTime.of(2014, 3, 22, 13, 5, 7))
+					.writeCell(OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(9)))
+					.writeCell((LocalDate) null)
+					.closeRow()
+				.closeSheet()
+			.startSheet("second", true)
+				.startRow()
+					.closeRow()
+				.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testSameOutputAsGenerator() {
+		try {
+			for (var engine: OutputEngine.values()) {
+				var expected = withGenerator(engine);
+				var actual = withWriter(engine);
+				assertArrayEquals(expected, actual);
+				var doc = parseDocument(new String(actual, StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				assertEquals(5, searchRows(doc, "first").size());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testOptionsAfterStart() {
+		var writer = new XMLSpreadsheetWriter(new ByteArrayOutputStream());
+		assertDoesNotThrow(writer::startDocument);
+		assertThrows(XMLSpreadsheetException.class, writer::createStyle);
+		assertThrows(XMLSpreadsheetException.class, () -> writer.setZoneId(ZoneOffset.UTC));
+		assertThrows(XMLSpreadsheetException.class, writer::startDocument);
+	}
+
+	@Test
+	public void testRepeatedClose() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			var workbook = new XMLSpreadsheetWriter(baos).startDocument();
+			workbook.close();
+			int length = baos.size();
+			workbook.close();
+			assertEquals(length, baos.size());
+			assertNotNull(parseDocument(baos.toString(StandardCharsets.UTF_8)));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
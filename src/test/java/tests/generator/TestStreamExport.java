@@ -0,0 +1,102 @@
+package tests.generator;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.RowMapper;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestStreamExport {
+
+	private static final int ELEMENTS = 20_000;
+
+	// Writes every element as a row, and every tenth one as two
+	private static final RowMapper<Integer> MAPPER = (i, rows) -> {
+		rows.writeRow("element " + i, i * 0.25d, (long) i);
+		if (i % 10 == 0) {
+			rows.startRow().writeCell("tenth €").closeRow();
+		}
+	};
+
+	// Writes a document with a sheet for the stream
+	private static byte[] export(OutputEngine engine, Stream<Integer> rows) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos)) {
+			generator.setOutputEngine(engine);
+			generator.startDocument();
+			generator.startSheet("before");
+			generator.writeRow(1L);
+			generator.closeSheet();
+			assertEquals(ELEMENTS / 2, generator.exportSheet("stream", rows, MAPPER));
+			generator.startSheet("after");
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testSameOutputAsSequential() {
+		try {
+			Supplier<Stream<Integer>> sized = () -> IntStream.range(0, ELEMENTS).boxed().filter(i -> i % 2 == 0);
+			Supplier<Stream<Integer>> unsized = () -> Stream.iterate(0, i -> i + 2).limit(ELEMENTS / 2);
+			for (var engine: OutputEngine.values()) {
+				var expected = export(engine, sized.get());
+				assertArrayEquals(expected, export(engine, sized.get().parallel()));
+				assertArrayEquals(expected, export(engine, unsized.get().parallel()));
+			}
+			var doc = parseDocument(new String(export(OutputEngine.BYTES, sized.get()), StandardCharsets.UTF_8));
+			assertEquals(ELEMENTS / 2 + ELEMENTS / 10, searchRows(doc, "stream").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testInsidePool() {
+		var pool = new ForkJoinPool(3);
+		try {
+			var expected = export(OutputEngine.BYTES, IntStream.range(0, ELEMENTS / 2).map(i -> 2 * i).boxed());
+			var actual = pool.submit(() -> 
+				export(OutputEngine.BYTES, IntStream.range(0, ELEMENTS / 2).map(i -> 2 * i).boxed().parallel())).get();
+			assertArrayEquals(expected, actual);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testMapperFailure() {
+		RowMapper<Integer> failing = (i, rows) -> rows.writeRow(i == 5_000 ? new Object() : i.longValue());
+		for (var stream: List.of(
+				IntStream.range(0, ELEMENTS).boxed(), IntStream.range(0, ELEMENTS).boxed().parallel())) {
+			assertThrows(XMLSpreadsheetException.class, () -> {
+				var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream());
+				generator.startDocument();
+				generator.exportSheet("failing", stream, failing);
+			});
+		}
+	}
+
+	@Test
+	public void testWrongState() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream());
+			generator.exportSheet("early", Stream.of(1), MAPPER);
+		});
+	}
+}
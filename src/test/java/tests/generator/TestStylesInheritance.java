@@ -8,7 +8,7 @@ import xml.spreadsheet.style.Alignment.HorizontalAlignment;
 import xml.spreadsheet.style.Border.BorderPosition;
 import xml.spreadsheet.utils.NumberFormatHelper;
 
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static tests.XmlTestUtils.executeWithTempFile;
@@ -61,7 +61,7 @@ public class TestStylesInheritance {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -129,7 +129,7 @@ public class TestStylesInheritance {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -198,7 +198,7 @@ public class TestStylesInheritance {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -271,7 +271,7 @@ public class TestStylesInheritance {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -340,7 +340,7 @@ public class TestStylesInheritance {
 					generator.closeSheet();
 				}
 
-				var document = baos.toString(Charset.forName("cp1252"));
+				var document = baos.toString(StandardCharsets.UTF_8);
 				// Not empty and correct document
 				var doc = parseDocument(document);
 				assertNotNull(doc);
@@ -367,4 +367,4 @@ public class TestStylesInheritance {
 			}
 		});
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
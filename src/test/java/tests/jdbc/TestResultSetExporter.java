@@ -0,0 +1,172 @@
+package tests.jdbc;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.jdbc.ResultSetExporter;
+import xml.spreadsheet.style.Font;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.XmlTestUtils.executeWithTempFile;
+import static tests.XmlTestUtils.getAttributeValue;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestResultSetExporter {
+
+	// In-memory result set: only the methods the exporter needs are implemented
+	private static ResultSet resultSet(String[] labels, int[] types, Object[][] rows, List<String> calls) {
+		var metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+			ResultSetMetaData.class.getClassLoader(), new Class<?>[] { ResultSetMetaData.class },
+			(proxy, method, args) -> switch (method.getName()) {
+				case "getColumnCount" -> labels.length;
+				case "getColumnLabel" -> labels[(int) args[0] - 1];
+				case "getColumnType" -> types[(int) args[0] - 1];
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+		var state = new Object() {
+			int row = -1;
+			boolean wasNull = false;
+		};
+		return (ResultSet) Proxy.newProxyInstance(
+			ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+			(proxy, method, args) -> {
+				calls.add(method.getName());
+				switch (method.getName()) {
+					case "getMetaData": return metaData;
+					case "next": return ++state.row < rows.length;
+					case "wasNull": return state.wasNull;
+					case "setFetchSize", "close": return null;
+					default: break;
+				}
+				var value = rows[state.row][(int) args[0] - 1];
+				state.wasNull = value == null;
+				return switch (method.getName()) {
+					case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+					case "getDouble" -> value == null ? 0d : ((Number) value).doubleValue();
+					case "getBoolean" -> value != null && (Boolean) value;
+					case "getBigDecimal", "getDate", "getTime", "getTimestamp", "getString" -> value;
+					case "getObject" -> args.length == 2 ? value : 
+						// Boxing every value is what the exporter must avoid
+						fail("getObject(int) must not be used");
+					default -> throw new UnsupportedOperationException(method.getName());
+				};
+			});
+	}
+
+	@Test
+	public void testExport() {
+		executeWithTempFile( baos -> {
+			try {
+				final var SHEET_NAME = "query";
+				var calls = new ArrayList<String>();
+				var rows = resultSet(
+					new String[] { "ID", "AMOUNT", "PRICE", "ACTIVE", "BORN", "UPDATED", "AT", "OFFSET", "ZONED", "NAME" },
+					new int[] { Types.BIGINT, Types.DECIMAL, Types.DOUBLE, Types.BOOLEAN, Types.DATE, 
+						Types.TIMESTAMP, Types.TIME, Types.TIMESTAMP_WITH_TIMEZONE, 
+						Types.TIME_WITH_TIMEZONE, Types.VARCHAR },
+					new Object[][] {
+						{ 1L, new BigDecimal("12345678901234567.00"), 0.1d, true, Date.valueOf("1987-10-30"),
+							Timestamp.valueOf("2014-03-22 13:05:07.167"), Time.valueOf("08:30:00"), 
+							OffsetDateTime.parse("2020-01-02T03:04:05+09:00"), 
+							OffsetTime.parse("17:45:30-05:00"), "first & <last>" },
+						{ null, new BigDecimal("-2.50"), null, false, null, null, null, null, null, null }
+					},
+					calls);
+				long written;
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+					var exporter = new ResultSetExporter(generator);
+					exporter.setHeaderStyle(bold);
+					exporter.setFetchSize(500);
+					generator.startDocument();
+					written = exporter.export(SHEET_NAME, rows);
+				}
+				assertEquals(2, written);
+				assertTrue(calls.contains("setFetchSize"));
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				var sheetRows = searchRows(doc, SHEET_NAME);
+				assertEquals(3, sheetRows.size());
+				var header = searchCells(sheetRows.get(0));
+				assertEquals("ID", data(header.get(0)).getText());
+				assertNotNull(getAttributeValue(header.get(0), "StyleID", "ss"));
+				String[][] expected = {
+					{ "Number", "1" },
+					{ "Number", "12345678901234567" },
+					{ "Number", "0.1" },
+					{ "Boolean", "1" },
+					{ "DateTime", "1987-10-30T00:00:00.000" },
+					{ "DateTime", "2014-03-22T13:05:07.167" },
+					{ "DateTime", "1899-12-31T08:30:00.000" },
+					{ "DateTime", "2020-01-02T03:04:05.000" },
+					{ "DateTime", "1899-12-31T17:45:30.000" },
+					{ "String", "first & <last>" }
+				};
+				var first = searchCells(sheetRows.get(1));
+				assertEquals(expected.length, first.size());
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(expected[i][0], getAttributeValue(data(first.get(i)), "Type", "ss"));
+					assertEquals(expected[i][1], data(first.get(i)).getText());
+				}
+				// SQL nulls are empty cells
+				var second = searchCells(sheetRows.get(2));
+				assertEquals(expected.length, second.size());
+				assertEquals("", data(second.get(0)).getText());
+				assertEquals("-2.5", data(second.get(1)).getText());
+				assertEquals("0", data(second.get(3)).getText());
+				assertEquals("", data(second.get(8)).getText());
+				assertEquals("", data(second.get(9)).getText());
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+
+	@Test
+	public void testStatementFetchSize() {
+		executeWithTempFile( baos -> {
+			try {
+				var calls = new ArrayList<String>();
+				var fetchSizes = new ArrayList<Integer>();
+				var rows = resultSet(new String[] { "N" }, new int[] { Types.INTEGER }, 
+					new Object[][] { { 1 }, { 2 }, { 3 } }, calls);
+				var statement = (Statement) Proxy.newProxyInstance(
+					Statement.class.getClassLoader(), new Class<?>[] { Statement.class },
+					(proxy, method, args) -> switch (method.getName()) {
+						case "setFetchSize" -> {
+							fetchSizes.add((Integer) args[0]);
+							yield null;
+						}
+						case "executeQuery" -> {
+							// The fetch size must be set before running the query
+							assertEquals(1, fetchSizes.size());
+							yield rows;
+						}
+						default -> throw new UnsupportedOperationException(method.getName());
+					});
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					var exporter = new ResultSetExporter(generator);
+					exporter.setHeader(false);
+					exporter.setFetchSize(64);
+					generator.startDocument();
+					assertEquals(3, exporter.export("numbers", statement, "SELECT N FROM NUMBERS"));
+				}
+				assertEquals(List.of(64), fetchSizes);
+				assertTrue(calls.contains("close"));
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				assertEquals(3, searchRows(doc, "numbers").size());
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+}
@@ -0,0 +1,103 @@
+package tests.misc;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.utils.AsyncFileOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAsyncFileOutput {
+
+	@Test
+	public void testSameBytes() {
+		try {
+			var file = Files.createTempFile("async", ".bin");
+			try {
+				var random = new Random(42);
+				var expected = new ByteArrayOutputStream();
+				var channel = AsynchronousFileChannel.open(file, StandardOpenOption.WRITE);
+				try (OutputStream stream = new AsyncFileOutputStream(channel, 0, 100, 3)) {
+					for (int i = 0; i < 2_000; i++) {
+						var bytes = new byte[random.nextInt(350)];
+						random.nextBytes(bytes);
+						stream.write(bytes);
+						expected.write(bytes);
+						stream.write(i);
+						expected.write(i);
+						if (i % 500 == 0) {
+							stream.flush();
+							assertEquals(expected.size(), Files.size(file));
+						}
+					}
+				}
+				assertFalse(channel.isOpen());
+				assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWriter() {
+		try {
+			var file = Files.createTempFile("async", ".xml");
+			try {
+				var writer = new XMLSpreadsheetWriter(file);
+				writer.setAsyncWrites(2);
+				try (var workbook = writer.startDocument()) {
+					workbook.startSheet("typed").writeRow("async", 1L).closeSheet();
+				}
+				assertTrue(Files.readString(file).endsWith("</Workbook>"));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testFailure() {
+		assertThrows(IOException.class, () -> {
+			var file = Files.createTempFile("async", ".bin");
+			try {
+				// Not writable
+				var channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+				try (var stream = new AsyncFileOutputStream(channel, 0, 64, 2)) {
+					stream.write(new byte[1_000]);
+				}
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		});
+	}
+
+	@Test
+	public void testWrongSettings() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+				// Not a file
+				generator.setAsyncWrites(4);
+			}
+		});
+		assertThrows(XMLSpreadsheetException.class, () -> 
+			new XMLSpreadsheetWriter(Path.of(System.getProperty("java.io.tmpdir"), "never.xml")).setAsyncWrites(1));
+		assertThrows(IllegalArgumentException.class, () -> new AsyncFileOutputStream(null, 0, 64, 1));
+	}
+}
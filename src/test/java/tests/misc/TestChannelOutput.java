@@ -0,0 +1,259 @@
+package tests.misc;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.utils.ChannelOutputBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestChannelOutput {
+
+	private static final int ROWS = 20_000;
+	private static final int CAPACITY = 16 * 1024;
+	private static final int BUFFER_SIZE = 1024;
+	private static final int DOWNLOADS = 20;
+
+	// A download served from the event loop: a generator that writes a row at
+	//	a time, and the buffer it writes into
+	private static class Download {
+		private final ChannelOutputBuffer output = new ChannelOutputBuffer(CAPACITY);
+		private final XMLSpreadsheetGenerator generator;
+		private final String name;
+		private int row = 0;
+		private int maxPending = 0;
+
+		Download(String name) throws Exception {
+			this.name = name;
+			this.generator = new XMLSpreadsheetGenerator(output, BUFFER_SIZE);
+			generator.startDocument();
+			generator.startSheet(name);
+		}
+
+		// Writes rows until the buffer is full or the document is over
+		void produce() throws Exception {
+			while (!output.isFull() && row <= ROWS) {
+				if (row == ROWS) {
+					generator.closeSheet();
+					generator.close();
+				}
+				else {
+					generator.writeRow(name + " row " + row, row * 0.5d, (long) row);
+				}
+				row++;
+				maxPending = Math.max(maxPending, output.getPendingBytes());
+			}
+		}
+	}
+
+	// The document of a download, written at once
+	private static byte[] expected(String name) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos, BUFFER_SIZE)) {
+			generator.startDocument();
+			generator.startSheet(name);
+			for (int row = 0; row < ROWS; row++) {
+				generator.writeRow(name + " row " + row, row * 0.5d, (long) row);
+			}
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	// Reads a socket until the other side closes it
+	private static CompletableFuture<byte[]> download(InetSocketAddress address) {
+		var future = new CompletableFuture<byte[]>();
+		Thread.ofVirtual().start(() -> {
+			try (var client = SocketChannel.open(address)) {
+				var received = new ByteArrayOutputStream();
+				var buffer = ByteBuffer.allocate(4096);
+				while (client.read(buffer) >= 0) {
+					received.write(buffer.array(), 0, buffer.position());
+					buffer.clear();
+				}
+				future.complete(received.toByteArray());
+			} catch (IOException e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	@Test
+	public void testEventLoop() {
+		try (var server = ServerSocketChannel.open(); var selector = Selector.open()) {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			var address = (InetSocketAddress) server.getLocalAddress();
+			var clients = new ArrayList<CompletableFuture<byte[]>>();
+			var downloads = new ArrayList<Download>();
+			for (int i = 0; i < DOWNLOADS; i++) {
+				clients.add(download(address));
+				var channel = server.accept();
+				channel.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+				channel.configureBlocking(false);
+				var download = new Download("download" + i);
+				downloads.add(download);
+				channel.register(selector, SelectionKey.OP_WRITE, download);
+			}
+			// Every download on this thread, never blocked
+			while (!selector.keys().isEmpty()) {
+				selector.select(1_000);
+				for (var key: selector.selectedKeys()) {
+					var download = (Download) key.attachment();
+					var channel = (SocketChannel) key.channel();
+					do {
+						download.produce();
+						download.output.drainTo(channel);
+					} while (!download.output.hasPendingOutput() && !download.output.isComplete());
+					if (download.output.isComplete()) {
+						channel.close();
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+			for (int i = 0; i < DOWNLOADS; i++) {
+				assertArrayEquals(expected("download" + i), clients.get(i).get(30, TimeUnit.SECONDS));
+				// Bounded by the capacity, the generator buffer and a row
+				assertTrue(downloads.get(i).maxPending < CAPACITY + BUFFER_SIZE + 256);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testPartialDrains() {
+		try {
+			var output = new ChannelOutputBuffer(64);
+			var received = new ByteArrayOutputStream();
+			// Takes at most 10 bytes at a time
+			WritableByteChannel channel = new WritableByteChannel() {
+				private boolean busy = false;
+				@Override
+				public int write(ByteBuffer src) {
+					busy = !busy;
+					if (busy) {
+						return 0;
+					}
+					int count = Math.min(10, src.remaining());
+					for (int i = 0; i < count; i++) {
+						received.write(src.get());
+					}
+					return count;
+				}
+				@Override
+				public boolean isOpen() {
+					return true;
+				}
+				@Override
+				public void close() {}
+			};
+			var expected = new ByteArrayOutputStream();
+			for (int i = 0; i < 1_000; i++) {
+				var bytes = ("chunk " + i + ";").getBytes();
+				output.write(bytes);
+				expected.write(bytes);
+				if (output.isFull()) {
+					while (output.hasPendingOutput()) {
+						output.drainTo(channel);
+					}
+				}
+			}
+			output.close();
+			assertFalse(output.isComplete());
+			while (!output.isComplete()) {
+				output.drainTo(channel);
+			}
+			assertArrayEquals(expected.toByteArray(), received.toByteArray());
+			assertThrows(IOException.class, () -> output.write(1));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testLimit() {
+		try {
+			var output = new ChannelOutputBuffer(64, 128);
+			output.write(new byte[100]);
+			assertTrue(output.isFull());
+			// Nothing is written past the limit
+			assertThrows(IOException.class, () -> output.write(new byte[29]));
+			assertEquals(100, output.getPendingBytes());
+			output.drainTo(new byte[60], 0, 60);
+			output.write(new byte[88]);
+			assertEquals(128, output.getPendingBytes());
+			// Twice the capacity by default
+			var defaultLimit = new ChannelOutputBuffer(64);
+			defaultLimit.write(new byte[128]);
+			assertThrows(IOException.class, () -> defaultLimit.write(1));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testFlush() {
+		try {
+			var output = new ChannelOutputBuffer(CAPACITY);
+			var received = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(output, 10 * 1024)) {
+				assertThrows(XMLSpreadsheetException.class, generator::flush);
+				generator.startDocument();
+				generator.startSheet("flushed");
+				generator.writeRow("first", 1L);
+				// The rows are held by the generator until flushed
+				assertFalse(output.hasPendingOutput());
+				generator.flush();
+				assertTrue(output.hasPendingOutput());
+				var bytes = new byte[output.getPendingBytes()];
+				output.drainTo(bytes, 0, bytes.length);
+				received.write(bytes);
+				assertTrue(received.toString(StandardCharsets.UTF_8).contains("first"));
+				generator.writeRow("second", 2L);
+				generator.closeSheet();
+			}
+			var bytes = new byte[output.getPendingBytes()];
+			output.drainTo(bytes, 0, bytes.length);
+			received.write(bytes);
+			assertTrue(output.isComplete());
+			var expected = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(expected)) {
+				generator.startDocument();
+				generator.startSheet("flushed");
+				generator.writeRow("first", 1L);
+				generator.writeRow("second", 2L);
+				generator.closeSheet();
+			}
+			assertArrayEquals(expected.toByteArray(), received.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWrongCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new ChannelOutputBuffer(0));
+		assertThrows(IllegalArgumentException.class, () -> new ChannelOutputBuffer(64, 63));
+	}
+}
@@ -3,8 +3,14 @@ package tests.misc;
 import org.junit.jupiter.api.Test;
 import xml.spreadsheet.utils.DateFormatHelper;
 
+import xml.spreadsheet.utils.ZoneOffsetCache;
+
 import java.text.SimpleDateFormat;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TestDateFormat {
@@ -36,4 +42,49 @@ public class TestDateFormat {
 			fail(e.getMessage());
 		}
 	}
+
+	// Writes a local date and time through the helper
+	private static String write(LocalDateTime dateTime) {
+		var buffer = new byte[DateFormatHelper.MAX_DATE_TIME_LENGTH];
+		return new String(buffer, 0, DateFormatHelper.writeDateTime(dateTime, buffer, 0), ISO_8859_1);
+	}
+
+	@Test
+	public void testLocalDates() {
+		var buffer = new byte[DateFormatHelper.MAX_DATE_TIME_LENGTH];
+		var length = DateFormatHelper.writeDate(LocalDate.of(1987, 10, 30), buffer, 0);
+		assertEquals("1987-10-30T00:00:00.000", new String(buffer, 0, length, ISO_8859_1));
+		assertEquals("2024-02-29T23:59:59.999", write(LocalDateTime.of(2024, 2, 29, 23, 59, 59, 999_999_999)));
+		assertEquals("0001-01-01T01:02:03.004", write(LocalDateTime.of(1, 1, 1, 1, 2, 3, 4_000_000)));
+	}
+
+	@Test
+	public void testEpochMillis() {
+		var formatter = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS");
+		var buffer = new byte[DateFormatHelper.MAX_DATE_TIME_LENGTH];
+		var random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			// Years 0 to 9999
+			long millis = -62_167_219_200_000L + (long) (random.nextDouble() * 315_569_520_000_000L);
+			var expected = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC).format(formatter);
+			var length = DateFormatHelper.writeEpochMillis(millis, buffer, 0);
+			assertEquals(expected, new String(buffer, 0, length, ISO_8859_1));
+		}
+	}
+
+	@Test
+	public void testZoneOffsets() {
+		var zone = ZoneId.of("Europe/Madrid");
+		var cache = new ZoneOffsetCache(zone);
+		assertEquals(zone, cache.getZone());
+		// Around the daylight saving time changes of 2023, back and forth
+		var start = LocalDateTime.of(2023, 3, 25, 0, 0).atZone(zone).toInstant().toEpochMilli();
+		for (long millis = start; millis < start + 230 * 86_400_000L; millis += 1_800_000L) {
+			for (long sample: new long[] { millis, start + (millis - start) / 2 }) {
+				var expected = LocalDateTime.ofInstant(Instant.ofEpochMilli(sample), zone)
+					.toInstant(ZoneOffset.UTC).toEpochMilli();
+				assertEquals(expected, cache.toLocalMillis(sample));
+			}
+		}
+	}
 }
@@ -0,0 +1,183 @@
+package tests.misc;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.utils.FileChannelOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileChannelOutput {
+
+	// Writes a document with many small rows into a generator
+	private static void fill(XMLSpreadsheetGenerator generator, OutputEngine engine) throws XMLSpreadsheetException {
+		generator.setOutputEngine(engine);
+		generator.startDocument();
+		generator.startSheet("file");
+		for (int i = 0; i < 20_000; i++) {
+			generator.writeRow("row " + i + " €", i * 0.5d, (long) i);
+		}
+		generator.closeSheet();
+	}
+
+	// Writes a document with two sheets at the same time
+	private static void parallel(XMLSpreadsheetWriter writer) throws Exception {
+		writer.setSpillThreshold(0);
+		var executor = Executors.newFixedThreadPool(2);
+		try (var workbook = writer.startDocument()) {
+			var first = workbook.startParallelSheet("first");
+			var second = workbook.startParallelSheet("second");
+			var tasks = Arrays.asList(first, second).stream().map(sheet -> executor.submit(() -> {
+				for (int i = 0; i < 5_000; i++) {
+					sheet.writeRow("row " + i, (long) i);
+				}
+				return sheet.closeSheet();
+			})).toList();
+			for (var task: tasks) {
+				task.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSameDocument() {
+		try {
+			var file = Files.createTempFile("channel", ".xml");
+			try {
+				for (var engine: OutputEngine.values()) {
+					var expected = new ByteArrayOutputStream();
+					try (var generator = new XMLSpreadsheetGenerator(expected)) {
+						fill(generator, engine);
+					}
+					// Through the file channel, and with asynchronous writes
+					for (int asyncWrites: new int[] { 0, 4 }) {
+						// A longer file is overwritten
+						Files.write(file, new byte[2 * expected.size()]);
+						try (var generator = new XMLSpreadsheetGenerator(file)) {
+							generator.setAsyncWrites(asyncWrites);
+							assertEquals(asyncWrites, generator.getAsyncWrites());
+							fill(generator, engine);
+						}
+						assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+					}
+				}
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testParallelSheets() {
+		try {
+			var file = Files.createTempFile("channel", ".xml");
+			try {
+				var expected = new ByteArrayOutputStream();
+				parallel(new XMLSpreadsheetWriter(expected));
+				parallel(new XMLSpreadsheetWriter(file));
+				assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testOpenedOnStart() {
+		try {
+			var file = Files.createTempDirectory("channel").resolve("late.xml");
+			var writer = new XMLSpreadsheetWriter(file);
+			writer.createStyle().build();
+			assertFalse(Files.exists(file));
+			writer.startDocument().close();
+			assertTrue(Files.size(file) > 0);
+			Files.delete(file);
+			Files.delete(file.getParent());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testTruncatedOnClose() {
+		try {
+			var file = Files.createTempFile("channel", ".bin");
+			try {
+				var random = new Random(42);
+				var expected = new ByteArrayOutputStream();
+				expected.write(new byte[100]);
+				Files.write(file, new byte[1_000_000]);
+				var channel = FileChannel.open(file, StandardOpenOption.WRITE).position(100);
+				try (OutputStream stream = new FileChannelOutputStream(channel, 1024)) {
+					for (int i = 0; i < 1_000; i++) {
+						// Smaller and larger than the buffer
+						var bytes = new byte[random.nextInt(i % 100 == 0 ? 5_000 : 300)];
+						random.nextBytes(bytes);
+						stream.write(bytes);
+						expected.write(bytes);
+						stream.write(i);
+						expected.write(i);
+					}
+				}
+				assertFalse(channel.isOpen());
+				assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testOpenOptions() {
+		try {
+			var file = Files.createTempFile("channel", ".xml");
+			try {
+				// The file already exists
+				assertThrows(XMLSpreadsheetException.class, () -> {
+					try (var generator = new XMLSpreadsheetGenerator(file, StandardOpenOption.CREATE_NEW)) {
+						generator.startDocument();
+					}
+				});
+				assertEquals(0, Files.size(file));
+			} finally {
+				Files.deleteIfExists(file);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testMissingDirectory() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(Path.of("/missing/directory/file.xml"))) {
+				generator.startDocument();
+			}
+		});
+	}
+}
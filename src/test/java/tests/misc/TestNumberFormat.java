@@ -3,6 +3,9 @@ package tests.misc;
 import org.junit.jupiter.api.Test;
 import xml.spreadsheet.utils.NumberFormatHelper;
 
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -32,4 +35,53 @@ public class TestNumberFormat {
 	public void testZeroes() {
 		assertEquals("1.00056", NumberFormatHelper.format(1.00056d));
 	}
+
+	@Test
+	public void testShortest() {
+		// No decimals are lost
+		assertEquals("0.000009", NumberFormatHelper.format(0.000009d));
+		assertEquals("0.999999", NumberFormatHelper.format(0.999999d));
+		assertEquals("-2.5", NumberFormatHelper.format(-2.5d));
+		assertEquals("-0.000001", NumberFormatHelper.format(-0.000001d));
+		assertEquals("3.746495", NumberFormatHelper.format(3.746495d));
+		assertEquals("0.30000000000000004", NumberFormatHelper.format(0.1d + 0.2d));
+		assertEquals("0.0000012345678901234567", NumberFormatHelper.format(0.0000012345678901234567d));
+		assertEquals("-0", NumberFormatHelper.format(-0d));
+	}
+
+	@Test
+	public void testRoundTrip() {
+		var random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			if (Double.isFinite(value)) {
+				assertEquals(value, Double.parseDouble(NumberFormatHelper.format(value)));
+			}
+		}
+	}
+
+	@Test
+	public void testScientific() {
+		assertEquals("1E+21", NumberFormatHelper.format(1e21d));
+		assertEquals("-1.5E+300", NumberFormatHelper.format(-1.5e300d));
+		assertEquals("1E-7", NumberFormatHelper.format(1e-7d));
+		assertEquals("4.9E-324", NumberFormatHelper.format(Double.MIN_VALUE));
+		assertEquals("1.7976931348623157E+308", NumberFormatHelper.format(Double.MAX_VALUE));
+	}
+
+	@Test
+	public void testHugeValues() {
+		assertEquals("100000000000000000000", NumberFormatHelper.format(1e20d));
+		assertEquals("-123456789012345.6", NumberFormatHelper.format(-123456789012345.6d));
+		assertEquals("9007199254740992", NumberFormatHelper.format(0x1p53));
+	}
+
+	@Test
+	public void testLong() {
+		var buffer = new byte[NumberFormatHelper.MAX_LONG_LENGTH];
+		for (long value: new long[] { 0, 7, -7, 10, 99, 100, 999, -999, 1000, 12345678901L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			var length = NumberFormatHelper.writeLong(value, buffer, 0);
+			assertEquals(Long.toString(value), new String(buffer, 0, length, ISO_8859_1));
+		}
+	}
 }
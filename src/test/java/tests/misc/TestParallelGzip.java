@@ -0,0 +1,231 @@
+package tests.misc;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.XMLSpreadsheetWriter;
+import xml.spreadsheet.utils.ParallelGzipOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestParallelGzip {
+
+	// Decompresses a gzip member, checking its CRC and size
+	private static byte[] gunzip(byte[] compressed) throws IOException {
+		try (var input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			return input.readAllBytes();
+		}
+	}
+
+	// Writes random, somewhat compressible, bytes by random pieces
+	private static byte[] write(OutputStream stream, long seed) throws IOException {
+		var random = new Random(seed);
+		var expected = new ByteArrayOutputStream();
+		try (stream) {
+			for (int i = 0; i < 2_000; i++) {
+				var bytes = new byte[random.nextInt(350)];
+				for (int j = 0; j < bytes.length; j++) {
+					bytes[j] = (byte) ('a' + random.nextInt(6));
+				}
+				expected.write(bytes);
+				stream.write(bytes);
+				stream.write(i);
+				expected.write(i);
+				if (i % 500 == 0) {
+					stream.flush();
+				}
+			}
+		}
+		return expected.toByteArray();
+	}
+
+	// Writes a document with many small rows
+	private static byte[] document(OutputEngine engine, boolean compressed, boolean pipelined) throws Exception {
+		var baos = new ByteArrayOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos)) {
+			generator.setOutputEngine(engine);
+			generator.setCompressed(compressed);
+			assertEquals(compressed, generator.isCompressed());
+			generator.setPipelined(pipelined);
+			generator.startDocument();
+			generator.startSheet("compressed");
+			for (int i = 0; i < 50_000; i++) {
+				generator.writeRow("row " + i + " €", i * 0.5d, (long) i);
+			}
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() {
+		var pool = Executors.newFixedThreadPool(2);
+		try {
+			for (int blockSize: new int[] { 1, 100, 4096, 128 * 1024 }) {
+				var compressed = new ByteArrayOutputStream();
+				var stream = new ParallelGzipOutputStream(compressed, pool, Deflater.DEFAULT_COMPRESSION, blockSize, 3);
+				var expected = write(stream, blockSize);
+				assertArrayEquals(expected, gunzip(compressed.toByteArray()));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		try {
+			var compressed = new ByteArrayOutputStream();
+			new ParallelGzipOutputStream(compressed).close();
+			assertEquals(0, gunzip(compressed.toByteArray()).length);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		var pool = Executors.newFixedThreadPool(4);
+		try {
+			// Same bytes whatever the threads, and whatever the blocks in flight
+			var sequential = new ByteArrayOutputStream();
+			write(new ParallelGzipOutputStream(sequential, Runnable::run, 6, 1000, 2), 7);
+			var parallel = new ByteArrayOutputStream();
+			write(new ParallelGzipOutputStream(parallel, pool, 6, 1000, 8), 7);
+			assertArrayEquals(sequential.toByteArray(), parallel.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testBoundedBlocks() {
+		final int MAX_BLOCKS = 3;
+		try {
+			// Tasks are held until the writer is stuck
+			var held = new LinkedBlockingQueue<Runnable>();
+			var compressed = new ByteArrayOutputStream();
+			var expected = new CompletableFuture<byte[]>();
+			var writer = new Thread(() -> {
+				try {
+					expected.complete(write(new ParallelGzipOutputStream(compressed, held::add, 1, 512, MAX_BLOCKS), 3));
+				} catch (Throwable e) {
+					expected.completeExceptionally(e);
+				}
+			});
+			writer.start();
+			while (writer.getState() != Thread.State.WAITING) {
+				Thread.sleep(1);
+			}
+			assertEquals(MAX_BLOCKS, held.size());
+			var runner = Thread.ofPlatform().daemon().start(() -> {
+				try {
+					while (true) {
+						held.take().run();
+					}
+				} catch (InterruptedException e) {
+					// Done
+				}
+			});
+			assertArrayEquals(expected.get(30, TimeUnit.SECONDS), gunzip(compressed.toByteArray()));
+			runner.interrupt();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testDocument() {
+		try {
+			for (var engine: OutputEngine.values()) {
+				var expected = document(engine, false, false);
+				var compressed = document(engine, true, false);
+				assertTrue(compressed.length < expected.length / 5);
+				assertArrayEquals(expected, gunzip(compressed));
+				assertArrayEquals(compressed, document(engine, true, true));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCloseToGzip() {
+		try {
+			var document = document(OutputEngine.BYTES, false, false);
+			var gzip = new ByteArrayOutputStream();
+			try (var stream = new GZIPOutputStream(gzip)) {
+				stream.write(document);
+			}
+			var parallel = new ByteArrayOutputStream();
+			try (var stream = new ParallelGzipOutputStream(parallel)) {
+				stream.write(document);
+			}
+			// Priming every block keeps the ratio within a few percent
+			assertTrue(parallel.size() < gzip.size() * 1.05);
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testWriterCompressed() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			var writer = new XMLSpreadsheetWriter(baos);
+			writer.setCompressed(true);
+			assertTrue(writer.isCompressed());
+			try (var workbook = writer.startDocument()) {
+				workbook.startSheet("typed").writeRow("compressed", 1L).closeSheet();
+			}
+			var xml = new String(gunzip(baos.toByteArray()), java.nio.charset.StandardCharsets.UTF_8);
+			assertTrue(xml.contains("compressed"));
+			assertTrue(xml.endsWith("</Workbook>"));
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCompressedAfterStart() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(new ByteArrayOutputStream())) {
+				generator.startDocument();
+				generator.setCompressed(true);
+			}
+		});
+	}
+
+	@Test
+	public void testWrongParameters() {
+		assertThrows(IllegalArgumentException.class, 
+			() -> new ParallelGzipOutputStream(new ByteArrayOutputStream(), Runnable::run, 6, 1024, 1));
+		assertThrows(IllegalArgumentException.class, 
+			() -> new ParallelGzipOutputStream(new ByteArrayOutputStream(), Runnable::run, 10, 1024, 2));
+	}
+}
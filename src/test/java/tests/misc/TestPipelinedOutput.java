@@ -0,0 +1,130 @@
+package tests.misc;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.XMLSpreadsheetException;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.utils.PipelinedOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestPipelinedOutput {
+
+	// Output that fails once it gets a number of bytes
+	private static class FailingOutputStream extends OutputStream {
+		private int remaining;
+
+		FailingOutputStream(int remaining) {
+			this.remaining = remaining;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			remaining -= len;
+			if (remaining < 0) {
+				throw new IOException("Disk full");
+			}
+		}
+	}
+
+	// Output that takes its time with every write
+	private static class SlowOutputStream extends ByteArrayOutputStream {
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			Thread.onSpinWait();
+			super.write(b, off, len);
+		}
+	}
+
+	// Writes a document with many small rows
+	private static byte[] document(boolean pipelined, int bufferSize) throws Exception {
+		var baos = new SlowOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(baos, bufferSize)) {
+			generator.setPipelined(pipelined);
+			assertEquals(pipelined, generator.isPipelined());
+			generator.startDocument();
+			generator.startSheet("pipelined");
+			for (int i = 0; i < 5_000; i++) {
+				generator.writeRow("row " + i, i * 0.5d, (long) i);
+			}
+			generator.closeSheet();
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testSameBytes() {
+		try {
+			var random = new Random(42);
+			var expected = new ByteArrayOutputStream();
+			var actual = new ByteArrayOutputStream();
+			try (var stream = new PipelinedOutputStream(actual, 100, 3)) {
+				for (int i = 0; i < 2_000; i++) {
+					var bytes = new byte[random.nextInt(350)];
+					random.nextBytes(bytes);
+					expected.write(bytes);
+					stream.write(bytes);
+					stream.write(i);
+					expected.write(i);
+					if (i % 500 == 0) {
+						stream.flush();
+						assertEquals(expected.size(), actual.size());
+					}
+				}
+			}
+			assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testSameDocument() {
+		try {
+			for (int bufferSize: new int[] { 16, 1024, 10 * 1024 }) {
+				assertArrayEquals(document(false, bufferSize), document(true, bufferSize));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testFailureOnClose() {
+		assertThrows(IOException.class, () -> {
+			try (var stream = new PipelinedOutputStream(new FailingOutputStream(10), 64)) {
+				stream.write(new byte[20]);
+			}
+		});
+	}
+
+	@Test
+	public void testFailureWhileWriting() {
+		assertThrows(XMLSpreadsheetException.class, () -> {
+			try (var generator = new XMLSpreadsheetGenerator(new FailingOutputStream(50_000), 1024)) {
+				generator.setPipelined(true);
+				generator.startDocument();
+				generator.startSheet("failing");
+				for (int i = 0; i < 100_000; i++) {
+					generator.writeRow((long) i);
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testWrongChunks() {
+		assertThrows(IllegalArgumentException.class, () -> new PipelinedOutputStream(new ByteArrayOutputStream(), 64, 1));
+	}
+}
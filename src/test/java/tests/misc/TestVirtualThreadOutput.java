@@ -0,0 +1,149 @@
+package tests.misc;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.OutputEncoding;
+import xml.spreadsheet.OutputEngine;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.utils.EncodingWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestVirtualThreadOutput {
+
+	private static final int GENERATORS = 10_000;
+
+	// Output that blocks for a while on every write, with no monitors
+	private static class BlockingOutputStream extends OutputStream {
+		private byte[] bytes = new byte[1024];
+		private int length = 0;
+
+		@Override
+		public void write(int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			LockSupport.parkNanos(100_000);
+			if (length + len > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + len));
+			}
+			System.arraycopy(b, off, bytes, length, len);
+			length += len;
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+	}
+
+	// Writes a small document
+	private static byte[] document(OutputEngine engine, boolean pipelined) throws Exception {
+		var output = new BlockingOutputStream();
+		try (var generator = new XMLSpreadsheetGenerator(output, 256)) {
+			generator.setOutputEngine(engine);
+			generator.setPipelined(pipelined);
+			generator.startDocument();
+			generator.startSheet("virtual");
+			for (int i = 0; i < 20; i++) {
+				generator.writeRow("row " + i + " €", i * 0.5d, (long) i);
+			}
+			generator.closeSheet();
+		}
+		return output.toByteArray();
+	}
+
+	// Writes random text by random pieces, so that surrogate pairs get split
+	private static byte[] encode(String text, long seed, Writer writer, ByteArrayOutputStream baos) throws Exception {
+		var random = new Random(seed);
+		var chars = text.toCharArray();
+		int from = 0;
+		while (from < chars.length) {
+			int count = Math.min(chars.length - from, random.nextInt(8));
+			writer.write(chars, from, count);
+			from += count;
+			if (random.nextInt(10) == 0) {
+				writer.flush();
+			}
+		}
+		writer.close();
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testSameBytesAsOutputStreamWriter() {
+		try {
+			var random = new Random(42);
+			var builder = new StringBuilder();
+			String alphabet = "aZ0<&é€Œ中😀😁";
+			for (int i = 0; i < 20_000; i++) {
+				builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			// Unpaired halves, in the middle and at the end
+			builder.append("\ud800x\udc00\ud83d");
+			var text = builder.toString();
+			for (var charset: new Charset[] { StandardCharsets.UTF_8, OutputEncoding.CP1252.charset() }) {
+				for (long seed = 0; seed < 5; seed++) {
+					var expected = new ByteArrayOutputStream();
+					var actual = new ByteArrayOutputStream();
+					assertArrayEquals(
+						encode(text, seed, new OutputStreamWriter(expected, charset), expected), 
+						encode(text, seed, new EncodingWriter(actual, charset, 64), actual));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testConcurrentVirtualThreads() {
+		try (var pinned = new RecordingStream()) {
+			var pinnedEvents = new AtomicInteger();
+			pinned.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+			pinned.onEvent("jdk.VirtualThreadPinned", event -> pinnedEvents.incrementAndGet());
+			pinned.startAsync();
+			var expected = new byte[][] {
+				document(OutputEngine.BYTES, false), 
+				document(OutputEngine.ENCODER, false), 
+				document(OutputEngine.BYTES, true) };
+			var documents = new ConcurrentHashMap<Integer, byte[]>();
+			try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int i = 0; i < GENERATORS; i++) {
+					final int index = i;
+					executor.submit(() -> {
+						documents.put(index, document(
+							index % 3 == 1 ? OutputEngine.ENCODER : OutputEngine.BYTES, index % 3 == 2));
+						return null;
+					});
+				}
+				executor.shutdown();
+				assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+			}
+			pinned.stop();
+			assertEquals(GENERATORS, documents.size());
+			documents.forEach((index, document) -> assertArrayEquals(expected[index % 3], document));
+			assertEquals(0, pinnedEvents.get());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}
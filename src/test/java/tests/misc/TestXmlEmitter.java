@@ -0,0 +1,176 @@
+package tests.misc;
+
+import org.jdom2.Element;
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.utils.ByteXmlEmitter;
+import xml.spreadsheet.utils.Markup;
+import xml.spreadsheet.utils.WriterXmlEmitter;
+import xml.spreadsheet.utils.XmlEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.XmlTestUtils.getAttributeValue;
+import static tests.XmlTestUtils.parseElement;
+
+public class TestXmlEmitter {
+
+	@Test
+	public void testEmptyElement() {
+		var element = XmlEmitter.render(emitter -> emitter.startElement("ss:random_element").closeEmptyElement());
+		assertEquals("<ss:random_element/>", element);
+	}
+
+	@Test
+	public void testNullAttributes() {
+		var element = XmlEmitter.render(emitter ->
+			emitter.startElement("ss:element")
+				.attribute("ss:key1", "value1")
+				.attribute("ss:key2", (String) null)
+				.attribute("ss:key3", (Double) null)
+				.attribute("ss:key4", (Long) null)
+				.attribute("ss:key5", (Boolean) null)
+				.attribute("ss:key6", true)
+				.attribute("ss:key7", 12L)
+				.closeEmptyElement()
+		);
+		assertEquals("<ss:element ss:key1=\"value1\" ss:key6=\"1\" ss:key7=\"12\"/>", element);
+	}
+
+	@Test
+	public void testEscaping() {
+		final var VALUE = "<a href=\"x\">&amp;</a>";
+		var element = XmlEmitter.render(emitter ->
+			emitter.startElement("ss:element")
+				.attribute("ss:key", VALUE)
+				.closeStartTag()
+				.text(VALUE)
+				.endElement("ss:element")
+		);
+		var doc = parseElement(element);
+		var parsed = (Element) doc.getRootElement().getContent().get(0);
+		assertEquals(VALUE, getAttributeValue(parsed, "key", "ss"));
+		assertEquals(VALUE, parsed.getText());
+	}
+
+	@Test
+	public void testCdata() {
+		var element = XmlEmitter.render(emitter ->
+			emitter.startElement("ss:Data").closeStartTag().cdata("a<<4~~4").endElement("ss:Data"));
+		assertEquals("<ss:Data><![CDATA[a<<4~~4]]></ss:Data>", element);
+	}
+
+	@Test
+	public void testSmallBuffer() {
+		try {
+			var writer = new StringWriter();
+			// The emitter must spill its buffer as many times as needed
+			var emitter = new WriterXmlEmitter(writer, 16);
+			var expected = new StringBuilder();
+			for (int i = 0; i < 100; i++) {
+				emitter.startElement("ss:Cell").attribute("ss:StyleID", "ce" + i).closeEmptyElement();
+				expected.append("<ss:Cell ss:StyleID=\"ce").append(i).append("\"/>");
+			}
+			emitter.flush();
+			assertEquals(expected.toString(), writer.toString());
+		} catch (Exception e) {
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testMarkup() {
+		assertEquals("</ss:Row>", XmlEmitter.render(emitter -> emitter.markup(Markup.of("</ss:Row>"))));
+		assertThrows(IllegalArgumentException.class, () -> Markup.of("<ss:\u00d1>"));
+	}
+
+	@Test
+	public void testXmlMarkup() {
+		assertEquals("<ss:Row ss:Caption=\"&#209;u &#128512;\">", 
+			Markup.ofXml("<ss:Row ss:Caption=\"\u00d1u \ud83d\ude00\">").toString());
+	}
+
+	@Test
+	public void testByteEncoding() {
+		try {
+			// Every character, plus a surrogate pair and lone surrogates
+			var text = new StringBuilder();
+			for (char c = 1; c < 0xD800; c++) {
+				text.append(c);
+			}
+			text.append("\ud83d\ude00 \ud83d \ude00");
+			for (char c = 0xE000; c < 0xFFFF; c++) {
+				text.append(c);
+			}
+			for (var charset: new Charset[] { Charset.forName("cp1252"), StandardCharsets.UTF_8 }) {
+				var expected = text.toString().getBytes(charset);
+				var baos = new ByteArrayOutputStream();
+				var emitter = new ByteXmlEmitter(baos, 100, charset);
+				// raw writes the text with no escaping
+				emitter.raw(text.toString());
+				emitter.flush();
+				assertArrayEquals(expected, baos.toByteArray());
+			}
+		} catch (Exception e) {
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testByteEncodingByChar() {
+		try {
+			for (var charset: new Charset[] { Charset.forName("cp1252"), StandardCharsets.UTF_8 }) {
+				var expected = new ByteArrayOutputStream();
+				var baos = new ByteArrayOutputStream();
+				// Every character on its own, lone surrogates included
+				var emitter = new ByteXmlEmitter(baos, 100, charset) {
+					void appendEach() throws Exception {
+						for (char c = 1; c < 0xFFFF; c++) {
+							append(c);
+							expected.write(String.valueOf(c).getBytes(charset));
+						}
+					}
+				};
+				emitter.appendEach();
+				emitter.flush();
+				assertArrayEquals(expected.toByteArray(), baos.toByteArray());
+			}
+		} catch (Exception e) {
+			fail(e.getMessage());
+		}
+	}
+
+	@Test
+	public void testUnsupportedCharset() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new ByteXmlEmitter(new ByteArrayOutputStream(), 16, StandardCharsets.UTF_16));
+	}
+
+	@Test
+	public void testBytesLikeWriter() {
+		try {
+			XmlEmitter.Fragment fragment = emitter -> {
+				for (int i = 0; i < 100; i++) {
+					emitter.markup(Markup.of("<ss:Cell"))
+						.attribute("ss:StyleID", "ce" + i)
+						.attribute("ss:Width", i / 7d)
+						.closeStartTag()
+						.text("Caf\u00e9 & \u20ac \u4e2d\ud83d\ude00 " + i)
+						.endElement("ss:Cell");
+				}
+			};
+			for (var charset: new Charset[] { Charset.forName("cp1252"), StandardCharsets.UTF_8 }) {
+				var baos = new ByteArrayOutputStream();
+				var emitter = new ByteXmlEmitter(baos, 16, charset);
+				fragment.writeTo(emitter);
+				emitter.flush();
+				assertArrayEquals(XmlEmitter.render(fragment).getBytes(charset), baos.toByteArray());
+			}
+		} catch (Exception e) {
+			fail(e.getMessage());
+		}
+	}
+}
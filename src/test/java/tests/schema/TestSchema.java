@@ -0,0 +1,108 @@
+package tests.schema;
+
+import org.junit.jupiter.api.Test;
+import xml.spreadsheet.XMLSpreadsheetGenerator;
+import xml.spreadsheet.schema.Schema;
+import xml.spreadsheet.style.Font;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static tests.XmlTestUtils.executeWithTempFile;
+import static tests.XmlTestUtils.getAttributeValue;
+import static tests.generator.GeneratorTestUtils.*;
+
+public class TestSchema {
+
+	record Order(String customer, double amount, long quantity, boolean paid, LocalDate placed, Instant updated) {}
+
+	private static final List<Order> ORDERS = List.of(
+		new Order("ACME & Co.", 1250.5d, 3, true, LocalDate.of(2023, 5, 1), Instant.parse("2023-05-01T10:15:30Z")),
+		new Order(null, -0.25d, 0, false, null, null));
+
+	@Test
+	public void testExport() {
+		executeWithTempFile( baos -> {
+			try {
+				final var SHEET_NAME = "orders";
+				try (var generator = new XMLSpreadsheetGenerator(baos)) {
+					generator.setZoneId(ZoneOffset.UTC);
+					var bold = generator.createStyle().withFont(Font.builder().withBold(true).build()).build();
+					var money = generator.createStyle().build();
+					var schema = Schema.of(Order.class)
+						.text("customer", Order::customer).withWidth(120d)
+						.number("amount", Order::amount, money).withWidth(80d)
+						.integer("quantity", Order::quantity)
+						.bool("paid", Order::paid)
+						.date("placed", Order::placed)
+						.instant("updated", Order::updated)
+						.withHeaderStyle(bold);
+					assertEquals(6, schema.size());
+					generator.startDocument();
+					assertEquals(2, schema.export(generator, SHEET_NAME, ORDERS));
+				}
+				var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+				assertNotNull(doc);
+				var columns = searchColumns(doc, SHEET_NAME);
+				// Plus the empty column that closes the section
+				assertEquals(7, columns.size());
+				assertEquals("120", getAttributeValue(columns.get(0), "Width", "ss"));
+				assertEquals("80", getAttributeValue(columns.get(1), "Width", "ss"));
+				assertNotNull(getAttributeValue(columns.get(1), "StyleID", "ss"));
+				var rows = searchRows(doc, SHEET_NAME);
+				assertEquals(3, rows.size());
+				var header = searchCells(rows.get(0));
+				assertEquals("customer", data(header.get(0)).getText());
+				assertEquals("updated", data(header.get(5)).getText());
+				String[][] expected = {
+					{ "String", "ACME & Co." },
+					{ "Number", "1250.5" },
+					{ "Number", "3" },
+					{ "Boolean", "1" },
+					{ "DateTime", "2023-05-01T00:00:00.000" },
+					{ "DateTime", "2023-05-01T10:15:30.000" }
+				};
+				var first = searchCells(rows.get(1));
+				for (int i = 0; i < expected.length; i++) {
+					assertEquals(expected[i][0], getAttributeValue(data(first.get(i)), "Type", "ss"));
+					assertEquals(expected[i][1], data(first.get(i)).getText());
+				}
+				var second = searchCells(rows.get(2));
+				assertEquals(6, second.size());
+				assertEquals("", data(second.get(0)).getText());
+				assertEquals("-0.25", data(second.get(1)).getText());
+				assertEquals("", data(second.get(4)).getText());
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail(e.getMessage());
+			}
+		});
+	}
+
+	@Test
+	public void testWidthWithoutColumn() {
+		assertThrows(IllegalStateException.class, () -> Schema.of(Order.class).withWidth(10d));
+	}
+
+	@Test
+	public void testNoHeader() {
+		try {
+			var baos = new ByteArrayOutputStream();
+			try (var generator = new XMLSpreadsheetGenerator(baos)) {
+				generator.startDocument();
+				Schema.of(Order.class).integer("quantity", Order::quantity).withHeader(false)
+					.export(generator, "quantities", ORDERS);
+			}
+			var doc = parseDocument(baos.toString(StandardCharsets.UTF_8));
+			assertEquals(2, searchRows(doc, "quantities").size());
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+}